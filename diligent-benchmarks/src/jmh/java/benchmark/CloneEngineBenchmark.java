@@ -0,0 +1,137 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import util.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Each stage of clone detection for one class, run over synthetic classes of increasing size and duplication
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class CloneEngineBenchmark {
+
+    @Param({"10", "50", "200"})
+    private int blocks;
+
+    @Param({"5", "20"})
+    private int statements;
+
+    @Param({"0.0", "0.25", "0.5"})
+    private double duplicationRatio;
+
+    private SyntheticClass syntheticClass;
+    private LocationSet[][] statementClones;
+    private LocationSet[] intersections;
+    private long[][] sequences;
+    private int[][] weights;
+    private int[][] blockTokens;
+
+    @Setup
+    public void setUp() {
+        syntheticClass = new SyntheticClass(blocks, statements, duplicationRatio, 42);
+        statementClones = compareStatements(syntheticClass);
+
+        intersections = new LocationSet[blocks];
+        for (int block = 0; block < blocks; block++) {
+            intersections[block] = BlockClones.combineClones(Arrays.asList(statementClones[block]));
+        }
+
+        sequences = new long[blocks][statements];
+        weights = new int[blocks][statements];
+        blockTokens = new int[blocks][];
+        for (int block = 0; block < blocks; block++) {
+            TokenBuffer buffer = new TokenBuffer();
+            for (int stat = 0; stat < statements; stat++) {
+                int[] tokens = syntheticClass.getTokens(block, stat);
+                sequences[block][stat] = new StatementTokens(tokens, 1).getFingerprint();
+                weights[block][stat] = 1;
+                for (int token : tokens) {
+                    buffer.add(token);
+                }
+            }
+            blockTokens[block] = buffer.toArray(0);
+        }
+    }
+
+    @Benchmark
+    public LocationSet[][] compareStatements() {
+        return compareStatements(syntheticClass);
+    }
+
+    @Benchmark
+    public void getCombinedClones(Blackhole blackhole) {
+        for (LocationSet[] clones : statementClones) {
+            blackhole.consume(BlockClones.combineClones(Arrays.asList(clones)));
+        }
+    }
+
+    @Benchmark
+    public void containsBlockClone(Blackhole blackhole) {
+        for (LocationSet intersection : intersections) {
+            for (int otherBlock = 0; otherBlock < blocks; otherBlock++) {
+                blackhole.consume(BlockClones.containsBlockClone(intersection, otherBlock, false));
+            }
+        }
+    }
+
+    @Benchmark
+    public int clusterBlocks() {
+        CloneClusters clusters = new CloneClusters(blocks);
+        for (int block = 0; block < blocks; block++) {
+            for (int otherBlock = 0; otherBlock < blocks; otherBlock++) {
+                if (!clusters.isConnected(block, otherBlock)
+                        && BlockClones.containsBlockClone(intersections[block], otherBlock, true) != null) {
+                    clusters.union(block, otherBlock);
+                }
+            }
+        }
+
+        return clusters.getClusterCount();
+    }
+
+    @Benchmark
+    public SequenceCloneDetector detectSequences() {
+        return new SequenceCloneDetector(sequences, weights);
+    }
+
+    @Benchmark
+    public NearMissCloneDetector detectNearMisses() {
+        return new NearMissCloneDetector(blockTokens, 0.8);
+    }
+
+    // The statements are compared as the clone inspection compares them, by kind. The synthetic statements have no
+    // nested bodies, and there is no earlier pass to reuse results from.
+    private static LocationSet[][] compareStatements(SyntheticClass syntheticClass) {
+        int blockCount = syntheticClass.getBlockCount();
+        int statementCount = syntheticClass.getStatementCount();
+
+        CloneExpression[][] expressions = new CloneExpression[blockCount][statementCount];
+        Map<StatementKind, List<CloneExpression>> expressionsByKind = new EnumMap<>(StatementKind.class);
+
+        for (int block = 0; block < blockCount; block++) {
+            for (int stat = 0; stat < statementCount; stat++) {
+                Location location = new Location(block, stat);
+                location.setStatementCount(1);
+
+                expressions[block][stat] = new CloneExpression(new StatementTokens(syntheticClass.getTokens(block, stat), 1), location);
+                expressionsByKind.computeIfAbsent(syntheticClass.getKind(block, stat), kind -> new ArrayList<>()).add(expressions[block][stat]);
+            }
+        }
+
+        for (Map.Entry<StatementKind, List<CloneExpression>> entry : expressionsByKind.entrySet()) {
+            StatementClones.compareStatements(entry.getKey(), entry.getValue(), (index, otherIndex) -> false);
+        }
+
+        LocationSet[][] clones = new LocationSet[blockCount][statementCount];
+        for (int block = 0; block < blockCount; block++) {
+            for (int stat = 0; stat < statementCount; stat++) {
+                clones[block][stat] = expressions[block][stat].getClones();
+            }
+        }
+
+        return clones;
+    }
+}
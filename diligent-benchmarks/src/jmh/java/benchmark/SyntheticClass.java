@@ -0,0 +1,104 @@
+package benchmark;
+
+import util.StatementKind;
+import util.TokenDictionary;
+import util.TokenBuffer;
+
+import java.util.Random;
+
+// Token streams shaped like those of a tokenised class: code blocks of assignments and declarations, where some
+// blocks are copies of earlier ones with a few variables renamed, as students tend to do
+final class SyntheticClass {
+
+    private static final int VARIABLES = 1000;
+    private static final int LITERALS = 100;
+    // Chance that a statement in a copied block has its variable renamed
+    private static final double RENAME_RATIO = 0.3;
+
+    private final StatementKind[][] kinds;
+    private final int[][][] tokens;
+
+    SyntheticClass(int blocks, int statements, double duplicationRatio, long seed) {
+        Random random = new Random(seed);
+
+        kinds = new StatementKind[blocks][statements];
+        tokens = new int[blocks][statements][];
+
+        for (int block = 0; block < blocks; block++) {
+            int copied = block > 0 && random.nextDouble() < duplicationRatio ? random.nextInt(block) : -1;
+
+            for (int stat = 0; stat < statements; stat++) {
+                if (copied == -1) {
+                    kinds[block][stat] = random.nextBoolean() ? StatementKind.ASSIGNMENT : StatementKind.DECLARATION;
+                    tokens[block][stat] = getStatement(kinds[block][stat], random.nextInt(VARIABLES), random.nextInt(LITERALS));
+                } else {
+                    kinds[block][stat] = kinds[copied][stat];
+                    tokens[block][stat] = tokens[copied][stat];
+                    if (random.nextDouble() < RENAME_RATIO) {
+                        tokens[block][stat] = rename(kinds[block][stat], tokens[block][stat], random.nextInt(VARIABLES));
+                    }
+                }
+            }
+        }
+    }
+
+    int getBlockCount() {
+        return tokens.length;
+    }
+
+    int getStatementCount() {
+        return tokens.length == 0 ? 0 : tokens[0].length;
+    }
+
+    StatementKind getKind(int block, int stat) {
+        return kinds[block][stat];
+    }
+
+    int[] getTokens(int block, int stat) {
+        return tokens[block][stat];
+    }
+
+    private static int[] getStatement(StatementKind kind, int variable, int literal) {
+        TokenBuffer buffer = new TokenBuffer();
+
+        if (kind == StatementKind.ASSIGNMENT) {
+            buffer.add("LHS");
+            buffer.add("LHS-TYPE");
+            buffer.add("int");
+            buffer.add("LHS-VAR");
+            buffer.add("REF");
+            buffer.add("var" + variable);
+            buffer.add("OP");
+            buffer.add("=");
+            buffer.add("RHS");
+            buffer.add("LITERAL");
+            buffer.add(Integer.toString(literal));
+        } else {
+            buffer.add("DECLARATION");
+            buffer.add("TYPE");
+            buffer.add("int");
+            buffer.add("NAME");
+            buffer.add("var" + variable);
+            buffer.add("INIT");
+            buffer.add("LITERAL");
+            buffer.add(Integer.toString(literal));
+            buffer.add("END-DECLARATION");
+        }
+
+        return buffer.toArray(0);
+    }
+
+    private static int[] rename(StatementKind kind, int[] tokens, int variable) {
+        int[] renamed = tokens.clone();
+        int marker = TokenDictionary.getId(kind == StatementKind.ASSIGNMENT ? "REF" : "NAME");
+
+        for (int i = 0; i < renamed.length - 1; i++) {
+            if (renamed[i] == marker) {
+                renamed[i + 1] = TokenDictionary.getId("var" + variable);
+                break;
+            }
+        }
+
+        return renamed;
+    }
+}
@@ -0,0 +1,129 @@
+package util;
+
+import java.util.List;
+
+// Finds sequences of clones between code blocks from the clone locations of their statements
+public class BlockClones {
+
+    // The longest run of statements whose clones are consecutive lines of the block, in the same order. Returns the
+    // positions of the statements in the run and the lines of their clones, or null if there is no such run.
+    public static Pair<Pair<Integer, Integer>, Pair<Integer, Integer>> containsBlockClone(LocationSet clones, int blockIndex, boolean innerBlock) {
+        if (clones == null || clones.isEmpty()) {
+            return null;
+        }
+
+        // Null cases only ever separate statements, which their positions in the run already do
+        LocationSet clonesInBlock = getClonesInCodeBlock(clones, blockIndex, false);
+
+        if (clonesInBlock.isEmpty()) {
+            return null;
+        }
+
+        // The statement counts of the run ending at each location, and the index of the location it starts at
+        int size = clonesInBlock.size();
+        int[] seqLength = new int[size];
+        int[] seqStart = new int[size];
+
+        int longestSeq = 0;
+        int longestEnd = -1;
+
+        // Locations of the previous statement in the run, ordered by line
+        int prevFrom = 0;
+        int prevTo = 0;
+        int statementFrom = 0;
+        int prevIndex = 0;
+
+        for (int index = 0; index < size; index++) {
+            int statement = clonesInBlock.getStatement(index);
+            int line = clonesInBlock.getLine(index);
+
+            if (index > 0 && statement != clonesInBlock.getStatement(index - 1)) {
+                if (clonesInBlock.getStatement(index - 1) == statement - 1) {
+                    prevFrom = statementFrom;
+                    prevTo = index;
+                } else {
+                    prevFrom = index;
+                    prevTo = index;
+                }
+                statementFrom = index;
+                prevIndex = prevFrom;
+            }
+
+            while (prevIndex < prevTo && clonesInBlock.getLine(prevIndex) < line - 1) {
+                prevIndex++;
+            }
+
+            if (prevIndex < prevTo && clonesInBlock.getLine(prevIndex) == line - 1) {
+                seqLength[index] = seqLength[prevIndex] + clonesInBlock.getStatementCount(index);
+                seqStart[index] = seqStart[prevIndex];
+            } else {
+                seqLength[index] = clonesInBlock.getStatementCount(index);
+                seqStart[index] = index;
+            }
+
+            if (seqLength[index] > longestSeq) {
+                longestSeq = seqLength[index];
+                longestEnd = index;
+            }
+        }
+
+        if ((innerBlock && longestSeq > 0) || longestSeq > 1) {
+            int start = seqStart[longestEnd];
+            return new Pair<>(new Pair<>(clonesInBlock.getStatement(start), clonesInBlock.getStatement(longestEnd) + 1),
+                    new Pair<>(clonesInBlock.getLine(start), clonesInBlock.getLine(longestEnd) + 1));
+        }
+
+        return null;
+    }
+
+    public static LocationSet getCombinedClones(LocationSet firstClones, LocationSet secondClones) {
+        if (firstClones == null) {
+            return null;
+        }
+
+        return firstClones.combine(secondClones);
+    }
+
+    // The clones of a run of statements, from the clones of each statement in turn, where a null set means the
+    // statement has no clones
+    public static LocationSet combineClones(List<LocationSet> statementClones) {
+        if (statementClones.isEmpty()) {
+            return LocationSet.NULL_CASE;
+        }
+
+        LocationSet intersection = statementClones.get(0);
+        if (intersection == null || intersection.isEmpty()) {
+            intersection = LocationSet.NULL_CASE;
+        }
+
+        for (int i = 1; i < statementClones.size(); i++) {
+            LocationSet currClones = statementClones.get(i);
+            intersection = getCombinedClones(intersection, currClones == null ? LocationSet.NULL_CASE : currClones);
+        }
+
+        return intersection;
+    }
+
+    public static LocationSet getClonesInCodeBlock(LocationSet clones, int codeBlock, boolean showAdditional) {
+        return clones.getClonesInCodeBlock(codeBlock, showAdditional);
+    }
+
+    public static LocationSet removeCodeBlock(LocationSet clones, int toRemove) {
+        return clones.withoutCodeBlock(toRemove);
+    }
+
+    public static boolean contains(LocationSet clones, int toFind) {
+        return clones.containsCodeBlock(toFind);
+    }
+
+    public static int getNextNonNested(List<Integer> list, int currIndex) {
+        int toFind = list.get(currIndex);
+        for (int i = currIndex + 1; i < list.size(); i++) {
+            if (list.get(i) <= toFind) {
+                return i - 1;
+            }
+        }
+
+        return list.size();
+    }
+}
@@ -0,0 +1,109 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CloneCandidateIndex {
+
+    private static final int[] NO_CANDIDATES = new int[0];
+
+    private final int size;
+    private final Map<Long, List<Integer>> buckets;
+    private final List<Integer> wildcards;
+
+    private int[][] candidates;
+
+    public CloneCandidateIndex(int size) {
+        this.size = size;
+        buckets = new HashMap<>();
+        wildcards = new ArrayList<>();
+    }
+
+    // A null set of keys means the statement could not be fingerprinted and has to be compared with everything
+    public void add(int index, long[] keys) {
+        candidates = null;
+
+        if (keys == null) {
+            wildcards.add(index);
+            return;
+        }
+
+        for (long key : keys) {
+            buckets.computeIfAbsent(key, k -> new ArrayList<>()).add(index);
+        }
+    }
+
+    // Indexes sharing at least one key with the given index, in ascending order
+    public int[] getCandidates(int index) {
+        if (candidates == null) {
+            candidates = buildCandidates();
+        }
+
+        return candidates[index];
+    }
+
+    private int[][] buildCandidates() {
+        int[][] neighbours = new int[size][];
+        int[] counts = new int[size];
+
+        for (List<Integer> bucket : buckets.values()) {
+            if (bucket.size() < 2) {
+                continue;
+            }
+
+            for (int i : bucket) {
+                for (int j : bucket) {
+                    if (i != j) {
+                        counts[i] = append(neighbours, counts[i], i, j);
+                    }
+                }
+            }
+        }
+
+        for (int wildcard : wildcards) {
+            for (int i = 0; i < size; i++) {
+                if (i != wildcard) {
+                    counts[wildcard] = append(neighbours, counts[wildcard], wildcard, i);
+                    counts[i] = append(neighbours, counts[i], i, wildcard);
+                }
+            }
+        }
+
+        int[][] result = new int[size][];
+        for (int i = 0; i < size; i++) {
+            result[i] = neighbours[i] == null ? NO_CANDIDATES : sortedUnique(neighbours[i], counts[i]);
+        }
+
+        return result;
+    }
+
+    private static int append(int[][] neighbours, int count, int index, int value) {
+        int[] values = neighbours[index];
+
+        if (values == null) {
+            values = new int[4];
+        } else if (count == values.length) {
+            values = Arrays.copyOf(values, count * 2);
+        }
+
+        values[count] = value;
+        neighbours[index] = values;
+        return count + 1;
+    }
+
+    private static int[] sortedUnique(int[] values, int count) {
+        Arrays.sort(values, 0, count);
+
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || values[unique - 1] != values[i]) {
+                values[unique++] = values[i];
+            }
+        }
+
+        return Arrays.copyOf(values, unique);
+    }
+}
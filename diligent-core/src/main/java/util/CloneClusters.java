@@ -0,0 +1,65 @@
+package util;
+
+// Groups switch cases or code blocks into clusters of clones with union-find, so that clones found in any order
+// end up in the same cluster and pairs already known to be in one cluster need not be compared
+public class CloneClusters {
+
+    private final int[] parents;
+    private final int[] sizes;
+    private int clusterCount;
+
+    public CloneClusters(int size) {
+        parents = new int[size];
+        sizes = new int[size];
+        clusterCount = size;
+
+        for (int i = 0; i < size; i++) {
+            parents[i] = i;
+            sizes[i] = 1;
+        }
+    }
+
+    public int find(int index) {
+        while (parents[index] != index) {
+            // Path halving keeps later finds close to constant time
+            parents[index] = parents[parents[index]];
+            index = parents[index];
+        }
+
+        return index;
+    }
+
+    // Returns whether the two were in different clusters
+    public boolean union(int index, int otherIndex) {
+        int root = find(index);
+        int otherRoot = find(otherIndex);
+
+        if (root == otherRoot) {
+            return false;
+        }
+
+        if (sizes[root] < sizes[otherRoot]) {
+            int tmp = root;
+            root = otherRoot;
+            otherRoot = tmp;
+        }
+
+        parents[otherRoot] = root;
+        sizes[root] += sizes[otherRoot];
+        clusterCount--;
+
+        return true;
+    }
+
+    public boolean isConnected(int index, int otherIndex) {
+        return find(index) == find(otherIndex);
+    }
+
+    public int getClusterSize(int index) {
+        return sizes[find(index)];
+    }
+
+    public int getClusterCount() {
+        return clusterCount;
+    }
+}
@@ -0,0 +1,37 @@
+package util;
+
+public class CloneExpression {
+
+    private final StatementTokens tokens;
+    private final Location location;
+    private final LocationSet.Builder cloneBuilder;
+    private LocationSet clones;
+
+    public CloneExpression(StatementTokens tokens, Location location) {
+        this.tokens = tokens;
+        this.location = location;
+        cloneBuilder = new LocationSet.Builder();
+    }
+
+    public int[] getTokens() {
+        return tokens.getTokens();
+    }
+
+    public Location getLocation() {
+        return location;
+    }
+
+    // Null if no clones have been found
+    public LocationSet getClones() {
+        if (clones == null && !cloneBuilder.isEmpty()) {
+            clones = cloneBuilder.build();
+        }
+
+        return clones;
+    }
+
+    public void addClone(Location clone) {
+        cloneBuilder.add(clone);
+        clones = null;
+    }
+}
@@ -0,0 +1,451 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Stack;
+import java.util.function.BooleanSupplier;
+
+// The rules deciding whether two tokenised statements are clones, free of any PSI so that they can run outside the IDE
+public class CloneRules {
+
+    private static final int BINEXPR = TokenDictionary.getKeywordId("BINEXPR");
+    private static final int BINEXPROP = TokenDictionary.getKeywordId("BINEXPROP");
+    private static final int BINEXPRRHS = TokenDictionary.getKeywordId("BINEXPRRHS");
+    private static final int DOWHILE_COND = TokenDictionary.getKeywordId("DOWHILE-COND");
+    private static final int END_BINEXPR = TokenDictionary.getKeywordId("END-BINEXPR");
+    private static final int END_DOWHILE_COND = TokenDictionary.getKeywordId("END-DOWHILE-COND");
+    private static final int END_SWITCH_VAR = TokenDictionary.getKeywordId("END-SWITCH-VAR");
+    private static final int END_WHILE_COND = TokenDictionary.getKeywordId("END-WHILE-COND");
+    private static final int FOR_BODY = TokenDictionary.getKeywordId("FOR-BODY");
+    private static final int FOREACH_IN = TokenDictionary.getKeywordId("FOREACH-IN");
+    private static final int FOREACH_TYPE = TokenDictionary.getKeywordId("FOREACH-TYPE");
+    private static final int IF_COND = TokenDictionary.getKeywordId("IF-COND");
+    private static final int IF_THEN = TokenDictionary.getKeywordId("IF-THEN");
+    private static final int INIT = TokenDictionary.getKeywordId("INIT");
+    private static final int LHS_TYPE = TokenDictionary.getKeywordId("LHS-TYPE");
+    private static final int LHS_VAR = TokenDictionary.getKeywordId("LHS-VAR");
+    private static final int NAME = TokenDictionary.getKeywordId("NAME");
+    private static final int OP = TokenDictionary.getKeywordId("OP");
+    private static final int POSTFIX_OP = TokenDictionary.getKeywordId("POSTFIX-OP");
+    private static final int POSTFIX_TYPE = TokenDictionary.getKeywordId("POSTFIX-TYPE");
+    private static final int POSTFIX_VAR = TokenDictionary.getKeywordId("POSTFIX-VAR");
+    private static final int PREFIX_OP = TokenDictionary.getKeywordId("PREFIX-OP");
+    private static final int PREFIX_TYPE = TokenDictionary.getKeywordId("PREFIX-TYPE");
+    private static final int PREFIX_VAR = TokenDictionary.getKeywordId("PREFIX-VAR");
+    private static final int RHS = TokenDictionary.getKeywordId("RHS");
+    private static final int SWITCH_VAR = TokenDictionary.getKeywordId("SWITCH-VAR");
+    private static final int WHILE_COND = TokenDictionary.getKeywordId("WHILE-COND");
+
+    // Rules for two statements of the same kind that are not identical. Bodies of nested if, loop and switch
+    // statements are compared by the caller, and only once the rest of the statements are known to match.
+    public static boolean isClone(StatementKind kind, int[] first, int[] second, BooleanSupplier similarBodies) {
+        if (kind == null) {
+            return false;
+        }
+
+        switch (kind) {
+            case DECLARATION:
+                return declChangeInVarName(first, second);
+            case IF:
+                if (sameIfCondition(first, second)) {
+                    return similarBodies.getAsBoolean();
+                }
+                return sameIfBody(first, second) && (conditionChangeInLhs(first, second)
+                        || conditionChangeInRhs(first, second)
+                        || conditionPartial(first, second));
+            case ASSIGNMENT:
+                return changeInRHS(first, second) || changeInOp(first, second) || changeInLHS(first, second);
+            case FOR:
+                return sameForSetup(first, second) && similarBodies.getAsBoolean();
+            case FOREACH:
+                return sameForEachSetup(first, second) && similarBodies.getAsBoolean();
+            case WHILE:
+                return sameWhileCondition(first, second) && similarBodies.getAsBoolean();
+            case DO_WHILE:
+                return sameDoWhileCondition(first, second) && similarBodies.getAsBoolean();
+            case SWITCH:
+                return sameSwitchVar(first, second) && similarBodies.getAsBoolean();
+            case PREFIX:
+                return prefixExprChangeInVar(first, second) || prefixExprChangeInOp(first, second);
+            case POSTFIX:
+                return postfixExprChangeInVar(first, second) || postfixExprChangeInOp(first, second);
+            default:
+                return false;
+        }
+    }
+
+    public static boolean changeInLHS(int[] first, int[] second) {
+        // RHS, type of LHS, operator the same
+        // LHS different
+        int firstTypeIndex = getStartIndex(LHS_TYPE, first) + 1;
+        int firstEndTypeIndex = getStartIndex(LHS_VAR, first);
+
+        int secondTypeIndex = getStartIndex(LHS_TYPE, first) + 1;
+        int secondEndTypeIndex = getStartIndex(LHS_VAR, first);
+
+        int firstOpIndex = getStartIndex(OP, first);
+        int secondOpIndex = getStartIndex(OP, second);
+
+        return Arrays.equals(first, firstTypeIndex, firstEndTypeIndex, second, secondTypeIndex, secondEndTypeIndex) &&
+                Arrays.equals(first, firstOpIndex, first.length, second, secondOpIndex, second.length);
+    }
+
+    public static boolean changeInRHS(int[] first, int[] second) {
+        // LHS and operator the same
+        // RHS different
+        int firstRhsIndex = getStartIndex(RHS, first);
+        int secondRhsIndex = getStartIndex(RHS, second);
+
+        return Arrays.equals(first, 0, firstRhsIndex, second, 0, secondRhsIndex);
+    }
+
+    public static boolean changeInOp(int[] first, int[] second) {
+        // LHS and RHS the same
+        // Operator different
+        int firstOpIndex = getStartIndex(OP, first);
+        int firstEndOpIndex = getStartIndex(RHS, first);
+
+        int secondOpIndex = getStartIndex(OP, second);
+        int secondEndOpIndex = getStartIndex(RHS, second);
+
+        return Arrays.equals(first, 0, firstOpIndex, second, 0, secondOpIndex) &&
+                Arrays.equals(first, firstEndOpIndex, first.length, second, secondEndOpIndex, second.length);
+    }
+
+    public static boolean prefixExprChangeInVar(int[] first, int[] second) {
+        // Same operator and type of var, Change in var name
+        int firstTypeIndex = getStartIndex(PREFIX_TYPE, first) + 1;
+        int firstEndTypeIndex = getStartIndex(PREFIX_VAR, first);
+
+        int secondTypeIndex = getStartIndex(PREFIX_TYPE, first) + 1;
+        int secondEndTypeIndex = getStartIndex(PREFIX_VAR, first);
+
+        int firstOpIndex = getStartIndex(PREFIX_OP, first);
+        int secondOpIndex = getStartIndex(PREFIX_OP, second);
+
+        return Arrays.equals(first, firstTypeIndex, firstEndTypeIndex, second, secondTypeIndex, secondEndTypeIndex) &&
+                Arrays.equals(first, firstOpIndex, first.length, second, secondOpIndex, second.length);
+    }
+
+    public static boolean prefixExprChangeInOp(int[] first, int[] second) {
+        // Same var name and type, Change in op
+        int firstEndVarIndex = getStartIndex(PREFIX_OP, first);
+        int secondEndVarIndex = getStartIndex(PREFIX_OP, second);
+
+        return Arrays.equals(first, 0, firstEndVarIndex, second, 0, secondEndVarIndex);
+    }
+
+    public static boolean postfixExprChangeInVar(int[] first, int[] second) {
+        // Same operator and type of var, Change in var name
+        int firstTypeIndex = getStartIndex(POSTFIX_TYPE, first) + 1;
+        int firstEndTypeIndex = getStartIndex(POSTFIX_VAR, first);
+
+        int secondTypeIndex = getStartIndex(POSTFIX_TYPE, first) + 1;
+        int secondEndTypeIndex = getStartIndex(POSTFIX_VAR, first);
+
+        int firstOpIndex = getStartIndex(POSTFIX_OP, first);
+        int secondOpIndex = getStartIndex(POSTFIX_OP, second);
+
+        return Arrays.equals(first, firstTypeIndex, firstEndTypeIndex, second, secondTypeIndex, secondEndTypeIndex) &&
+                Arrays.equals(first, firstOpIndex, first.length, second, secondOpIndex, second.length);
+    }
+
+    public static boolean postfixExprChangeInOp(int[] first, int[] second) {
+        // Same var name and type, Change in op
+        int firstEndVarIndex = getStartIndex(POSTFIX_OP, first);
+        int secondEndVarIndex = getStartIndex(POSTFIX_OP, second);
+
+        return Arrays.equals(first, 0, firstEndVarIndex, second, 0, secondEndVarIndex);
+    }
+
+    public static boolean sameIfCondition(int[] first, int[] second) {
+        int firstCondIndex = getStartIndex(IF_COND, first) + 1;
+        int firstCondEndIndex = getStartIndex(IF_THEN, first);
+        int secondCondIndex = getStartIndex(IF_COND, second) + 1;
+        int secondCondEndIndex = getStartIndex(IF_THEN, second);
+
+        return Arrays.equals(first, firstCondIndex, firstCondEndIndex, second, secondCondIndex, secondCondEndIndex);
+    }
+
+    public static boolean sameWhileCondition(int[] first, int[] second) {
+        int firstCondIndex = getStartIndex(WHILE_COND, first) + 1;
+        int firstCondEndIndex = getStartIndex(END_WHILE_COND, first);
+        int secondCondIndex = getStartIndex(WHILE_COND, second) + 1;
+        int secondCondEndIndex = getStartIndex(END_WHILE_COND, second);
+
+        return Arrays.equals(first, firstCondIndex, firstCondEndIndex, second, secondCondIndex, secondCondEndIndex);
+    }
+
+    public static boolean sameDoWhileCondition(int[] first, int[] second) {
+        int firstCondIndex = getStartIndex(DOWHILE_COND, first) + 1;
+        int firstCondEndIndex = getStartIndex(END_DOWHILE_COND, first);
+        int secondCondIndex = getStartIndex(DOWHILE_COND, second) + 1;
+        int secondCondEndIndex = getStartIndex(END_DOWHILE_COND, second);
+
+        return Arrays.equals(first, firstCondIndex, firstCondEndIndex, second, secondCondIndex, secondCondEndIndex);
+    }
+
+    public static boolean conditionChangeInRhs(int[] first, int[] second) {
+        // LHS and operator the same
+        // RHS different
+        int firstRhsIndex = getStartIndex(BINEXPRRHS, first);
+        int secondRhsIndex = getStartIndex(BINEXPRRHS, second);
+
+        if (firstRhsIndex == -1 || secondRhsIndex == -1) {
+            return false;
+        }
+
+        return Arrays.equals(first, 0, firstRhsIndex, second, 0, secondRhsIndex);
+    }
+
+    public static boolean conditionChangeInLhs(int[] first, int[] second) {
+        // RHS and operator the same
+        // LHS different
+        int firstOpIndex = getStartIndex(BINEXPROP, first);
+        int secondOpIndex = getStartIndex(BINEXPROP, second);
+
+        if (firstOpIndex == -1 || secondOpIndex == -1) {
+            return false;
+        }
+
+        return Arrays.equals(first, firstOpIndex, first.length, second, secondOpIndex, second.length);
+    }
+
+    public static boolean conditionPartial(int[] first, int[] second) {
+        int[] firstCond = Arrays.copyOfRange(first, getStartIndex(IF_COND, first) + 1, getStartIndex(IF_THEN, first));
+        int[] secondCond = Arrays.copyOfRange(second, getStartIndex(IF_COND, second) + 1, getStartIndex(IF_THEN, second));
+
+
+        List<Pair<Integer, Integer>> firstBinExpr = getAllBinExpr(firstCond);
+        List<Pair<Integer, Integer>> secondBinExpr = getAllBinExpr(secondCond);
+
+        for (Pair<Integer, Integer> firstIndex : firstBinExpr) {
+            for (Pair<Integer, Integer> secondIndex : secondBinExpr) {
+                if (equalWithCondVar(firstCond, firstIndex, secondCond, secondIndex)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean equalWithCondVar(int[] first, Pair<Integer, Integer> firstIndex, int[] second, Pair<Integer, Integer> secondIndex) {
+        int length = firstIndex.getSecond() - firstIndex.getFirst();
+
+        if (length != secondIndex.getSecond() - secondIndex.getFirst()) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+                if (first[firstIndex.getFirst() + i] != second[secondIndex.getFirst() + i] &&
+                        !TokenDictionary.isConditionVar(first[firstIndex.getFirst() + i]) &&
+                        !TokenDictionary.isConditionVar(second[secondIndex.getFirst() + i])) {
+                    return false;
+                }
+
+        }
+
+        return true;
+    }
+
+    private static List<Pair<Integer, Integer>> getAllBinExpr(int[] arr) {
+        List<Pair<Integer, Integer>> allBinExpr = new ArrayList<>();
+        Stack<Integer> startIndexes = new Stack<>();
+        for (int i = 0; i < arr.length; i++) {
+            if (arr[i] == BINEXPR) {
+                startIndexes.push(i);
+            } else if (arr[i] == END_BINEXPR) {
+                assert !startIndexes.empty() : "Stack empty, no corresponding start token " +print(arr);
+                allBinExpr.add(new Pair<>(startIndexes.pop(), i + 1));
+            }
+        }
+
+        return allBinExpr;
+    }
+
+    public static boolean sameIfBody(int[] first, int[] second) {
+        int firstThenIndex = getStartIndex(IF_THEN, first);
+        int secondThenIndex = getStartIndex(IF_THEN, second);
+
+        return equalWithCondVar(first, new Pair<>(firstThenIndex, first.length), second, new Pair<>(secondThenIndex, second.length));
+    }
+
+    public static boolean sameForSetup(int[] first, int[] second) {
+        int firstBodyIndex = getStartIndex(FOR_BODY, first);
+        int secondBodyIndex = getStartIndex(FOR_BODY, second);
+
+        return Arrays.equals(first, 0, firstBodyIndex, second, 0, secondBodyIndex);
+    }
+
+    public static boolean sameForEachSetup(int[] first, int[] second) {
+        int firstTypeIndex = getStartIndex(FOREACH_TYPE, first) + 1;
+        int secondTypeIndex = getStartIndex(FOREACH_TYPE, second) + 1;
+
+        if (first[firstTypeIndex] != second[secondTypeIndex]) {
+            return false;
+        }
+
+        int firstIteratedIndex = getStartIndex(FOREACH_IN, first) + 1;
+        int secondIteratedIndex = getStartIndex(FOREACH_IN, second) + 1;
+
+        return first[firstIteratedIndex] == second[secondIteratedIndex];
+    }
+
+    public static boolean declChangeInVarName(int[] first, int[] second) {
+        // int z = 0 and int x = 0 are the same we just have called them different names
+        // Same type and initialiser (if they have one)
+        // Different variable name
+        int firstNameIndex = getStartIndex(NAME, first);
+        int firstEndNameIndex = getStartIndex(INIT, first);
+        int secondNameIndex = getStartIndex(NAME, second);
+        int secondEndNameIndex = getStartIndex(INIT, second);
+
+        boolean sameType = Arrays.equals(first, 0, firstNameIndex, second, 0, secondNameIndex);
+
+        if (!sameType) {
+            return false;
+        }
+
+        if (firstEndNameIndex == -1 && secondEndNameIndex == -1) {
+            return true;
+        }
+
+        if (firstEndNameIndex != -1 && secondEndNameIndex != -1) {
+            return Arrays.equals(first, firstEndNameIndex, first.length, second, secondEndNameIndex, second.length);
+        }
+
+        return false;
+    }
+
+    public static boolean sameSwitchVar(int[] first, int[] second) {
+        int firstVarIndex = getStartIndex(SWITCH_VAR, first) + 1;
+        int firstEndVarIndex = getStartIndex(END_SWITCH_VAR, first);
+        int secondVarIndex = getStartIndex(SWITCH_VAR, second) + 1;
+        int secondEndVarIndex = getStartIndex(END_SWITCH_VAR, second);
+
+        return Arrays.equals(first, firstVarIndex, firstEndVarIndex, second, secondVarIndex, secondEndVarIndex);
+    }
+
+    // Keys that two statements must share for any of the rules above to match them, so that only
+    // statements with a key in common need to be compared. Returns null if a key cannot be computed.
+    public static long[] getCandidateKeys(StatementKind kind, int[] rep) {
+        List<Long> keys = new ArrayList<>();
+        boolean valid = addRangeKey(keys, 0, rep, 0, rep.length);
+
+        if (kind == StatementKind.DECLARATION) {
+            // declChangeInVarName
+            valid &= addRangeKey(keys, 1, rep, 0, getStartIndex(NAME, rep));
+        } else if (kind == StatementKind.IF) {
+            // sameIfCondition
+            valid &= addRangeKey(keys, 1, rep, getStartIndex(IF_COND, rep) + 1, getStartIndex(IF_THEN, rep));
+
+            // sameIfBody allows condition variables to differ, so only the length of the body can be used
+            int thenIndex = getStartIndex(IF_THEN, rep);
+            valid &= thenIndex != -1;
+            keys.add(toKey(2, rep.length - thenIndex));
+        } else if (kind == StatementKind.ASSIGNMENT) {
+            int opIndex = getStartIndex(OP, rep);
+            int rhsIndex = getStartIndex(RHS, rep);
+
+            // changeInRHS, changeInLHS
+            valid &= addRangeKey(keys, 1, rep, 0, rhsIndex);
+            valid &= addRangeKey(keys, 2, rep, opIndex, rep.length);
+
+            // changeInOp
+            valid &= isValidRange(rep, 0, opIndex) && isValidRange(rep, rhsIndex, rep.length);
+            if (valid) {
+                keys.add(toKey(3, 31 * hashRange(rep, 0, opIndex) + hashRange(rep, rhsIndex, rep.length)));
+            }
+        } else if (kind == StatementKind.FOR) {
+            // sameForSetup
+            valid &= addRangeKey(keys, 1, rep, 0, getStartIndex(FOR_BODY, rep));
+        } else if (kind == StatementKind.FOREACH) {
+            // sameForEachSetup
+            int typeIndex = getStartIndex(FOREACH_TYPE, rep) + 1;
+            int iteratedIndex = getStartIndex(FOREACH_IN, rep) + 1;
+
+            valid &= typeIndex < rep.length && iteratedIndex < rep.length;
+            if (valid) {
+                keys.add(toKey(1, 31 * rep[typeIndex] + rep[iteratedIndex]));
+            }
+        } else if (kind == StatementKind.WHILE) {
+            // sameWhileCondition
+            valid &= addRangeKey(keys, 1, rep, getStartIndex(WHILE_COND, rep) + 1, getStartIndex(END_WHILE_COND, rep));
+        } else if (kind == StatementKind.DO_WHILE) {
+            // sameDoWhileCondition
+            valid &= addRangeKey(keys, 1, rep, getStartIndex(DOWHILE_COND, rep) + 1, getStartIndex(END_DOWHILE_COND, rep));
+        } else if (kind == StatementKind.SWITCH) {
+            // sameSwitchVar
+            valid &= addRangeKey(keys, 1, rep, getStartIndex(SWITCH_VAR, rep) + 1, getStartIndex(END_SWITCH_VAR, rep));
+        } else if (kind == StatementKind.PREFIX) {
+            // prefixExprChangeInVar, prefixExprChangeInOp
+            int opIndex = getStartIndex(PREFIX_OP, rep);
+            valid &= addRangeKey(keys, 1, rep, opIndex, rep.length);
+            valid &= addRangeKey(keys, 2, rep, 0, opIndex);
+        } else if (kind == StatementKind.POSTFIX) {
+            // postfixExprChangeInVar, postfixExprChangeInOp
+            int opIndex = getStartIndex(POSTFIX_OP, rep);
+            valid &= addRangeKey(keys, 1, rep, opIndex, rep.length);
+            valid &= addRangeKey(keys, 2, rep, 0, opIndex);
+        }
+
+        if (!valid) {
+            return null;
+        }
+
+        long[] keyArray = new long[keys.size()];
+        for (int i = 0; i < keyArray.length; i++) {
+            keyArray[i] = keys.get(i);
+        }
+
+        return keyArray;
+    }
+
+    private static boolean addRangeKey(List<Long> keys, int rule, int[] arr, int from, int to) {
+        if (!isValidRange(arr, from, to)) {
+            return false;
+        }
+
+        keys.add(toKey(rule, hashRange(arr, from, to)));
+        return true;
+    }
+
+    private static boolean isValidRange(int[] arr, int from, int to) {
+        return from >= 0 && from <= to && to <= arr.length;
+    }
+
+    private static int hashRange(int[] arr, int from, int to) {
+        int hash = 1;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + arr[i];
+        }
+
+        return 31 * hash + (to - from);
+    }
+
+    private static long toKey(int rule, int hash) {
+        return ((long) rule << 32) | (hash & 0xffffffffL);
+    }
+
+    private static int getStartIndex(int toFind, int[] arr) {
+        for (int i = 0; i < arr.length; i++) {
+            if (arr[i] == toFind) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    public static String print(int[] arr) {
+        StringBuffer sb = new StringBuffer();
+
+        for (int id : arr) {
+            sb.append(TokenDictionary.getToken(id));
+            sb.append(" ");
+        }
+
+        return sb.toString();
+    }
+}
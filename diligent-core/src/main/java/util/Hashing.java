@@ -0,0 +1,31 @@
+package util;
+
+// 64-bit hashes for keys that are trusted without comparing whatever they were computed from
+public class Hashing {
+
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    // SplitMix64 finaliser
+    public static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    // Depends on the order values are combined in
+    public static long combine(long hash, long value) {
+        return mix(hash * GOLDEN_RATIO + value);
+    }
+
+    // FNV-1a over the characters, mixed so that short texts still spread over all 64 bits
+    public static long hash(CharSequence text) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+
+        return mix(hash);
+    }
+}
@@ -0,0 +1,406 @@
+package util;
+
+import java.util.Arrays;
+
+// The clone locations of a statement, or of a run of statements, packed as (codeBlock, line, statementCount) into
+// longs grouped by code block with the offset of each block, so that a block is found by binary search and sliced
+// out. Each location also keeps the position in the run of the statement it is a clone of, and within a block the
+// locations are ordered by that position and then by line, so that a sequence only ever follows statement order.
+// The null case (a statement with no clones) is kept as a marker before or after the locations, as it decides
+// which locations may be joined into one sequence.
+public final class LocationSet {
+
+    private enum NullCase {
+        NONE,
+        LEADING,
+        TRAILING
+    }
+
+    private static final int BLOCK_SHIFT = 40;
+    private static final int LINE_SHIFT = 16;
+    private static final long FIELD_MASK = (1L << 24) - 1;
+    private static final long COUNT_MASK = (1L << LINE_SHIFT) - 1;
+
+    private static final Segment NO_LOCATIONS = new Segment(new long[0], new int[0]);
+
+    public static final LocationSet EMPTY = new LocationSet(NO_LOCATIONS, NO_LOCATIONS, NullCase.NONE, 1);
+    public static final LocationSet NULL_CASE = new LocationSet(NO_LOCATIONS, NO_LOCATIONS, NullCase.LEADING, 1);
+
+    private final Segment locations;
+    // Only found after a trailing null case, and never joined to a sequence in the locations before it
+    private final Segment afterNullCase;
+    private final NullCase nullCase;
+    // The number of statements combined into this set
+    private final int statements;
+
+    private LocationSet(Segment locations, Segment afterNullCase, NullCase nullCase, int statements) {
+        this.locations = locations;
+        this.afterNullCase = afterNullCase;
+        // Without any locations there is nothing for the null case to come before or after
+        this.nullCase = nullCase == NullCase.TRAILING && locations.size() == 0 ? NullCase.LEADING : nullCase;
+        this.statements = statements;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int size() {
+        return locations.size() + afterNullCase.size() + (nullCase == NullCase.NONE ? 0 : 1);
+    }
+
+    public boolean hasNullCase() {
+        return nullCase != NullCase.NONE;
+    }
+
+    public boolean isOnlyNullCase() {
+        return locations.size() == 0 && afterNullCase.size() == 0;
+    }
+
+    // The code block, line and statement count at each index, in the order of the original sequence
+    public int getCodeBlock(int index) {
+        long location = get(index);
+        return location < 0 ? -1 : (int) ((location >>> BLOCK_SHIFT) & FIELD_MASK);
+    }
+
+    public int getLine(int index) {
+        long location = get(index);
+        return location < 0 ? -1 : (int) ((location >>> LINE_SHIFT) & FIELD_MASK);
+    }
+
+    public int getStatementCount(int index) {
+        long location = get(index);
+        return location < 0 ? 0 : (int) (location & COUNT_MASK);
+    }
+
+    // The position in the run of the statement that the location at this index is a clone of
+    public int getStatement(int index) {
+        if (nullCase == NullCase.LEADING) {
+            if (index == 0) {
+                return -1;
+            }
+            index--;
+        }
+
+        if (index < locations.size()) {
+            return locations.statements[index];
+        }
+        index -= locations.size();
+
+        if (nullCase == NullCase.TRAILING) {
+            if (index == 0) {
+                return -1;
+            }
+            index--;
+        }
+
+        return afterNullCase.statements[index];
+    }
+
+    private long get(int index) {
+        if (nullCase == NullCase.LEADING) {
+            if (index == 0) {
+                return -1;
+            }
+            index--;
+        }
+
+        if (index < locations.size()) {
+            return locations.get(index);
+        }
+        index -= locations.size();
+
+        if (nullCase == NullCase.TRAILING) {
+            if (index == 0) {
+                return -1;
+            }
+            index--;
+        }
+
+        return afterNullCase.get(index);
+    }
+
+    public boolean containsCodeBlock(int codeBlock) {
+        if (codeBlock == -1) {
+            return hasNullCase();
+        }
+
+        return locations.indexOfBlock(codeBlock) >= 0 || afterNullCase.indexOfBlock(codeBlock) >= 0;
+    }
+
+    public int[] getCodeBlocks() {
+        if (afterNullCase.size() == 0) {
+            return locations.blocks;
+        }
+
+        return Segment.union(locations.blocks, afterNullCase.blocks);
+    }
+
+    public LocationSet getClonesInCodeBlock(int codeBlock, boolean showAdditional) {
+        if (codeBlock == -1) {
+            return hasNullCase() ? NULL_CASE : EMPTY;
+        }
+
+        return new LocationSet(locations.slice(codeBlock), afterNullCase.slice(codeBlock),
+                showAdditional ? nullCase : NullCase.NONE, statements);
+    }
+
+    public LocationSet withoutCodeBlock(int codeBlock) {
+        if (codeBlock == -1) {
+            return new LocationSet(locations, afterNullCase, NullCase.NONE, statements);
+        }
+
+        return new LocationSet(locations.without(codeBlock), afterNullCase.without(codeBlock), nullCase, statements);
+    }
+
+    // Keeps only the code blocks with a location in both sets, where the other set holds the clones of the next
+    // statement. Statements with no clones are allowed before and after the cloned ones, but not between them.
+    public LocationSet combine(LocationSet nextClones) {
+        int combinedStatements = statements + nextClones.statements;
+
+        if (nextClones.hasNullCase()) {
+            return new LocationSet(locations, afterNullCase, hasNullCase() ? nullCase : NullCase.TRAILING, combinedStatements);
+        }
+
+        if (isOnlyNullCase()) {
+            return new LocationSet(nextClones.locations.shift(statements), NO_LOCATIONS, nullCase, combinedStatements);
+        }
+
+        if (nullCase == NullCase.TRAILING && afterNullCase.size() > 0) {
+            return null;
+        }
+
+        Segment kept = locations.retainBlocks(nextClones.locations);
+        Segment added = nextClones.locations.retainBlocks(locations).shift(statements);
+
+        if (nullCase == NullCase.TRAILING) {
+            return new LocationSet(kept, added, nullCase, combinedStatements);
+        }
+
+        return new LocationSet(Segment.concat(kept, added), NO_LOCATIONS, nullCase, combinedStatements);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append("<").append(getCodeBlock(i)).append(", ").append(getLine(i)).append(">");
+        }
+        return sb.append("]").toString();
+    }
+
+    private static long pack(Location location) {
+        return ((long) location.getCodeBlock() << BLOCK_SHIFT)
+                | ((long) location.getLine() << LINE_SHIFT)
+                | Math.min(location.getStatementCount(), COUNT_MASK);
+    }
+
+    // The code block and line, which is all that identifies a location
+    private static long key(long location) {
+        return location >>> LINE_SHIFT;
+    }
+
+    // The clones of a single statement
+    public static class Builder {
+        private long[] locations = new long[4];
+        private int size;
+
+        public void add(Location location) {
+            if (size == locations.length) {
+                locations = Arrays.copyOf(locations, size * 2);
+            }
+            locations[size++] = pack(location);
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public LocationSet build() {
+            long[] sorted = Arrays.copyOf(locations, size);
+            Arrays.sort(sorted);
+
+            int unique = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (unique == 0 || key(sorted[i]) != key(sorted[unique - 1])) {
+                    sorted[unique++] = sorted[i];
+                }
+            }
+
+            return new LocationSet(new Segment(Arrays.copyOf(sorted, unique), new int[unique]), NO_LOCATIONS, NullCase.NONE, 1);
+        }
+    }
+
+    private static class Segment {
+        private final long[] locations;
+        // The position in the run of the statement each location is a clone of
+        private final int[] statements;
+        private final int[] blocks;
+        // Locations of blocks[i] are found from offsets[i] up to offsets[i + 1]
+        private final int[] offsets;
+
+        Segment(long[] locations, int[] statements) {
+            this.locations = locations;
+            this.statements = statements;
+
+            int blockCount = 0;
+            for (int i = 0; i < locations.length; i++) {
+                if (i == 0 || getBlock(locations[i]) != getBlock(locations[i - 1])) {
+                    blockCount++;
+                }
+            }
+
+            blocks = new int[blockCount];
+            offsets = new int[blockCount + 1];
+            int block = 0;
+            for (int i = 0; i < locations.length; i++) {
+                if (i == 0 || getBlock(locations[i]) != getBlock(locations[i - 1])) {
+                    blocks[block] = getBlock(locations[i]);
+                    offsets[block] = i;
+                    block++;
+                }
+            }
+            offsets[blockCount] = locations.length;
+        }
+
+        int size() {
+            return locations.length;
+        }
+
+        long get(int index) {
+            return locations[index];
+        }
+
+        int indexOfBlock(int block) {
+            return Arrays.binarySearch(blocks, block);
+        }
+
+        Segment slice(int block) {
+            int index = indexOfBlock(block);
+            if (index < 0) {
+                return NO_LOCATIONS;
+            }
+
+            return new Segment(Arrays.copyOfRange(locations, offsets[index], offsets[index + 1]),
+                    Arrays.copyOfRange(statements, offsets[index], offsets[index + 1]));
+        }
+
+        Segment without(int block) {
+            int index = indexOfBlock(block);
+            if (index < 0) {
+                return this;
+            }
+
+            int length = offsets[index + 1] - offsets[index];
+            long[] remaining = new long[locations.length - length];
+            int[] remainingStatements = new int[remaining.length];
+            System.arraycopy(locations, 0, remaining, 0, offsets[index]);
+            System.arraycopy(locations, offsets[index + 1], remaining, offsets[index], locations.length - offsets[index + 1]);
+            System.arraycopy(statements, 0, remainingStatements, 0, offsets[index]);
+            System.arraycopy(statements, offsets[index + 1], remainingStatements, offsets[index], locations.length - offsets[index + 1]);
+            return new Segment(remaining, remainingStatements);
+        }
+
+        // The same locations, as clones of statements that many positions further into the run
+        Segment shift(int by) {
+            if (by == 0 || locations.length == 0) {
+                return this;
+            }
+
+            int[] shifted = new int[statements.length];
+            for (int i = 0; i < statements.length; i++) {
+                shifted[i] = statements[i] + by;
+            }
+            return new Segment(locations, shifted);
+        }
+
+        // The locations in blocks that the other segment also has, found by merging the two block lists
+        Segment retainBlocks(Segment other) {
+            long[] retained = new long[locations.length];
+            int[] retainedStatements = new int[locations.length];
+            int size = 0;
+
+            int i = 0;
+            int j = 0;
+            while (i < blocks.length && j < other.blocks.length) {
+                if (blocks[i] == other.blocks[j]) {
+                    int length = offsets[i + 1] - offsets[i];
+                    System.arraycopy(locations, offsets[i], retained, size, length);
+                    System.arraycopy(statements, offsets[i], retainedStatements, size, length);
+                    size += length;
+                    i++;
+                    j++;
+                } else if (blocks[i] < other.blocks[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+
+            return new Segment(Arrays.copyOf(retained, size), Arrays.copyOf(retainedStatements, size));
+        }
+
+        // Both segments' locations, where in each block those of the first come before those of the second
+        static Segment concat(Segment first, Segment second) {
+            long[] locations = new long[first.size() + second.size()];
+            int[] statements = new int[locations.length];
+            int size = 0;
+
+            int i = 0;
+            int j = 0;
+            while (i < first.blocks.length || j < second.blocks.length) {
+                int block;
+                if (j == second.blocks.length || (i < first.blocks.length && first.blocks[i] <= second.blocks[j])) {
+                    block = first.blocks[i];
+                } else {
+                    block = second.blocks[j];
+                }
+
+                if (i < first.blocks.length && first.blocks[i] == block) {
+                    size = first.copyBlock(i++, locations, statements, size);
+                }
+                if (j < second.blocks.length && second.blocks[j] == block) {
+                    size = second.copyBlock(j++, locations, statements, size);
+                }
+            }
+
+            return new Segment(locations, statements);
+        }
+
+        private int copyBlock(int index, long[] toLocations, int[] toStatements, int at) {
+            int length = offsets[index + 1] - offsets[index];
+            System.arraycopy(locations, offsets[index], toLocations, at, length);
+            System.arraycopy(statements, offsets[index], toStatements, at, length);
+            return at + length;
+        }
+
+        static int[] union(int[] first, int[] second) {
+            int[] merged = new int[first.length + second.length];
+            int size = 0;
+
+            int i = 0;
+            int j = 0;
+            while (i < first.length || j < second.length) {
+                int next;
+                if (j == second.length || (i < first.length && first[i] <= second[j])) {
+                    next = first[i++];
+                } else {
+                    next = second[j++];
+                }
+
+                if (size == 0 || merged[size - 1] != next) {
+                    merged[size++] = next;
+                }
+            }
+
+            return Arrays.copyOf(merged, size);
+        }
+
+        private static int getBlock(long location) {
+            return (int) (location >>> BLOCK_SHIFT);
+        }
+    }
+}
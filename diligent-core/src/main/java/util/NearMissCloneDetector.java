@@ -0,0 +1,179 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Finds pairs of code blocks whose token shingles overlap by at least the given Jaccard similarity. Each block gets
+// a MinHash signature, the signatures are split into bands and only blocks sharing a band are compared exactly.
+public class NearMissCloneDetector {
+
+    private static final int SHINGLE_LENGTH = 4;
+    private static final int SIGNATURE_LENGTH = 128;
+    // Chance that a pair exactly at the threshold shares at least one band
+    private static final double MIN_RECALL = 0.95;
+
+    private static final long[] SEEDS = getSeeds();
+
+    private final double threshold;
+    private final long[][] shingles;
+    private final List<Set<Integer>> clones;
+
+    public NearMissCloneDetector(int[][] blockTokens, double threshold) {
+        this.threshold = threshold;
+
+        shingles = new long[blockTokens.length][];
+        clones = new ArrayList<>(blockTokens.length);
+        for (int i = 0; i < blockTokens.length; i++) {
+            shingles[i] = getShingles(blockTokens[i]);
+            clones.add(new HashSet<>());
+        }
+
+        int rows = getRowsPerBand(threshold);
+        int bands = SIGNATURE_LENGTH / rows;
+
+        long[][] signatures = new long[blockTokens.length][];
+        for (int i = 0; i < blockTokens.length; i++) {
+            signatures[i] = getSignature(shingles[i]);
+        }
+
+        // Pairs already compared exactly through an earlier band, whether or not they turned out to be clones
+        Set<Long> checkedPairs = new HashSet<>();
+        for (int band = 0; band < bands; band++) {
+            Map<Long, List<Integer>> buckets = new HashMap<>();
+            for (int i = 0; i < signatures.length; i++) {
+                if (signatures[i] != null) {
+                    buckets.computeIfAbsent(hashBand(signatures[i], band * rows, rows), hash -> new ArrayList<>()).add(i);
+                }
+            }
+
+            for (List<Integer> bucket : buckets.values()) {
+                verifyCandidates(bucket, checkedPairs);
+            }
+        }
+    }
+
+    public boolean isClone(int block, int otherBlock) {
+        return clones.get(block).contains(otherBlock);
+    }
+
+    private void verifyCandidates(List<Integer> bucket, Set<Long> checkedPairs) {
+        for (int i = 0; i < bucket.size(); i++) {
+            int block = bucket.get(i);
+            for (int j = i + 1; j < bucket.size(); j++) {
+                int otherBlock = bucket.get(j);
+                // Blocks are added to buckets in order, so block is always the lower of the two
+                if (!checkedPairs.add(((long) block << 32) | otherBlock)) {
+                    continue;
+                }
+
+                if (getSimilarity(shingles[block], shingles[otherBlock]) >= threshold) {
+                    clones.get(block).add(otherBlock);
+                    clones.get(otherBlock).add(block);
+                }
+            }
+        }
+    }
+
+    // Pick the narrowest bands that still propose pairs at the threshold often enough, so fewer pairs are verified
+    private static int getRowsPerBand(double threshold) {
+        for (int rows = SIGNATURE_LENGTH; rows > 1; rows--) {
+            int bands = SIGNATURE_LENGTH / rows;
+            double recall = 1 - Math.pow(1 - Math.pow(threshold, rows), bands);
+            if (recall >= MIN_RECALL) {
+                return rows;
+            }
+        }
+
+        return 1;
+    }
+
+    // Sorted and without duplicates, so that the exact similarity can be found by merging
+    private static long[] getShingles(int[] tokens) {
+        if (tokens.length == 0) {
+            return new long[0];
+        }
+
+        int shingleLength = Math.min(SHINGLE_LENGTH, tokens.length);
+        long[] shingles = new long[tokens.length - shingleLength + 1];
+        for (int start = 0; start < shingles.length; start++) {
+            long shingle = 1125899906842597L;
+            for (int i = start; i < start + shingleLength; i++) {
+                shingle = 31 * shingle + tokens[i];
+            }
+            shingles[start] = shingle;
+        }
+
+        return Arrays.stream(shingles).sorted().distinct().toArray();
+    }
+
+    private static long[] getSignature(long[] shingles) {
+        if (shingles.length == 0) {
+            return null;
+        }
+
+        long[] signature = new long[SIGNATURE_LENGTH];
+        Arrays.fill(signature, Long.MAX_VALUE);
+
+        for (long shingle : shingles) {
+            for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+                long hash = mix(shingle ^ SEEDS[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+
+        return signature;
+    }
+
+    private static double getSimilarity(long[] shingles, long[] otherShingles) {
+        int i = 0;
+        int j = 0;
+        int shared = 0;
+        while (i < shingles.length && j < otherShingles.length) {
+            if (shingles[i] == otherShingles[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (shingles[i] < otherShingles[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+
+        return (double) shared / (shingles.length + otherShingles.length - shared);
+    }
+
+    private static long hashBand(long[] signature, int from, int rows) {
+        long hash = from;
+        for (int i = from; i < from + rows; i++) {
+            hash = 31 * hash + signature[i];
+        }
+
+        return hash;
+    }
+
+    private static long[] getSeeds() {
+        long[] seeds = new long[SIGNATURE_LENGTH];
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            seeds[i] = mix(seed);
+        }
+
+        return seeds;
+    }
+
+    // SplitMix64 finaliser
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,90 @@
+package util;
+
+import org.json.simple.JSONObject;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Latencies and counters recorded for one project, named '<inspection or holder>.<operation>'
+public class ProjectMetrics {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String projectName;
+    private final Map<String, LatencyHistogram> latencies;
+    private final Map<String, AtomicLong> counters;
+
+    public ProjectMetrics(String projectName) {
+        this.projectName = projectName;
+
+        latencies = new ConcurrentHashMap<>();
+        counters = new ConcurrentHashMap<>();
+    }
+
+    public LatencyHistogram getLatency(String name) {
+        return latencies.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    public void recordLatency(String name, long nanos) {
+        getLatency(name).record(nanos);
+    }
+
+    public void increment(String name) {
+        add(name, 1);
+    }
+
+    public void add(String name, long amount) {
+        counters.computeIfAbsent(name, n -> new AtomicLong()).addAndGet(amount);
+    }
+
+    public Map<String, LatencyHistogram> getLatencies() {
+        return new TreeMap<>(latencies);
+    }
+
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> counter : counters.entrySet()) {
+            values.put(counter.getKey(), counter.getValue().get());
+        }
+
+        return values;
+    }
+
+    public void clear() {
+        for (LatencyHistogram latency : latencies.values()) {
+            latency.clear();
+        }
+        counters.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    public JSONObject toJSONObject() {
+        JSONObject latencyObjects = new JSONObject();
+        for (Map.Entry<String, LatencyHistogram> latency : getLatencies().entrySet()) {
+            LatencyHistogram histogram = latency.getValue();
+
+            JSONObject jo = new JSONObject();
+            jo.put("count", histogram.getCount());
+            jo.put("totalMs", toMillis(histogram.getTotalNanos()));
+            jo.put("p50Ms", toMillis(histogram.getPercentile(0.5)));
+            jo.put("p99Ms", toMillis(histogram.getPercentile(0.99)));
+            jo.put("maxMs", toMillis(histogram.getMaxNanos()));
+            latencyObjects.put(latency.getKey(), jo);
+        }
+
+        JSONObject counterObjects = new JSONObject();
+        counterObjects.putAll(getCounters());
+
+        JSONObject jo = new JSONObject();
+        jo.put("project", projectName);
+        jo.put("latencies", latencyObjects);
+        jo.put("counters", counterObjects);
+        return jo;
+    }
+
+    public static double toMillis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+}
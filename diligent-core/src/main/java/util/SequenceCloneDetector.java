@@ -0,0 +1,121 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Finds code blocks whose whole statement sequence appears unchanged inside another block, by rolling a window
+// of each block's length over every block (Rabin-Karp) and matching the window hashes against the block hashes.
+// Only whole blocks are looked for: whether a shorter shared run is a clone also depends on the similar (not equal)
+// statements around it, which is left to the clone locations of each statement.
+public class SequenceCloneDetector {
+
+    private static final long BASE = 1000003L;
+
+    private final long[][] sequences;
+    private final int[][] weights;
+
+    // For each block, the blocks and offsets at which its whole sequence occurs
+    private final List<Map<Integer, Integer>> occurrences;
+
+    public SequenceCloneDetector(long[][] sequences, int[][] weights) {
+        this.sequences = sequences;
+        this.weights = weights;
+
+        occurrences = new ArrayList<>(sequences.length);
+        for (int i = 0; i < sequences.length; i++) {
+            occurrences.add(new HashMap<>());
+        }
+
+        Map<Integer, List<Integer>> blocksByLength = new HashMap<>();
+        for (int i = 0; i < sequences.length; i++) {
+            if (sequences[i].length > 0) {
+                blocksByLength.computeIfAbsent(sequences[i].length, length -> new ArrayList<>()).add(i);
+            }
+        }
+
+        for (Map.Entry<Integer, List<Integer>> entry : blocksByLength.entrySet()) {
+            findOccurrences(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void findOccurrences(int length, List<Integer> blocks) {
+        Map<Long, List<Integer>> blocksByHash = new HashMap<>();
+        for (int block : blocks) {
+            blocksByHash.computeIfAbsent(hash(sequences[block], 0, length), hash -> new ArrayList<>()).add(block);
+        }
+
+        long highestPower = 1;
+        for (int i = 1; i < length; i++) {
+            highestPower *= BASE;
+        }
+
+        for (int other = 0; other < sequences.length; other++) {
+            long[] sequence = sequences[other];
+            if (sequence.length < length) {
+                continue;
+            }
+
+            long windowHash = hash(sequence, 0, length);
+            for (int start = 0; ; start++) {
+                List<Integer> matches = blocksByHash.get(windowHash);
+                if (matches != null) {
+                    for (int block : matches) {
+                        if (block != other && !occurrences.get(block).containsKey(other) && matchesAt(sequences[block], sequence, start)) {
+                            occurrences.get(block).put(other, start);
+                        }
+                    }
+                }
+
+                if (start + length >= sequence.length) {
+                    break;
+                }
+
+                windowHash = (windowHash - mix(sequence[start]) * highestPower) * BASE + mix(sequence[start + length]);
+            }
+        }
+    }
+
+    public Pair<Pair<Integer, Integer>, Pair<Integer, Integer>> getBlockClone(int block, int otherBlock, boolean innerBlock) {
+        Integer start = occurrences.get(block).get(otherBlock);
+        if (start == null) {
+            return null;
+        }
+
+        int end = start + sequences[block].length;
+        int weight = 0;
+        for (int i = start; i < end; i++) {
+            weight += weights[otherBlock][i];
+        }
+
+        if ((innerBlock && weight > 0) || weight > 1) {
+            return new Pair<>(new Pair<>(0, sequences[block].length), new Pair<>(start, end));
+        }
+
+        return null;
+    }
+
+    private static boolean matchesAt(long[] sequence, long[] other, int start) {
+        for (int i = 0; i < sequence.length; i++) {
+            if (sequence[i] != other[start + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static long hash(long[] sequence, int from, int to) {
+        long hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = hash * BASE + mix(sequence[i]);
+        }
+
+        return hash;
+    }
+
+    private static long mix(long fingerprint) {
+        return fingerprint ^ (fingerprint >>> 29);
+    }
+}
@@ -0,0 +1,154 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+// The clones among a set of statements that changes between passes. Statements are added and removed as their code
+// blocks change, and only statements added since the last comparison are compared, against the statements of the
+// same kind sharing a candidate key with them.
+public class StatementCloneGraph {
+
+    // What the caller knows about a pair of statements beyond their tokens
+    public interface Comparison {
+
+        boolean haveSimilarBodies(int statement, int otherStatement);
+    }
+
+    private final Map<Integer, Node> nodes = new HashMap<>();
+    private final Map<StatementKind, Map<Long, Set<Integer>>> buckets = new EnumMap<>(StatementKind.class);
+    // Statements without candidate keys, which are compared with every statement of their kind
+    private final Map<StatementKind, Set<Integer>> wildcards = new EnumMap<>(StatementKind.class);
+    private final Map<StatementKind, Set<Integer>> statementsByKind = new EnumMap<>(StatementKind.class);
+    private final List<Integer> added = new ArrayList<>();
+
+    private int nextId;
+
+    // Returns the id of the new statement. A statement with no kind or tokens is never compared, so has no clones.
+    public int add(StatementKind kind, int[] tokens) {
+        int statement = nextId++;
+        nodes.put(statement, new Node(kind, tokens));
+
+        if (kind != null && tokens != null) {
+            added.add(statement);
+        }
+
+        return statement;
+    }
+
+    public void remove(int statement) {
+        Node node = nodes.remove(statement);
+        if (node == null) {
+            return;
+        }
+
+        if (node.isIndexed) {
+            statementsByKind.get(node.kind).remove(statement);
+            if (node.keys == null) {
+                wildcards.get(node.kind).remove(statement);
+            } else {
+                Map<Long, Set<Integer>> kindBuckets = buckets.get(node.kind);
+                for (long key : node.keys) {
+                    Set<Integer> bucket = kindBuckets.get(key);
+                    // Already removed through a repeated key
+                    if (bucket != null && bucket.remove(statement) && bucket.isEmpty()) {
+                        kindBuckets.remove(key);
+                    }
+                }
+            }
+        }
+
+        for (int clone : node.clones) {
+            nodes.get(clone).clones.remove(statement);
+        }
+    }
+
+    // Each pair is compared both ways round, as some of the clone rules only match one way
+    public void compareAdded(Comparison comparison) {
+        for (int statement : added) {
+            Node node = nodes.get(statement);
+            // Removed again before it was compared
+            if (node == null) {
+                continue;
+            }
+
+            for (int candidate : getCandidates(node)) {
+                Node other = nodes.get(candidate);
+                if (isClone(node, other, () -> comparison.haveSimilarBodies(statement, candidate))
+                        || isClone(other, node, () -> comparison.haveSimilarBodies(candidate, statement))) {
+                    node.clones.add(candidate);
+                    other.clones.add(statement);
+                }
+            }
+
+            addToIndex(statement, node);
+        }
+
+        added.clear();
+    }
+
+    public Set<Integer> getClones(int statement) {
+        return Collections.unmodifiableSet(nodes.get(statement).clones);
+    }
+
+    private Set<Integer> getCandidates(Node node) {
+        if (node.keys == null) {
+            return statementsByKind.getOrDefault(node.kind, Collections.emptySet());
+        }
+
+        Set<Integer> candidates = new HashSet<>(wildcards.getOrDefault(node.kind, Collections.emptySet()));
+        Map<Long, Set<Integer>> kindBuckets = buckets.get(node.kind);
+        if (kindBuckets != null) {
+            for (long key : node.keys) {
+                Set<Integer> bucket = kindBuckets.get(key);
+                if (bucket != null) {
+                    candidates.addAll(bucket);
+                }
+            }
+        }
+
+        return candidates;
+    }
+
+    private void addToIndex(int statement, Node node) {
+        node.isIndexed = true;
+        statementsByKind.computeIfAbsent(node.kind, kind -> new HashSet<>()).add(statement);
+
+        if (node.keys == null) {
+            wildcards.computeIfAbsent(node.kind, kind -> new HashSet<>()).add(statement);
+            return;
+        }
+
+        Map<Long, Set<Integer>> kindBuckets = buckets.computeIfAbsent(node.kind, kind -> new HashMap<>());
+        for (long key : node.keys) {
+            kindBuckets.computeIfAbsent(key, k -> new HashSet<>()).add(statement);
+        }
+    }
+
+    private static boolean isClone(Node node, Node other, BooleanSupplier similarBodies) {
+        return Arrays.equals(node.tokens, other.tokens) || CloneRules.isClone(node.kind, node.tokens, other.tokens, similarBodies);
+    }
+
+    private static class Node {
+        private final StatementKind kind;
+        private final int[] tokens;
+        // Null if the statement could not be fingerprinted, so has to be compared with every statement of its kind
+        private final long[] keys;
+        private final Set<Integer> clones = new HashSet<>();
+
+        private boolean isIndexed;
+
+        Node(StatementKind kind, int[] tokens) {
+            this.kind = kind;
+            this.tokens = tokens;
+            keys = kind == null || tokens == null ? null : CloneRules.getCandidateKeys(kind, tokens);
+        }
+    }
+}
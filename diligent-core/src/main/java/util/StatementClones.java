@@ -0,0 +1,44 @@
+package util;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Finds the clones of every statement among statements of the same kind
+public class StatementClones {
+
+    // What the caller knows about a pair of statements beyond their tokens. Statements are given by their position in
+    // the list being compared.
+    public interface Comparison {
+
+        boolean haveSimilarBodies(int index, int otherIndex);
+    }
+
+    public static void compareStatements(StatementKind kind, List<CloneExpression> expressions, Comparison comparison) {
+        // Only statements sharing a candidate key can match any of the clone rules
+        CloneCandidateIndex candidateIndex = new CloneCandidateIndex(expressions.size());
+        for (int i = 0; i < expressions.size(); i++) {
+            candidateIndex.add(i, CloneRules.getCandidateKeys(kind, expressions.get(i).getTokens()));
+        }
+
+        for (int i = 0; i < expressions.size(); i++) {
+            int index = i;
+            CloneExpression expr = expressions.get(i);
+            int[] tokens = expr.getTokens();
+
+            for (int j : candidateIndex.getCandidates(i)) {
+                if (i == j) {
+                    continue;
+                }
+
+                CloneExpression otherExpr = expressions.get(j);
+                int[] otherTokens = otherExpr.getTokens();
+
+                if (Arrays.equals(tokens, otherTokens)
+                        || CloneRules.isClone(kind, tokens, otherTokens, () -> comparison.haveSimilarBodies(index, j))) {
+                    expr.addClone(otherExpr.getLocation());
+                    otherExpr.addClone(expr.getLocation());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package util;
+
+// The kinds of statement that clones are looked for in, each with its own rules in CloneRules
+public enum StatementKind {
+    DECLARATION,
+    ASSIGNMENT,
+    IF,
+    METHOD_CALL,
+    RETURN,
+    FOR,
+    FOREACH,
+    WHILE,
+    DO_WHILE,
+    SWITCH,
+    ASSERT,
+    TRY,
+    THROW,
+    PREFIX,
+    POSTFIX
+}
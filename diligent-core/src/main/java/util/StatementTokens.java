@@ -0,0 +1,49 @@
+package util;
+
+import java.util.Arrays;
+
+public class StatementTokens {
+
+    private final int[] tokens;
+    private final int hash;
+    private final long fingerprint;
+    private final int statementCount;
+
+    public StatementTokens(int[] tokens, int statementCount) {
+        this.tokens = tokens;
+        this.hash = Arrays.hashCode(tokens);
+        this.fingerprint = getFingerprint(tokens);
+        this.statementCount = statementCount;
+    }
+
+    // Null if the statement cannot be tokenised
+    public int[] getTokens() {
+        return tokens;
+    }
+
+    public int getHash() {
+        return hash;
+    }
+
+    // Wider than the hash so that it can identify the statement across passes
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    private static long getFingerprint(int[] tokens) {
+        if (tokens == null) {
+            return 0;
+        }
+
+        long fingerprint = 1125899906842597L;
+        for (int token : tokens) {
+            fingerprint = 31 * fingerprint + token;
+        }
+
+        return 31 * fingerprint + tokens.length;
+    }
+}
@@ -0,0 +1,60 @@
+package util;
+
+import java.util.Arrays;
+
+public class TokenBuffer {
+
+    private int[] tokens;
+    private int size;
+
+    public TokenBuffer() {
+        tokens = new int[256];
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int index) {
+        return tokens[index];
+    }
+
+    public void add(int token) {
+        if (size == tokens.length) {
+            tokens = Arrays.copyOf(tokens, size * 2);
+        }
+
+        tokens[size++] = token;
+    }
+
+    public void add(String token) {
+        add(TokenDictionary.getId(token == null ? "" : token));
+    }
+
+    public int indexOf(int token, int from) {
+        for (int i = from; i < size; i++) {
+            if (tokens[i] == token) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    public void replace(int from, int toFind, int replacement) {
+        for (int i = from; i < size; i++) {
+            if (tokens[i] == toFind) {
+                tokens[i] = replacement;
+            }
+        }
+    }
+
+    public int[] toArray(int from) {
+        return Arrays.copyOfRange(tokens, from, size);
+    }
+
+    public void truncate(int newSize) {
+        size = newSize;
+    }
+}
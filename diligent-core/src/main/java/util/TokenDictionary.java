@@ -0,0 +1,137 @@
+package util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interns tokens as int ids. Identifiers and literals are only held until MAX_TOKENS of them have been interned, and
+// then a new generation is started, as every name typed (and every submission graded) adds more. Ids are never
+// reused, so tokens from an older generation are never equal to newer ones, and anything caching tokens should be
+// recomputed when getGeneration() changes. Keywords, which the tokeniser and clone rules refer to by constant,
+// keep their ids for good.
+public class TokenDictionary {
+
+    private static final String CONDITION_VAR_PREFIX = "CONDVAR";
+    private static final int MAX_TOKENS = 1 << 18;
+
+    private static final Map<String, Integer> keywordIds = new ConcurrentHashMap<>();
+    private static final Map<Integer, String> keywords = new ConcurrentHashMap<>();
+
+    private static volatile Generation generation = new Generation(0, 0);
+    // Kept so that ids handed out just before a new generation started can still be resolved
+    private static volatile Generation previousGeneration = generation;
+    private static int nextId = 0;
+
+    public static int getId(String token) {
+        Integer id = keywordIds.get(token);
+        if (id != null) {
+            return id;
+        }
+
+        id = generation.ids.get(token);
+        if (id != null) {
+            return id;
+        }
+
+        return intern(token);
+    }
+
+    // For ids held as constants, which must stay valid across generations
+    public static synchronized int getKeywordId(String keyword) {
+        Integer id = keywordIds.get(keyword);
+        if (id != null) {
+            return id;
+        }
+
+        // Any tokens already interned with this keyword keep matching it
+        id = intern(keyword);
+
+        keywords.put(id, keyword);
+        keywordIds.put(keyword, id);
+        return id;
+    }
+
+    private static synchronized int intern(String token) {
+        Integer id = keywordIds.get(token);
+        if (id == null) {
+            id = generation.ids.get(token);
+        }
+        if (id != null) {
+            return id;
+        }
+
+        Generation currGeneration = generation;
+        if (currGeneration.size == MAX_TOKENS) {
+            previousGeneration = currGeneration;
+            currGeneration = new Generation(currGeneration.number + 1, nextId);
+            generation = currGeneration;
+        }
+
+        return currGeneration.add(token, nextId++);
+    }
+
+    public static int getGeneration() {
+        return generation.number;
+    }
+
+    // Null if the id is from a generation that has been dropped
+    public static String getToken(int id) {
+        String token = generation.getToken(id);
+        if (token == null) {
+            token = previousGeneration.getToken(id);
+        }
+        if (token == null) {
+            token = keywords.get(id);
+        }
+
+        return token;
+    }
+
+    public static boolean isConditionVar(int id) {
+        String token = getToken(id);
+        return token != null && token.startsWith(CONDITION_VAR_PREFIX);
+    }
+
+    public static String[] getTokens(int[] ids) {
+        String[] tokens = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            tokens[i] = getToken(ids[i]);
+        }
+
+        return tokens;
+    }
+
+    private static class Generation {
+        private final int number;
+        // The id of the first token of this generation
+        private final int base;
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private volatile String[] tokens = new String[256];
+        private int size = 0;
+
+        Generation(int number, int base) {
+            this.number = number;
+            this.base = base;
+        }
+
+        // Only called while holding the dictionary's lock
+        int add(String token, int id) {
+            String[] currTokens = tokens;
+            if (size == currTokens.length) {
+                currTokens = Arrays.copyOf(currTokens, size * 2);
+            }
+            currTokens[size++] = token;
+            // Publish the token before its id so that any reader holding the id can resolve it
+            tokens = currTokens;
+            ids.put(token, id);
+
+            return id;
+        }
+
+        String getToken(int id) {
+            String[] currTokens = tokens;
+            int index = id - base;
+            return index >= 0 && index < currTokens.length ? currTokens[index] : null;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BlockClonesTest {
+
+    // void a() { x = 1; y = 2; } against void b() { x = 1; y = 2; }
+    @Test
+    public void findsStatementsClonedInOrder() {
+        LocationSet intersection = combine(clones(location(1, 0)), clones(location(1, 1)));
+
+        Pair<Pair<Integer, Integer>, Pair<Integer, Integer>> sequence = BlockClones.containsBlockClone(intersection, 1, false);
+        assertEquals(0, (int) sequence.getFirst().getFirst());
+        assertEquals(2, (int) sequence.getFirst().getSecond());
+        assertEquals(0, (int) sequence.getSecond().getFirst());
+        assertEquals(2, (int) sequence.getSecond().getSecond());
+    }
+
+    // void a() { x = 1; y = 2; } against void b() { y = 2; x = 1; }
+    @Test
+    public void ignoresStatementsClonedInReverseOrder() {
+        LocationSet intersection = combine(clones(location(1, 1)), clones(location(1, 0)));
+
+        assertNull(BlockClones.containsBlockClone(intersection, 1, false));
+    }
+
+    // Both statements of void a() { x = 1; x = 1; } are clones of each line of void b() { x = 1; x = 1; }, but a
+    // single statement is never a sequence however many consecutive lines it is a clone of
+    @Test
+    public void onlyFollowsOneCloneOfEachStatement() {
+        LocationSet single = clones(location(1, 0), location(1, 1));
+        assertNull(BlockClones.containsBlockClone(single, 1, false));
+
+        LocationSet intersection = combine(single, clones(location(1, 0), location(1, 1)));
+        Pair<Pair<Integer, Integer>, Pair<Integer, Integer>> sequence = BlockClones.containsBlockClone(intersection, 1, false);
+        assertEquals(0, (int) sequence.getSecond().getFirst());
+        assertEquals(2, (int) sequence.getSecond().getSecond());
+    }
+
+    // A statement with no clones between two that are clones of consecutive lines breaks the sequence
+    @Test
+    public void doesNotJoinAcrossStatementsWithNoClones() {
+        LocationSet intersection = combine(clones(location(1, 0)), LocationSet.NULL_CASE, clones(location(1, 1)));
+
+        assertNull(BlockClones.containsBlockClone(intersection, 1, false));
+    }
+
+    private static LocationSet combine(LocationSet... statementClones) {
+        LocationSet intersection = statementClones[0];
+        for (int i = 1; i < statementClones.length; i++) {
+            intersection = BlockClones.getCombinedClones(intersection, statementClones[i]);
+        }
+        return intersection;
+    }
+
+    private static LocationSet clones(Location... locations) {
+        LocationSet.Builder builder = new LocationSet.Builder();
+        for (Location location : locations) {
+            builder.add(location);
+        }
+        return builder.build();
+    }
+
+    private static Location location(int codeBlock, int line) {
+        Location location = new Location(codeBlock, line);
+        location.setStatementCount(1);
+        return location;
+    }
+}
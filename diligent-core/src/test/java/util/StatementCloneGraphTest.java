@@ -0,0 +1,68 @@
+package util;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StatementCloneGraphTest {
+
+    private static final StatementCloneGraph.Comparison NO_SIMILAR_BODIES = (statement, otherStatement) -> false;
+
+    @Test
+    public void findsClonesAddedInTheSamePass() {
+        StatementCloneGraph graph = new StatementCloneGraph();
+        int statement = graph.add(StatementKind.RETURN, new int[]{1, 2});
+        int clone = graph.add(StatementKind.RETURN, new int[]{1, 2});
+        int other = graph.add(StatementKind.RETURN, new int[]{3, 4});
+        graph.compareAdded(NO_SIMILAR_BODIES);
+
+        assertEquals(Collections.singleton(clone), graph.getClones(statement));
+        assertEquals(Collections.singleton(statement), graph.getClones(clone));
+        assertTrue(graph.getClones(other).isEmpty());
+    }
+
+    // Statements kept from an earlier pass are compared with those added since
+    @Test
+    public void comparesAddedStatementsWithKeptOnes() {
+        StatementCloneGraph graph = new StatementCloneGraph();
+        int statement = graph.add(StatementKind.RETURN, new int[]{1, 2});
+        graph.compareAdded(NO_SIMILAR_BODIES);
+
+        int clone = graph.add(StatementKind.RETURN, new int[]{1, 2});
+        graph.compareAdded(NO_SIMILAR_BODIES);
+
+        assertEquals(Collections.singleton(clone), graph.getClones(statement));
+    }
+
+    @Test
+    public void removesStatementsFromTheClonesOfOthers() {
+        StatementCloneGraph graph = new StatementCloneGraph();
+        int statement = graph.add(StatementKind.RETURN, new int[]{1, 2});
+        int clone = graph.add(StatementKind.RETURN, new int[]{1, 2});
+        graph.compareAdded(NO_SIMILAR_BODIES);
+
+        graph.remove(clone);
+        assertTrue(graph.getClones(statement).isEmpty());
+
+        // Nor is it a candidate any more
+        int newClone = graph.add(StatementKind.RETURN, new int[]{1, 2});
+        graph.compareAdded(NO_SIMILAR_BODIES);
+        assertEquals(Collections.singleton(newClone), graph.getClones(statement));
+    }
+
+    // A declaration without a name cannot be fingerprinted, so is compared with every declaration
+    @Test
+    public void comparesStatementsWithoutKeysWithEveryStatementOfTheirKind() {
+        StatementCloneGraph graph = new StatementCloneGraph();
+        int statement = graph.add(StatementKind.DECLARATION, new int[]{1, 2});
+        int clone = graph.add(StatementKind.DECLARATION, new int[]{1, 2});
+        int otherKind = graph.add(StatementKind.RETURN, new int[]{1, 2});
+        graph.compareAdded(NO_SIMILAR_BODIES);
+
+        assertEquals(Collections.singleton(clone), graph.getClones(statement));
+        assertTrue(graph.getClones(otherKind).isEmpty());
+    }
+}
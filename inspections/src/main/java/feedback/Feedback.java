@@ -1,15 +1,22 @@
 package feedback;
 
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
 import util.FeedbackType;
 import util.InspectionPriority;
 import util.ReportLevel;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
 import java.util.List;
 
 public class Feedback {
 
+    private static final DateTimeFormatter LAST_UPDATED_FORMAT = DateTimeFormatter.ofPattern("HH:mm dd/MM/yy");
+
     private final int lineNumber;
     private final String filename;
     private final String className;
@@ -17,6 +24,8 @@ public class Feedback {
     private final String id;
     private final InspectionPriority priority;
     private final FeedbackType feedbackType;
+    // The lines of the other copies, for code found duplicated in several places
+    private final List<Integer> cloneLines;
 
     private boolean isFixed;
     private boolean hasBeenShown;
@@ -25,7 +34,8 @@ public class Feedback {
     private int reportCount;
     private int copyCount;
 
-    public Feedback(int lineNumber, String filename, String id, InspectionPriority priority, String className, String methodName, FeedbackType feedbackType) {
+    public Feedback(int lineNumber, String filename, String id, InspectionPriority priority, String className, String methodName,
+                    FeedbackType feedbackType, List<Integer> cloneLines) {
         this.lineNumber = lineNumber;
         this.filename = filename;
         this.className = className;
@@ -33,6 +43,7 @@ public class Feedback {
         this.id = id;
         this.priority = priority;
         this.feedbackType = feedbackType;
+        this.cloneLines = cloneLines;
 
         isFixed = false;
         hasBeenShown = false;
@@ -42,6 +53,10 @@ public class Feedback {
         copyCount = 1;
     }
 
+    public Feedback(int lineNumber, String filename, String id, InspectionPriority priority, String className, String methodName, FeedbackType feedbackType) {
+        this(lineNumber, filename, id, priority, className, methodName, feedbackType, Collections.emptyList());
+    }
+
     public Feedback(int lineNumber, String filename, String id, InspectionPriority priority, String className, FeedbackType feedbackType) {
         this(lineNumber, filename, id, priority, className, null, feedbackType);
     }
@@ -61,42 +76,63 @@ public class Feedback {
         return sb.toString();
     }
 
-    public String toHTMLString(List<InspectionPriority> currentPriorities) {
-        if (currentPriorities.contains(priority) || hasBeenShown) {
-            hasBeenShown = true;
-            return "<div class=\"feedbackcontainer\" id=\"" + id + "\">\n" +
-                    "   <div style=\"border: " + getColour() + " solid 2px;\" id=\"feedback\">\n" +
-                    "       <div style=\"display: flex; align-items: center;\">\n" +
-                    getCopyCount() +
-                    "           <div style=\"flex-grow: 1;\">\n"  +
-                    "               <p style=\"font-weight: 500;\"> " + getTitleMessage() + " </p>\n" +
-                    "           </div>\n" +
-                    getPriorityIcons() +
-                    "       </div>\n"+
-                    getLevelMessages() +
-                    "       <p style=\"font-style: italic; text-align: right;\"> Last Updated: " + getLastUpdatedFormatted() + " </p>\n" +
-                    "   </div>\n" +
-                    getIgnoreAdviceButton() +
-                    "</div>";
+    // A copy to render from, which later changes to this feedback do not affect
+    public Feedback copy() {
+        Feedback copy = new Feedback(lineNumber, filename, id, priority, className, methodName, feedbackType, cloneLines);
+        copy.isFixed = isFixed;
+        copy.hasBeenShown = hasBeenShown;
+        copy.lastUpdated = lastUpdated;
+        copy.reportLevel = reportLevel;
+        copy.reportCount = reportCount;
+        copy.copyCount = copyCount;
+        return copy;
+    }
+
+    // Returns whether the feedback goes in a report showing these priorities, where it stays once it has been shown
+    public boolean show(List<InspectionPriority> currentPriorities) {
+        if (!currentPriorities.contains(priority) && !hasBeenShown) {
+            return false;
         }
 
-        return "";
+        hasBeenShown = true;
+        return true;
     }
 
-    private String getCopyCount() {
-        if (isFixed || copyCount < 2) {
-            return "";
-        }
+    public void writeHTML(Writer out) throws IOException {
+        out.write("<div class=\"feedbackcontainer\" id=\"");
+        out.write(id);
+        out.write("\">\n" +
+                "   <div style=\"border: ");
+        out.write(getColour());
+        out.write(" solid 2px;\" id=\"feedback\">\n" +
+                "       <div style=\"display: flex; align-items: center;\">\n");
+        writeCopyCount(out);
+        out.write("           <div style=\"flex-grow: 1;\">\n" +
+                "               <p style=\"font-weight: 500;\"> ");
+        out.write(getTitleMessage());
+        out.write(" </p>\n" +
+                "           </div>\n");
+        writePriorityIcons(out);
+        out.write("       </div>\n");
+        writeLevelMessages(out);
+        out.write("       <p style=\"font-style: italic; text-align: right;\"> Last Updated: ");
+        LAST_UPDATED_FORMAT.formatTo(lastUpdated, out);
+        out.write(" </p>\n" +
+                "   </div>\n");
+        writeIgnoreAdviceButton(out);
+        out.write("</div>");
+    }
 
-        if (copyCount < 10) {
-            return "             <div style=\"margin-right: 2%;\">\n" +
-                    "                <i class=\"material-icons\">filter_" + copyCount + "</i>\n" +
-                    "            </div>";
+    private void writeCopyCount(Writer out) throws IOException {
+        if (isFixed || copyCount < 2) {
+            return;
         }
 
-        return "             <div style=\"margin-right: 2%;\">\n" +
-                "                <i class=\"material-icons\">filter_9_plus</i>\n" +
-                "            </div>";
+        out.write("             <div style=\"margin-right: 2%;\">\n" +
+                "                <i class=\"material-icons\">filter_");
+        out.write(copyCount < 10 ? String.valueOf(copyCount) : "9_plus");
+        out.write("</i>\n" +
+                "            </div>");
     }
 
     private String getTitleMessage() {
@@ -107,62 +143,75 @@ public class Feedback {
         return feedbackType.getFixedMessage().replace("$lineNumber", String.valueOf(lineNumber));
     }
 
-    private String getLevelMessages() {
+    private void writeLevelMessages(Writer out) throws IOException {
         if (isFixed) {
-            return "";
+            return;
         }
 
-        if (reportLevel == ReportLevel.METHOD) {
-            return "<p> What about in method " + methodName + "? </p>\n";
+        if (reportLevel == ReportLevel.METHOD || (reportLevel == ReportLevel.LINE && methodName != null)) {
+            out.write("<p> What about in method ");
+            out.write(methodName);
+            out.write("? </p>\n");
         }
 
         if (reportLevel == ReportLevel.LINE) {
-            if (methodName == null) {
-                return "<p> Check line " + lineNumber + ". </p>\n";
+            out.write(methodName == null ? "<p> Check line" : " <p> Check line");
+            out.write(cloneLines.isEmpty() ? " " : "s ");
+            out.write(String.valueOf(lineNumber));
+            for (int i = 0; i < cloneLines.size(); i++) {
+                out.write(i == cloneLines.size() - 1 ? " and " : ", ");
+                out.write(String.valueOf(cloneLines.get(i)));
             }
-
-            return "<p> What about in method " + methodName + "? </p>\n <p> Check line " + lineNumber + ". </p>\n";
+            out.write(". </p>\n");
         }
-
-        return "";
     }
 
-    private String getPriorityIcons() {
+    private void writePriorityIcons(Writer out) throws IOException {
         if (isFixed) {
-            return "";
+            return;
         }
 
-        StringBuilder sb = new StringBuilder();
-
-        sb.append("           <div style=\"display: flex;\">\n");
+        out.write("           <div style=\"display: flex;\">\n");
         for (int i = 0; i < priority.getNumberOfIcons(); i++) {
-            sb.append("             <i class=\"material-icons\">priority_high</i>");
-            sb.append("\n");
+            out.write("             <i class=\"material-icons\">priority_high</i>");
+            out.write("\n");
         }
-        sb.append("           </div>\n");
-
-        return sb.toString();
-    }
-
-    private String getLastUpdatedFormatted() {
-        DateTimeFormatter dtf = DateTimeFormatter.ofPattern("HH:mm dd/MM/yy");
-        return dtf.format(lastUpdated);
+        out.write("           </div>\n");
     }
 
     private String getColour() {
         return isFixed ? "green" : "red";
     }
 
-    private String getIgnoreAdviceButton() {
-        if (!isFixed) {
-            return "<div style=\"margin-left: 2.5%;\">\n" +
-                    "   <button class=\"ignorebutton\" id=\"" + id + "\" onclick=\"ignoreAdvice(id)\">\n" +
-                    "       Ignore Advice\n" +
-                    "   </button>\n" +
-                    "</div>\n";
+    private void writeIgnoreAdviceButton(Writer out) throws IOException {
+        if (isFixed) {
+            return;
         }
 
-        return "";
+        out.write("<div style=\"margin-left: 2.5%;\">\n" +
+                "   <button class=\"ignorebutton\" id=\"");
+        out.write(id);
+        out.write("\" onclick=\"ignoreAdvice(id)\">\n" +
+                "       Ignore Advice\n" +
+                "   </button>\n" +
+                "</div>\n");
+    }
+
+    @SuppressWarnings("unchecked")
+    public JSONObject toJSONObject() {
+        JSONObject jo = new JSONObject();
+        jo.put("line", lineNumber);
+        jo.put("type", feedbackType.name());
+        jo.put("message", feedbackType.getMessage());
+        jo.put("priority", priority.getOutputString());
+        jo.put("class", className);
+        jo.put("method", methodName);
+        if (!cloneLines.isEmpty()) {
+            JSONArray ja = new JSONArray();
+            ja.addAll(cloneLines);
+            jo.put("cloneLines", ja);
+        }
+        return jo;
     }
 
     public boolean isFixed() {
@@ -195,6 +244,7 @@ public class Feedback {
                     feedbackType == otherFeedback.getFeedbackType() &&
                     id.equals(otherFeedback.getId()) &&
                     filename.equals(otherFeedback.getFilename()) &&
+                    cloneLines.equals(otherFeedback.getCloneLines()) &&
                     isFixed == otherFeedback.isFixed();
         }
 
@@ -221,6 +271,10 @@ public class Feedback {
         return id;
     }
 
+    public List<Integer> getCloneLines() {
+        return cloneLines;
+    }
+
     public FeedbackType getFeedbackType() {
         return feedbackType;
     }
@@ -279,4 +333,8 @@ public class Feedback {
     public void incrementCopyCount() {
         copyCount++;
     }
+
+    public void resetCopyCount() {
+        copyCount = 1;
+    }
 }
@@ -1,60 +1,79 @@
 package feedback;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import util.MetricsHolder;
 import util.TipType;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class FeedbackHolder {
 
     private static final FeedbackHolder INSTANCE = new FeedbackHolder();
     private final Map<Project, ProjectFeedbackHolder> projects;
+    // Projects whose feedback is collected by the batch grader, which never have a report written
+    private final Set<Project> batchProjects;
+    private final ReportScheduler reportScheduler;
 
     private FeedbackHolder() {
         projects = new ConcurrentHashMap<>();
+        batchProjects = ConcurrentHashMap.newKeySet();
+        reportScheduler = new ReportScheduler();
     }
 
     public static FeedbackHolder getInstance() {
         return INSTANCE;
     }
 
-    public void writeToFile() {
-        for (Map.Entry<Project, ProjectFeedbackHolder> project : projects.entrySet()) {
-            ProjectFeedbackHolder projectFeedbackHolder = project.getValue();
-            projectFeedbackHolder.updateReport();
+    // Only asks for the report to be updated, the render and write are timed by the report scheduler
+    public void writeToFile(Project project) {
+        if (project.isDisposed() || batchProjects.contains(project)) {
+            return;
         }
-    }
 
-    public void addFeedback(Project project, String filename, FeedbackIdentifier feedbackId, Feedback feedback) {
         ProjectFeedbackHolder projectFeedbackHolder = projects.get(project);
-
-        if (projectFeedbackHolder == null) {
-            projectFeedbackHolder = new ProjectFeedbackHolder(project);
-            projects.put(project, projectFeedbackHolder);
+        if (projectFeedbackHolder != null) {
+            reportScheduler.requestUpdate(projectFeedbackHolder);
         }
+    }
+
+    public void addBatchProject(Project project) {
+        batchProjects.add(project);
+    }
+
+    public void removeBatchProject(Project project) {
+        batchProjects.remove(project);
+        projects.remove(project);
+    }
+
+    public ProjectFeedbackHolder getProjectFeedbackHolder(Project project) {
+        return projects.computeIfAbsent(project, p -> {
+            // Dropped when the project is closed, so that the project and its metrics are not kept
+            Disposer.register(p, () -> projects.remove(p));
+            return new ProjectFeedbackHolder(p);
+        });
+    }
+
+    public void addFeedback(Project project, String filename, FeedbackIdentifier feedbackId, Feedback feedback) {
+        ProjectFeedbackHolder projectFeedbackHolder = getProjectFeedbackHolder(project);
 
+        long start = System.nanoTime();
         projectFeedbackHolder.addFeedback(filename, feedbackId, feedback);
+        MetricsHolder.getInstance(project).getProjectMetrics().recordLatency("FeedbackHolder.addFeedback", System.nanoTime() - start);
     }
 
     public void fixFeedback(Project project, String filename, FeedbackIdentifier feedbackId) {
-        ProjectFeedbackHolder projectFeedbackHolder = projects.get(project);
-
-        if (projectFeedbackHolder == null) {
-            projectFeedbackHolder = new ProjectFeedbackHolder(project);
-            projects.put(project, projectFeedbackHolder);
-        }
+        ProjectFeedbackHolder projectFeedbackHolder = getProjectFeedbackHolder(project);
 
+        long start = System.nanoTime();
         projectFeedbackHolder.fixFeedback(filename, feedbackId);
+        MetricsHolder.getInstance(project).getProjectMetrics().recordLatency("FeedbackHolder.fixFeedback", System.nanoTime() - start);
     }
 
     public void addTip(Project project, TipType tipType, String filename) {
-        ProjectFeedbackHolder projectFeedbackHolder = projects.get(project);
-
-        if (projectFeedbackHolder == null) {
-            projectFeedbackHolder = new ProjectFeedbackHolder(project);
-            projects.put(project, projectFeedbackHolder);
-        }
+        ProjectFeedbackHolder projectFeedbackHolder = getProjectFeedbackHolder(project);
 
         projectFeedbackHolder.addTip(tipType, filename);
     }
@@ -1,78 +1,156 @@
 package feedback;
 
+import com.intellij.openapi.util.Segment;
+import com.intellij.openapi.util.TextRange;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.SmartPsiElementPointer;
 import util.PsiStmtType;
+import util.Utils;
 
 public class FeedbackIdentifier {
 
-    private final SmartPsiElementPointer<PsiElement> pointer;
-    private final SmartPsiElementPointer<PsiElement> clonePointer;
-    private final boolean hasClonePointer;
     private final String feedbackType;
-    private final PsiElement initialElement;
     private final PsiStmtType stmtType;
     private final int line;
+    private final int anchorOffset;
+    // -1 if there is no clone element
+    private final int cloneAnchorOffset;
+    private final int hashCode;
+    private final StructureKey structureKey;
+    private final LineKey lineKey;
 
-    public FeedbackIdentifier(SmartPsiElementPointer<PsiElement> pointer, SmartPsiElementPointer<PsiElement> clonePointer, String feedbackType, PsiStmtType stmtType, int line) {
-        this.pointer = pointer;
-        this.clonePointer = clonePointer;
+    // Only held until the feedback is recorded, when they are swapped for smart pointers
+    private PsiElement element;
+    private PsiElement cloneElement;
+    private SmartPsiElementPointer<PsiElement> pointer;
+    private SmartPsiElementPointer<PsiElement> clonePointer;
+
+    public FeedbackIdentifier(PsiElement element, PsiElement cloneElement, String feedbackType, PsiStmtType stmtType, int line) {
+        this.element = element;
+        this.cloneElement = cloneElement;
         this.feedbackType = feedbackType;
         this.stmtType = stmtType;
-
-        hasClonePointer = clonePointer != null;
-        initialElement = pointer.getElement();
         this.line = line;
+
+        // Identical offenders in different places are different feedback
+        anchorOffset = element.getTextRange().getStartOffset();
+        cloneAnchorOffset = cloneElement == null ? -1 : cloneElement.getTextRange().getStartOffset();
+
+        // Computed once here so that map lookups never need to go back to the PSI
+        structureKey = new StructureKey(stmtType, feedbackType, Utils.getStructuralHash(element),
+                cloneElement != null, cloneElement == null ? 0 : Utils.getStructuralHash(cloneElement));
+        hashCode = 31 * (31 * structureKey.hashCode + anchorOffset) + cloneAnchorOffset;
+        lineKey = new LineKey(stmtType, feedbackType, line);
     }
 
-    public FeedbackIdentifier(SmartPsiElementPointer<PsiElement> pointer, String feedbackType, PsiStmtType stmtType, int line) {
-        this(pointer, null, feedbackType, stmtType, line);
+    public FeedbackIdentifier(PsiElement element, String feedbackType, PsiStmtType stmtType, int line) {
+        this(element, null, feedbackType, stmtType, line);
+    }
+
+    // Smart pointers slow down every document change, so they are only created for feedback that is kept
+    public void createPointers() {
+        if (pointer != null) {
+            return;
+        }
+
+        pointer = Utils.getPointer(element);
+        if (cloneElement != null) {
+            clonePointer = Utils.getPointer(cloneElement);
+        }
+
+        element = null;
+        cloneElement = null;
     }
 
     public SmartPsiElementPointer<PsiElement> getPointer() {
         return pointer;
     }
 
-    private String getFeedbackType() {
+    public String getFeedbackType() {
         return feedbackType;
     }
 
-    public String getInitialElementText() {
-        return initialElement.getText();
-    }
-
     public PsiStmtType getStmtType() {
         return stmtType;
     }
 
     public boolean isDeleted() {
-        if (hasClonePointer) {
+        if (pointer == null) {
+            return false;
+        }
+
+        if (clonePointer != null) {
             return clonePointer.getElement() == null || pointer.getElement() == null;
         }
 
         return pointer.getElement() == null;
     }
 
+    // Whether either element was inside the range, going by the PSI ranges its pointers track. A pointer that has
+    // lost its range has to be checked anyway.
+    public boolean isAnchoredIn(TextRange range) {
+        return isIn(pointer, range) || isIn(clonePointer, range);
+    }
+
+    private static boolean isIn(SmartPsiElementPointer<PsiElement> pointer, TextRange range) {
+        if (pointer == null) {
+            return false;
+        }
+
+        Segment psiRange = pointer.getPsiRange();
+        return psiRange == null || range.contains(TextRange.create(psiRange));
+    }
+
     public int getLine() {
         return line;
     }
 
+    public int getAnchorOffset() {
+        return anchorOffset;
+    }
+
+    // Feedback whose element has moved (e.g. lines added above it) is still found by its structure, as long as its
+    // pointers have followed it to where the new feedback is reported
+    public StructureKey getStructureKey() {
+        return structureKey;
+    }
+
+    // Only the ranges the pointers track are compared, so no element has to be restored
+    public boolean isReportedOn(FeedbackIdentifier other) {
+        if (pointer == null || !isAt(pointer, other.anchorOffset)) {
+            return false;
+        }
+
+        if (clonePointer == null) {
+            return other.cloneAnchorOffset == -1;
+        }
+
+        return isAt(clonePointer, other.cloneAnchorOffset);
+    }
+
+    private static boolean isAt(SmartPsiElementPointer<PsiElement> pointer, int offset) {
+        Segment range = pointer.getRange();
+        return range != null && range.getStartOffset() == offset;
+    }
+
+    // Feedback whose element was edited (e.g. renamed to fix it) is still found by the line it was reported on
+    public LineKey getLineKey() {
+        return lineKey;
+    }
+
     @Override
     public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
         if (other instanceof FeedbackIdentifier) {
             FeedbackIdentifier otherFeedbackId = (FeedbackIdentifier) other;
 
-            PsiStmtType otherType = otherFeedbackId.getStmtType();
-
-            if (otherType == stmtType &&
-                    otherFeedbackId.getInitialElementText().equals(getInitialElementText()) &&
-                    otherFeedbackId.getFeedbackType().equals(feedbackType)) {
-                return true;
-            }
-
-            return otherType == stmtType &&
-                    otherFeedbackId.getLine() == line &&
-                    otherFeedbackId.getFeedbackType().equals(feedbackType);
+            return otherFeedbackId.hashCode == hashCode &&
+                    otherFeedbackId.anchorOffset == anchorOffset &&
+                    otherFeedbackId.cloneAnchorOffset == cloneAnchorOffset &&
+                    otherFeedbackId.structureKey.equals(structureKey);
         }
 
         return false;
@@ -80,7 +158,7 @@ public class FeedbackIdentifier {
 
     @Override
     public int hashCode() {
-        return 29 * pointer.hashCode() + 13 * feedbackType.hashCode();
+        return hashCode;
     }
 
     @Override
@@ -88,25 +166,109 @@ public class FeedbackIdentifier {
         StringBuffer sb = new StringBuffer();
 
         sb.append("\n");
-        sb.append("\t POINTER: " +pointer.getElement());
+        sb.append("\t POINTER: " + (pointer != null ? pointer.getElement() : "none"));
 
         sb.append("\n");
-        sb.append("\t CLONE POINTER: " + (hasClonePointer ? clonePointer.getElement() : "none"));
+        sb.append("\t CLONE POINTER: " + (clonePointer != null ? clonePointer.getElement() : "none"));
 
         sb.append("\n");
-        sb.append("\t FEEDBACK TYPE: " +feedbackType);
+        sb.append("\t FEEDBACK TYPE: " + feedbackType);
 
         sb.append("\n");
-        sb.append("\t INITIAL ELEMENT: "+initialElement.getText());
+        sb.append("\t STRUCTURE: " + Long.toHexString(structureKey.structure));
 
         sb.append("\n");
-        sb.append("\t TYPE: "+ stmtType);
+        sb.append("\t TYPE: " + stmtType);
 
         sb.append("\n");
-        sb.append("\t LINE: "+line);
+        sb.append("\t LINE: " + line);
+
+        sb.append("\n");
+        sb.append("\t OFFSET: " + anchorOffset);
 
         sb.append("\n");
 
         return sb.toString();
     }
+
+    public static final class StructureKey {
+
+        private final PsiStmtType stmtType;
+        private final String feedbackType;
+        // 64-bit structural hashes, which are trusted to tell different structures apart
+        private final long structure;
+        private final boolean hasClone;
+        private final long cloneStructure;
+        private final int hashCode;
+
+        private StructureKey(PsiStmtType stmtType, String feedbackType, long structure, boolean hasClone, long cloneStructure) {
+            this.stmtType = stmtType;
+            this.feedbackType = feedbackType;
+            this.structure = structure;
+            this.hasClone = hasClone;
+            this.cloneStructure = cloneStructure;
+
+            int hash = 31 * (31 * stmtType.ordinal() + feedbackType.hashCode()) + Long.hashCode(structure);
+            hashCode = hasClone ? 31 * hash + Long.hashCode(cloneStructure) : hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+
+            if (other instanceof StructureKey) {
+                StructureKey otherKey = (StructureKey) other;
+
+                return otherKey.hashCode == hashCode &&
+                        otherKey.stmtType == stmtType &&
+                        otherKey.feedbackType.equals(feedbackType) &&
+                        otherKey.structure == structure &&
+                        otherKey.hasClone == hasClone &&
+                        otherKey.cloneStructure == cloneStructure;
+            }
+
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    public static final class LineKey {
+
+        private final PsiStmtType stmtType;
+        private final String feedbackType;
+        private final int line;
+        private final int hashCode;
+
+        private LineKey(PsiStmtType stmtType, String feedbackType, int line) {
+            this.stmtType = stmtType;
+            this.feedbackType = feedbackType;
+            this.line = line;
+
+            hashCode = 31 * (31 * stmtType.ordinal() + feedbackType.hashCode()) + line;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other instanceof LineKey) {
+                LineKey otherKey = (LineKey) other;
+
+                return otherKey.line == line &&
+                        otherKey.stmtType == stmtType &&
+                        otherKey.feedbackType.equals(feedbackType);
+            }
+
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
 }
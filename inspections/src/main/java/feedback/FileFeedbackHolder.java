@@ -1,28 +1,51 @@
 package feedback;
 
+import com.intellij.openapi.util.TextRange;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
 import util.InspectionPriority;
 import util.Pair;
 import util.PsiStmtType;
 import util.ReportLevel;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class FileFeedbackHolder {
 
     private final Map<FeedbackIdentifier, Feedback> feedback;
+    private final Map<FeedbackIdentifier.StructureKey, Set<FeedbackIdentifier>> feedbackByStructure;
+    private final Map<FeedbackIdentifier.LineKey, FeedbackIdentifier> feedbackByLine;
+    // Only unfixed feedback can be deleted
+    private final Set<FeedbackIdentifier> unfixedFeedback;
+    // Unfixed feedback whose element was inside a part of the tree that has changed, so this is all updateDeleted
+    // needs to look at
+    private final Set<FeedbackIdentifier> changedFeedback;
     private final String filename;
     private final String filepath;
 
     // 0 = high, 1 = medium, 2 = low (TRUE if error has *ever* occurred at that level)
     private boolean[] priorityErrors;
 
+    private boolean isReportCurrent;
+
     public FileFeedbackHolder(String filename) {
         feedback = new ConcurrentHashMap<>();
+        feedbackByStructure = new ConcurrentHashMap<>();
+        feedbackByLine = new ConcurrentHashMap<>();
+        unfixedFeedback = ConcurrentHashMap.newKeySet();
+        changedFeedback = ConcurrentHashMap.newKeySet();
         priorityErrors = new boolean[3];
+        isReportCurrent = false;
         this.filename = filename;
         this.filepath = filename.replace(".java", ".html");
     }
@@ -31,13 +54,37 @@ public class FileFeedbackHolder {
         return filepath;
     }
 
+    public boolean isReportCurrent() {
+        return isReportCurrent;
+    }
+
+    public void outdateReport() {
+        isReportCurrent = false;
+    }
+
+    // Unchanged pages are left unwritten by ReportFileWriter, which compares their digests
+    public void updateReport() {
+        isReportCurrent = true;
+    }
+
     public Pair<Boolean, Boolean> addFeedback(FeedbackIdentifier id, Feedback newFeedback) {
         // feedbackIsNew is used for priority counters in ProjectFeedbackHolder
         boolean feedbackIsNew = true;
         // isCurrent is used as a flag to update the file in ProjectFeedbackHolder
         boolean isCurrent = false;
 
-        Feedback oldFeedback = feedback.remove(id);
+        Feedback oldFeedback = null;
+        FeedbackIdentifier oldId = findId(id);
+        if (oldId != null) {
+            oldFeedback = feedback.remove(oldId);
+            feedbackByStructure.computeIfPresent(oldId.getStructureKey(), (key, ids) -> {
+                ids.remove(oldId);
+                return ids.isEmpty() ? null : ids;
+            });
+            feedbackByLine.remove(oldId.getLineKey(), oldId);
+            unfixedFeedback.remove(oldId);
+        }
+
         if (oldFeedback != null) {
             feedbackIsNew = oldFeedback.isFixed() && !newFeedback.isFixed();
             isCurrent = oldFeedback.equals(newFeedback);
@@ -48,41 +95,96 @@ public class FileFeedbackHolder {
             }
         }
 
+        id.createPointers();
         feedback.put(id, newFeedback);
+        feedbackByStructure.computeIfAbsent(id.getStructureKey(), key -> ConcurrentHashMap.newKeySet()).add(id);
+        feedbackByLine.put(id.getLineKey(), id);
+        if (!newFeedback.isFixed()) {
+            unfixedFeedback.add(id);
+        }
         priorityErrors[newFeedback.getPriority().getIndex()] = true;
 
+        if (!isCurrent) {
+            isReportCurrent = false;
+        }
+
         return new Pair<>(isCurrent, feedbackIsNew);
     }
 
     public InspectionPriority fixFeedback(FeedbackIdentifier id) {
-        Feedback f = feedback.get(id);
+        FeedbackIdentifier existingId = findId(id);
+        if (existingId == null) {
+            return InspectionPriority.NONE;
+        }
+
+        Feedback f = feedback.get(existingId);
 
         if (f == null) {
             return InspectionPriority.NONE;
         }
 
         if (f.setToFixed()) {
+            unfixedFeedback.remove(existingId);
+            isReportCurrent = false;
             return f.getPriority();
         }
 
         return InspectionPriority.NONE;
     }
 
-    public Map<InspectionPriority, Integer> updateDeleted() {
-        Map<InspectionPriority, Integer> changeToPriorities = new HashMap<>();
-        initMap(changeToPriorities);
+    // Matches the same element in the same place first, then the same element after it has moved, and then falls back
+    // to the line it was reported on for an element that has been edited
+    private FeedbackIdentifier findId(FeedbackIdentifier id) {
+        if (feedback.containsKey(id)) {
+            return id;
+        }
 
-        for (Map.Entry<FeedbackIdentifier, Feedback> entry : feedback.entrySet()) {
-            Feedback f = entry.getValue();
+        Set<FeedbackIdentifier> structureIds = feedbackByStructure.get(id.getStructureKey());
+        if (structureIds != null) {
+            for (FeedbackIdentifier structureId : structureIds) {
+                if (structureId.isReportedOn(id)) {
+                    return structureId;
+                }
+            }
+        }
 
-            if (f.isFixed()) {
-                continue;
+        // Another element with the same structure on the same line is other feedback, not this element edited
+        FeedbackIdentifier lineId = feedbackByLine.get(id.getLineKey());
+        if (lineId != null && !lineId.getStructureKey().equals(id.getStructureKey()) && feedback.containsKey(lineId)) {
+            return lineId;
+        }
+
+        return null;
+    }
+
+    // Marks the unfixed feedback anchored inside the range, or all of it for a null range. Returns whether any was.
+    public boolean markChanged(TextRange range) {
+        boolean isMarked = false;
+        for (FeedbackIdentifier id : unfixedFeedback) {
+            if (range == null || id.isAnchoredIn(range)) {
+                changedFeedback.add(id);
+                isMarked = true;
             }
+        }
+
+        return isMarked;
+    }
+
+    public Map<InspectionPriority, Integer> updateDeleted() {
+        Map<InspectionPriority, Integer> changeToPriorities = new HashMap<>();
+        initMap(changeToPriorities);
 
-            FeedbackIdentifier feedbackId = entry.getKey();
+        Iterator<FeedbackIdentifier> it = changedFeedback.iterator();
+        while (it.hasNext()) {
+            FeedbackIdentifier feedbackId = it.next();
+            it.remove();
 
-            if (feedbackId.isDeleted()) {
-                f.setToFixed();
+            if (feedbackId.isDeleted() && unfixedFeedback.remove(feedbackId)) {
+                Feedback f = feedback.get(feedbackId);
+                if (f == null || !f.setToFixed()) {
+                    continue;
+                }
+                isReportCurrent = false;
 
                 int currCount = changeToPriorities.get(f.getPriority());
                 currCount -= 1;
@@ -99,20 +201,21 @@ public class FileFeedbackHolder {
         changeToPriorities.put(InspectionPriority.LOW, 0);
     }
 
-    public String getFeedbackAsHTMLString(List<InspectionPriority> priorities) {
-        StringBuffer sb = new StringBuffer();
-
-        sb.append(addPriorityPraise(InspectionPriority.HIGH, priorityErrors[InspectionPriority.HIGH.getIndex()], priorities));
-        sb.append(addPriorityPraise(InspectionPriority.MEDIUM, priorityErrors[InspectionPriority.MEDIUM.getIndex()], priorities));
-        sb.append(addPriorityPraise(InspectionPriority.LOW, priorityErrors[InspectionPriority.LOW.getIndex()], priorities));
-
-        List<Feedback> feedbackToReport = getFeedbackToReport(priorities);
+    // Taken under the project's feedback lock, so that the page can be rendered once it has been released
+    public Report getReport(List<InspectionPriority> priorities) {
+        Map<InspectionPriority, String> praise = new LinkedHashMap<>();
+        addPriorityPraise(praise, InspectionPriority.HIGH, priorityErrors[InspectionPriority.HIGH.getIndex()], priorities);
+        addPriorityPraise(praise, InspectionPriority.MEDIUM, priorityErrors[InspectionPriority.MEDIUM.getIndex()], priorities);
+        addPriorityPraise(praise, InspectionPriority.LOW, priorityErrors[InspectionPriority.LOW.getIndex()], priorities);
 
-        for (Feedback f : feedbackToReport) {
-            sb.append(f.toHTMLString(priorities));
+        List<Feedback> feedbackToReport = new ArrayList<>();
+        for (Feedback f : getFeedbackToReport(priorities)) {
+            if (f.show(priorities)) {
+                feedbackToReport.add(f.copy());
+            }
         }
 
-        return sb.toString();
+        return new Report(praise, feedbackToReport);
     }
 
     private List<Feedback> getFeedbackToReport(List<InspectionPriority> priorities) {
@@ -140,6 +243,7 @@ public class FileFeedbackHolder {
             FeedbackSignature feedbackSignature = new FeedbackSignature(f.getFeedbackType(), reportLevel, location, f);
 
             if (!alreadyReported.contains(feedbackSignature)) {
+                f.resetCopyCount();
                 feedbackToReport.add(f);
                 alreadyReported.add(feedbackSignature);
             } else {
@@ -155,32 +259,37 @@ public class FileFeedbackHolder {
         return feedbackToReport;
     }
 
-    private String addPriorityPraise(InspectionPriority priority, boolean error, List<InspectionPriority> priorities) {
+    private void addPriorityPraise(Map<InspectionPriority, String> praise, InspectionPriority priority, boolean error, List<InspectionPriority> priorities) {
         if (!priorities.contains(priority)) {
-            return "";
+            return;
         }
 
         if (!error) {
-            return "<div class=\"feedbackcontainer\" id=\"praise-" + priority + "\">\n" +
-                    "   <div style=\"border: green solid 2px;\" id=\"feedback\">\n" +
-                    "       <p style=\"font-weight: 500;\"> Your code is looking " + getPraiseMessage(priority) + "! You have no " + priority.getOutputString() + "-priority errors. </p>\n" +
-                    "   </div>\n" +
-                    "</div>";
+            praise.put(priority, "You have no " + priority.getOutputString() + "-priority errors.");
+            return;
         }
 
         int fixedCount = getPriorityFixedCount(priority);
         if (fixedCount > 0) {
-            return "<div class=\"feedbackcontainer\" id=\"praise-" + priority + "\">\n" +
-                    "   <div style=\"border: green solid 2px;\" id=\"feedback\">\n" +
-                    "       <p style=\"font-weight: 500;\"> Your code is looking " + getPraiseMessage(priority) + "! You fixed " + fixedCount + " " + priority.getOutputString() + "-priority error" + (fixedCount > 1 ? "s" : "") + ". </p>\n" +
-                    "   </div>\n" +
-                    "</div>";
+            praise.put(priority, "You fixed " + fixedCount + " " + priority.getOutputString() + "-priority error" + (fixedCount > 1 ? "s" : "") + ".");
         }
+    }
 
-        return "";
+    private static void writePraise(Writer out, InspectionPriority priority, String message) throws IOException {
+        out.write("<div class=\"feedbackcontainer\" id=\"praise-");
+        out.write(priority.toString());
+        out.write("\">\n" +
+                "   <div style=\"border: green solid 2px;\" id=\"feedback\">\n" +
+                "       <p style=\"font-weight: 500;\"> Your code is looking ");
+        out.write(getPraiseMessage(priority));
+        out.write("! ");
+        out.write(message);
+        out.write(" </p>\n" +
+                "   </div>\n" +
+                "</div>");
     }
 
-    private String getPraiseMessage(InspectionPriority priority) {
+    private static String getPraiseMessage(InspectionPriority priority) {
         if (priority == InspectionPriority.HIGH) {
             return "good";
         }
@@ -210,26 +319,33 @@ public class FileFeedbackHolder {
         return count;
     }
 
-    public String toHTMLString() {
-        return "<div onClick=\"location.href = './" + filepath + " '\" id=\"file\">\n" +
-                "   <div id=\"filecontainer\">\n" +
-                "       <div id=\"filetitle\">\n" +
-                filename +
-                "       </div>\n" +
-                "       <i class=\"material-icons\">" + getStatus() + "</i>\n" +
-                "   </div> " +
-                "</div>\n";
+    @SuppressWarnings("unchecked")
+    public JSONObject toJSONObject() {
+        JSONObject jo = new JSONObject();
+        jo.put("id", filename);
+        jo.put("name", filename);
+        jo.put("path", filepath);
+        jo.put("status", getStatus());
+        return jo;
     }
 
-    public String toSelectedHTMLString() {
-        return "<div onClick=\"location.href = './" + filepath + " '\" id=\"file\" style=\"font-weight: 550;border: 5px solid white;\">\n" +
-                "   <div id=\"filecontainer\">\n" +
-                "       <div id=\"filetitle\">\n" +
-                filename +
-                "       </div>\n" +
-                "       <i class=\"material-icons\">" + getStatus() + "</i>\n" +
-                "   </div> " +
-                "</div>\n";
+    // Only feedback that is still to be fixed, in line order
+    @SuppressWarnings("unchecked")
+    public JSONArray getFeedbackAsJSONArray() {
+        List<Feedback> unfixed = new ArrayList<>();
+        for (Feedback f : feedback.values()) {
+            if (!f.isFixed()) {
+                unfixed.add(f);
+            }
+        }
+        unfixed.sort(Comparator.comparingInt(Feedback::getLineNumber));
+
+        JSONArray ja = new JSONArray();
+        for (Feedback f : unfixed) {
+            ja.add(f.toJSONObject());
+        }
+
+        return ja;
     }
 
     private String getStatus() {
@@ -243,5 +359,24 @@ public class FileFeedbackHolder {
         return "check_circle_outline";
     }
 
+    // What a page of the report shows, copied so that later feedback does not change it
+    public static class Report {
+        private final Map<InspectionPriority, String> praise;
+        private final List<Feedback> feedback;
 
+        private Report(Map<InspectionPriority, String> praise, List<Feedback> feedback) {
+            this.praise = praise;
+            this.feedback = feedback;
+        }
+
+        public void writeHTML(Writer out) throws IOException {
+            for (Map.Entry<InspectionPriority, String> entry : praise.entrySet()) {
+                writePraise(out, entry.getKey(), entry.getValue());
+            }
+
+            for (Feedback f : feedback) {
+                f.writeHTML(out);
+            }
+        }
+    }
 }
@@ -0,0 +1,100 @@
+package feedback;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ReportFileWriter {
+
+    private final Charset charset;
+    private final Map<Path, byte[]> lastDigests;
+
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong bytesSkipped = new AtomicLong();
+    private final AtomicLong filesWritten = new AtomicLong();
+    private final AtomicLong filesSkipped = new AtomicLong();
+
+    public ReportFileWriter(Charset charset) {
+        this.charset = charset;
+        lastDigests = new ConcurrentHashMap<>();
+    }
+
+    // Returns true if the file was written, false if it already had this content. The content is encoded straight
+    // from the caller's buffer, so a rendered page is never copied into a String.
+    public boolean write(Path path, CharSequence content) throws IOException {
+        ByteBuffer bytes = charset.encode(CharBuffer.wrap(content));
+        int length = bytes.remaining();
+        byte[] digest = getDigest(bytes.duplicate());
+
+        if (Arrays.equals(digest, lastDigests.get(path)) && Files.exists(path)) {
+            bytesSkipped.addAndGet(length);
+            filesSkipped.incrementAndGet();
+            return false;
+        }
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        // Write next to the target and move it into place, so a browser refresh never sees a half-written page
+        Path tempFile = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (SeekableByteChannel channel = Files.newByteChannel(tempFile, StandardOpenOption.WRITE)) {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+            try {
+                Files.move(tempFile, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        lastDigests.put(path, digest);
+        bytesWritten.addAndGet(length);
+        filesWritten.incrementAndGet();
+        return true;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getBytesSkipped() {
+        return bytesSkipped.get();
+    }
+
+    public long getFilesWritten() {
+        return filesWritten.get();
+    }
+
+    public long getFilesSkipped() {
+        return filesSkipped.get();
+    }
+
+    private static byte[] getDigest(ByteBuffer bytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(bytes);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to provide SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package feedback;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ReportTemplate {
+
+    public interface Fragment {
+        void write(Writer out) throws IOException;
+    }
+
+    // segments[i] is written before the placeholder at placeholders[i], with one trailing segment after the last
+    private final String[] segments;
+    private final int[] placeholders;
+
+    public ReportTemplate(String template, String... placeholderNames) {
+        List<String> segmentList = new ArrayList<>();
+        List<Integer> placeholderList = new ArrayList<>();
+
+        int start = 0;
+        while (true) {
+            int next = -1;
+            int nextPlaceholder = -1;
+
+            for (int i = 0; i < placeholderNames.length; i++) {
+                int index = template.indexOf(placeholderNames[i], start);
+                if (index != -1 && (next == -1 || index < next)) {
+                    next = index;
+                    nextPlaceholder = i;
+                }
+            }
+
+            if (next == -1) {
+                break;
+            }
+
+            segmentList.add(template.substring(start, next));
+            placeholderList.add(nextPlaceholder);
+            start = next + placeholderNames[nextPlaceholder].length();
+        }
+
+        segmentList.add(template.substring(start));
+
+        segments = segmentList.toArray(new String[0]);
+        placeholders = new int[placeholderList.size()];
+        for (int i = 0; i < placeholders.length; i++) {
+            placeholders[i] = placeholderList.get(i);
+        }
+    }
+
+    // Fragments are given in the same order as the placeholder names passed to the constructor
+    public void render(Writer out, Fragment... fragments) throws IOException {
+        for (int i = 0; i < placeholders.length; i++) {
+            out.write(segments[i]);
+            fragments[placeholders[i]].write(out);
+        }
+
+        out.write(segments[segments.length - 1]);
+    }
+}
@@ -1,7 +1,10 @@
 package feedback;
 
+import org.json.simple.JSONObject;
 import util.TipType;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -17,13 +20,25 @@ public class Tip {
 
     }
 
-    public String toHTMLString() {
-        return "<div class=\"feedbackcontainer\" id=\"" + tipType + "\">\n" +
-                "   <div style=\"border: " + getColour() + " solid 2px;\" id=\"feedback\">\n" +
-                "       <p style=\"font-weight: 500;\"> " + getMessage() + " </p>\n" +
-                "   </div>\n" +
-                getIgnoreAdviceButton() +
-                "</div>";
+    public Tip copy() {
+        Tip copy = new Tip(tipType);
+        copy.isSatisfiedFiles.addAll(isSatisfiedFiles);
+        return copy;
+    }
+
+    public void writeHTML(Writer out) throws IOException {
+        out.write("<div class=\"feedbackcontainer\" id=\"");
+        out.write(tipType.toString());
+        out.write("\">\n" +
+                "   <div style=\"border: ");
+        out.write(getColour());
+        out.write(" solid 2px;\" id=\"feedback\">\n" +
+                "       <p style=\"font-weight: 500;\"> ");
+        out.write(getMessage());
+        out.write(" </p>\n" +
+                "   </div>\n");
+        writeIgnoreAdviceButton(out);
+        out.write("</div>");
     }
 
     public boolean removeSatisfied(String filename) {
@@ -39,20 +54,31 @@ public class Tip {
         return true;
     }
 
+    @SuppressWarnings("unchecked")
+    public JSONObject toJSONObject() {
+        JSONObject jo = new JSONObject();
+        jo.put("type", tipType.name());
+        jo.put("message", getMessage());
+        jo.put("satisfied", isSatisfiedFiles.size() > 0);
+        return jo;
+    }
+
     private String getColour() {
         return isSatisfiedFiles.size() > 0 ? "green" : "red";
     }
 
-    private String getIgnoreAdviceButton() {
-        if (isSatisfiedFiles.size() == 0) {
-            return "<div style=\"margin-left: 2.5%;\">\n" +
-                    "   <button class=\"ignorebutton\" id=\"" + tipType + "\" onclick=\"ignoreAdvice(id)\">\n" +
-                    "       Ignore Advice\n" +
-                    "   </button>\n" +
-                    "</div>\n";
+    private void writeIgnoreAdviceButton(Writer out) throws IOException {
+        if (isSatisfiedFiles.size() > 0) {
+            return;
         }
 
-        return "";
+        out.write("<div style=\"margin-left: 2.5%;\">\n" +
+                "   <button class=\"ignorebutton\" id=\"");
+        out.write(tipType.toString());
+        out.write("\" onclick=\"ignoreAdvice(id)\">\n" +
+                "       Ignore Advice\n" +
+                "   </button>\n" +
+                "</div>\n");
     }
 
     private String getMessage() {
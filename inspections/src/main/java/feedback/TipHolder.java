@@ -1,7 +1,11 @@
 package feedback;
 
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
 import util.TipType;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -24,6 +28,10 @@ public class TipHolder {
         isCurrent = true;
     }
 
+    public void outdate() {
+        isCurrent = false;
+    }
+
     public boolean addTip(TipType tipType, String filename) {
         Tip tip = tips.get(tipType);
 
@@ -65,34 +73,37 @@ public class TipHolder {
         return isCurrent;
     }
 
-    public String toHTMLString() {
-        return "<div onClick=\"location.href = './project-tips.html'\" id=\"file\">\n" +
-                "   <div id=\"filecontainer\">\n" +
-                "       <div id=\"filetitle\">\n" +
-                "           Project Tips \n" +
-                "       </div>\n" +
-                "   </div> " +
-                "</div>\n";
+    @SuppressWarnings("unchecked")
+    public JSONObject toJSONObject() {
+        JSONObject jo = new JSONObject();
+        jo.put("id", "project-tips");
+        jo.put("name", "Project Tips");
+        jo.put("path", "project-tips.html");
+        return jo;
     }
 
-    public String toSelectedHTMLString() {
-        return "<div onClick=\"location.href = './project-tips.html'\" id=\"file\" style=\"font-weight: 550;border: 5px solid white;\">\n" +
-                "   <div id=\"filecontainer\">\n" +
-                "       <div id=\"filetitle\">\n" +
-                "           Project Tips \n" +
-                "       </div>\n" +
-                "   </div> " +
-                "</div>\n";
+    @SuppressWarnings("unchecked")
+    public JSONArray getTipsAsJSONArray() {
+        JSONArray tipArray = new JSONArray();
+        for (Tip t : tips.values()) {
+            tipArray.add(t.toJSONObject());
+        }
+
+        return tipArray;
     }
 
-    public String getTipsAsHTMLString() {
-        StringBuffer sb = new StringBuffer();
+    public void clear() {
+        tips.clear();
+        isCurrent = true;
+    }
 
-        for (Map.Entry<TipType, Tip> entry : tips.entrySet()) {
-            Tip t = entry.getValue();
-            sb.append(t.toHTMLString());
+    // Copies of the tips, to render from once the tips lock has been released
+    public List<Tip> getTips() {
+        List<Tip> copies = new ArrayList<>();
+        for (Tip t : tips.values()) {
+            copies.add(t.copy());
         }
 
-        return sb.toString();
+        return copies;
     }
 }
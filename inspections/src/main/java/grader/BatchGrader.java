@@ -0,0 +1,142 @@
+package grader;
+
+import com.intellij.openapi.application.ApplicationStarterEx;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.projectRoots.JavaSdk;
+import com.intellij.openapi.projectRoots.ProjectJdkTable;
+import com.intellij.openapi.projectRoots.Sdk;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.SystemProperties;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Grades every submission (each a directory of Java files) in a directory, without opening a project for each:
+//   idea diligent-grade <submissions directory> <diligent.json> <output directory>
+// and writes <output directory>/<submission>.json for each one.
+public class BatchGrader extends ApplicationStarterEx {
+
+    private static final String COMMAND_NAME = "diligent-grade";
+    private static final int WORKERS = Integer.getInteger("diligent.grader.workers", Runtime.getRuntime().availableProcessors());
+
+    @Override
+    public String getCommandName() {
+        return COMMAND_NAME;
+    }
+
+    @Override
+    public boolean isHeadless() {
+        return true;
+    }
+
+    @Override
+    public void premain(String[] args) {
+        // The first argument is the command name
+        if (args.length != 4) {
+            System.err.println("Usage: " + COMMAND_NAME + " <submissions directory> <diligent.json> <output directory>");
+            System.exit(1);
+        }
+    }
+
+    @Override
+    public void main(String[] args) {
+        Path submissionsDir = Paths.get(args[1]);
+        Path config = Paths.get(args[2]);
+        Path outputDir = Paths.get(args[3]);
+
+        int exitCode;
+        try {
+            exitCode = grade(submissionsDir, config, outputDir);
+        } catch (IOException | RuntimeException e) {
+            System.err.println(e);
+            exitCode = 1;
+        }
+
+        System.exit(exitCode);
+    }
+
+    private static int grade(Path submissionsDir, Path config, Path outputDir) throws IOException {
+        List<Path> submissions;
+        try (Stream<Path> paths = Files.list(submissionsDir)) {
+            submissions = paths.filter(Files::isDirectory).sorted().collect(Collectors.toList());
+        }
+        Files.createDirectories(outputDir);
+
+        Sdk jdk = JavaSdk.getInstance().createJdk("Diligent Grader JDK", SystemProperties.getJavaHome(), false);
+        WriteAction.runAndWait(() -> ProjectJdkTable.getInstance().addJdk(jdk));
+
+        Path workDir = FileUtil.createTempDirectory("diligent-grader", null).toPath();
+        int workerCount = Math.max(1, Math.min(WORKERS, submissions.size()));
+        BlockingQueue<GraderWorker> workers = new ArrayBlockingQueue<>(workerCount);
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+
+        long start = System.currentTimeMillis();
+        int failures = 0;
+
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                workers.add(new GraderWorker(workDir.resolve("worker-" + i), config, jdk));
+            }
+
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (Path submission : submissions) {
+                results.add(executor.submit(() -> gradeSubmission(workers, submission, outputDir)));
+            }
+
+            for (Future<Boolean> result : results) {
+                try {
+                    if (!result.get()) {
+                        failures++;
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println(e);
+                    failures++;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            for (GraderWorker worker : workers) {
+                worker.dispose();
+            }
+            WriteAction.runAndWait(() -> ProjectJdkTable.getInstance().removeJdk(jdk));
+            FileUtil.delete(workDir.toFile());
+        }
+
+        System.out.println("Graded " + submissions.size() + " submissions with " + workerCount + " workers in "
+                + (System.currentTimeMillis() - start) + "ms, " + failures + " failed.");
+        return failures == 0 ? 0 : 2;
+    }
+
+    // A submission that cannot be graded still gets a result, recording why
+    @SuppressWarnings("unchecked")
+    private static boolean gradeSubmission(BlockingQueue<GraderWorker> workers, Path submission, Path outputDir) throws InterruptedException, IOException {
+        GraderWorker worker = workers.take();
+
+        JSONObject result;
+        boolean graded;
+        try {
+            result = worker.grade(submission);
+            graded = true;
+        } catch (IOException | RuntimeException e) {
+            result = new JSONObject();
+            result.put("submission", submission.getFileName().toString());
+            result.put("error", e.toString());
+            graded = false;
+        } finally {
+            workers.put(worker);
+        }
+
+        Path output = outputDir.resolve(submission.getFileName().toString() + ".json");
+        Files.write(output, result.toJSONString().getBytes(StandardCharsets.UTF_8));
+        return graded;
+    }
+}
@@ -0,0 +1,128 @@
+package grader;
+
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.codeInspection.LocalInspectionToolSession;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.module.StdModuleTypes;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ex.ProjectManagerEx;
+import com.intellij.openapi.projectRoots.Sdk;
+import com.intellij.openapi.roots.ModuleRootModificationUtil;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementVisitor;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import com.intellij.psi.SyntaxTraverser;
+import feedback.FeedbackHolder;
+import feedback.ProjectFeedbackHolder;
+import inspection.InspectionRegistration;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// One project, with its own configuration and inspections, that grades one submission at a time. The source files
+// are parsed straight into PSI, so nothing is written into the project or indexed between submissions.
+public class GraderWorker {
+
+    private static final String CONFIG_FILENAME = "diligent.json";
+
+    private final Project project;
+    private final List<LocalInspectionTool> inspections;
+
+    public GraderWorker(Path directory, Path config, Sdk jdk) throws IOException {
+        Files.createDirectories(directory);
+        Files.copy(config, directory.resolve(CONFIG_FILENAME), StandardCopyOption.REPLACE_EXISTING);
+
+        project = ProjectManagerEx.getInstanceEx().newProject(directory.getFileName().toString(), directory.toString(), true, false);
+        if (project == null) {
+            throw new IOException("Could not create a project in '" + directory + "'.");
+        }
+
+        // A module using the JDK, so that types such as String resolve in the parsed files
+        Module module = WriteAction.computeAndWait(() -> ModuleManager.getInstance(project)
+                .newModule(directory.resolve("grader.iml").toString(), StdModuleTypes.JAVA.getId()));
+        ModuleRootModificationUtil.setModuleSdk(module, jdk);
+
+        FeedbackHolder.getInstance().addBatchProject(project);
+
+        inspections = new ArrayList<>();
+        for (Class<? extends LocalInspectionTool> inspectionClass : new InspectionRegistration().getInspectionClasses()) {
+            try {
+                inspections.add(inspectionClass.newInstance());
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw new IllegalStateException("Cannot create " + inspectionClass.getName(), e);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public JSONObject grade(Path submission) throws IOException {
+        List<Path> sources;
+        try (Stream<Path> paths = Files.walk(submission)) {
+            sources = paths.filter(path -> Files.isRegularFile(path) && path.toString().endsWith(".java"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        List<String> texts = new ArrayList<>();
+        for (Path source : sources) {
+            texts.add(new String(Files.readAllBytes(source), StandardCharsets.UTF_8));
+        }
+
+        ProjectFeedbackHolder projectFeedbackHolder = FeedbackHolder.getInstance().getProjectFeedbackHolder(project);
+        try {
+            JSONObject result = ReadAction.compute(() -> {
+                for (int i = 0; i < sources.size(); i++) {
+                    PsiFile file = PsiFileFactory.getInstance(project)
+                            .createFileFromText(sources.get(i).getFileName().toString(), JavaFileType.INSTANCE, texts.get(i));
+                    inspect(file);
+                }
+
+                return projectFeedbackHolder.toJSONObject();
+            });
+
+            result.put("submission", submission.getFileName().toString());
+            result.put("sourceFiles", sources.size());
+            return result;
+        } finally {
+            projectFeedbackHolder.clear();
+        }
+    }
+
+    // Each inspection is run over the file as the highlighting pass would, visiting children before their parents
+    private void inspect(PsiFile file) {
+        InspectionManager inspectionManager = InspectionManager.getInstance(project);
+
+        for (LocalInspectionTool inspection : inspections) {
+            ProblemsHolder holder = new ProblemsHolder(inspectionManager, file, false);
+            LocalInspectionToolSession session = new LocalInspectionToolSession(file, 0, file.getTextLength());
+
+            inspection.inspectionStarted(session, false);
+            PsiElementVisitor visitor = inspection.buildVisitor(holder, false, session);
+            for (PsiElement element : SyntaxTraverser.psiTraverser(file).postOrderDfsTraversal()) {
+                element.accept(visitor);
+            }
+            inspection.inspectionFinished(session, holder);
+        }
+    }
+
+    public void dispose() {
+        FeedbackHolder.getInstance().removeBatchProject(project);
+        WriteAction.runAndWait(() -> Disposer.dispose(project));
+    }
+}
@@ -1,7 +1,6 @@
 package inspection;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.*;
 import feedback.Feedback;
@@ -12,7 +11,7 @@ import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import util.*;
 
-public final class CamelCaseInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class CamelCaseInspection extends MeasuredInspection {
 
     private static final String INSPECTION_NAME = "camelcase";
 
@@ -62,7 +61,7 @@ public final class CamelCaseInspection extends AbstractBaseJavaLocalInspectionTo
                     return;
                 }
 
-                feedbackHolder.writeToFile();
+                feedbackHolder.writeToFile(holder.getProject());
             }
 
             @Override
@@ -89,7 +88,7 @@ public final class CamelCaseInspection extends AbstractBaseJavaLocalInspectionTo
 
                 String filename = field.getContainingFile().getName();
                 int line = Utils.getLineNumber(field);
-                FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(field), INSPECTION_NAME, PsiStmtType.FIELD, line);
+                FeedbackIdentifier feedbackId = new FeedbackIdentifier(field, INSPECTION_NAME, PsiStmtType.FIELD, line);
 
                 if (!Utils.isCamelCase(field.getName())) {
                     Feedback feedback = new Feedback(line, filename, line + INSPECTION_NAME, priority, Utils.getClassName(field), FeedbackType.CAMELCASE);
@@ -115,7 +114,7 @@ public final class CamelCaseInspection extends AbstractBaseJavaLocalInspectionTo
 
                         String filename = statement.getContainingFile().getName();
                         int line = Utils.getLineNumber(statement);
-                        FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(localElement), INSPECTION_NAME, PsiStmtType.LOCAL_VAR, line);
+                        FeedbackIdentifier feedbackId = new FeedbackIdentifier(localElement, INSPECTION_NAME, PsiStmtType.LOCAL_VAR, line);
 
                         if (!(Utils.isCamelCase(localElement.getName()))) {
                             Feedback feedback = new Feedback(line, filename, line + localElement.getName() + INSPECTION_NAME, priority, Utils.getClassName(statement), Utils.getMethodName(statement), FeedbackType.CAMELCASE);
@@ -139,7 +138,7 @@ public final class CamelCaseInspection extends AbstractBaseJavaLocalInspectionTo
                 String filename = method.getContainingFile().getName();
                 String className = Utils.getClassName(method);
                 int line = Utils.getLineNumber(method);
-                FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(method),INSPECTION_NAME, PsiStmtType.METHOD, line);
+                FeedbackIdentifier feedbackId = new FeedbackIdentifier(method,INSPECTION_NAME, PsiStmtType.METHOD, line);
 
                 if (!method.isConstructor()) {
                     if (!(Utils.isCamelCase(method.getName()))) {
@@ -156,7 +155,7 @@ public final class CamelCaseInspection extends AbstractBaseJavaLocalInspectionTo
 
                 for (PsiParameter p : params) {
                     line = Utils.getLineNumber(p);
-                    feedbackId = new FeedbackIdentifier(Utils.getPointer(p),INSPECTION_NAME, PsiStmtType.PARAMETER, line);
+                    feedbackId = new FeedbackIdentifier(p,INSPECTION_NAME, PsiStmtType.PARAMETER, line);
                     if (!(Utils.isCamelCase(p.getName()))) {
                         Feedback feedback = new Feedback(line, filename, line + p.getName() + INSPECTION_NAME, priority, className, FeedbackType.CAMELCASE);
                         feedbackHolder.addFeedback(holder.getProject(), filename, feedbackId, feedback);
@@ -1,9 +1,13 @@
 package inspection;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
+import com.intellij.psi.util.PsiTreeUtil;
 import feedback.Feedback;
 import feedback.FeedbackHolder;
 import feedback.FeedbackIdentifier;
@@ -19,9 +23,10 @@ import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class CloneInspection extends MeasuredInspection {
 
     private static final String INSPECTION_NAME = "clone";
+    private static final Key<CloneGraph> CLONE_GRAPH_KEY = Key.create("diligent.cloneGraph");
 
     @Override
     @NotNull
@@ -55,7 +60,7 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
     public PsiElementVisitor buildVisitor(@NotNull final ProblemsHolder holder, boolean isOnTheFly) {
         InspectionPriority priority = Utils.getInspectionPriority(holder, INSPECTION_NAME);
         if (priority != InspectionPriority.NONE) {
-            return new CloneVisitor(holder, priority);
+            return new CloneVisitor(holder, priority, ConfigurationService.getInstance(holder.getProject()).getCloneSimilarity());
         }
 
         return new JavaElementVisitor() {
@@ -66,10 +71,14 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
         private final ProblemsHolder holder;
         private final FeedbackHolder feedbackHolder;
         private final InspectionPriority priority;
+        private final double cloneSimilarity;
+        // Nested bodies already compared in this pass
+        private final SubtreePairCache similarBodies = new SubtreePairCache();
 
-        CloneVisitor(ProblemsHolder holder, InspectionPriority priority) {
+        CloneVisitor(ProblemsHolder holder, InspectionPriority priority, double cloneSimilarity) {
             this.holder = holder;
             this.priority = priority;
+            this.cloneSimilarity = cloneSimilarity;
             feedbackHolder = FeedbackHolder.getInstance();
         }
 
@@ -81,7 +90,48 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
                 return;
             }
 
-            feedbackHolder.writeToFile();
+            feedbackHolder.writeToFile(holder.getProject());
+        }
+
+        @Override
+        public void visitMethod(PsiMethod method) {
+            super.visitMethod(method);
+
+            if (Utils.hasErrorsInFile(method) || !MethodCloneIndex.isIndexed(method)) {
+                return;
+            }
+
+            Project project = holder.getProject();
+            if (DumbService.isDumb(project)) {
+                return;
+            }
+
+            // Methods copied within a class are found by visitClass, so only look for the same method in other files
+            PsiFile file = method.getContainingFile();
+            boolean inOtherFile = false;
+            for (VirtualFile otherFile : MethodCloneIndex.getFilesWithMethod(project, method)) {
+                if (!otherFile.equals(file.getVirtualFile())) {
+                    inOtherFile = true;
+                    break;
+                }
+            }
+
+            String filename = file.getName();
+            int line = Utils.getLineNumber(method);
+            FeedbackIdentifier feedbackId = new FeedbackIdentifier(method, "method-" + INSPECTION_NAME, PsiStmtType.METHOD, line);
+
+            if (inOtherFile) {
+                Feedback feedback = new Feedback(line,
+                        filename,
+                        line + "-method-" + INSPECTION_NAME,
+                        priority,
+                        Utils.getClassName(method),
+                        method.getName(),
+                        FeedbackType.METHOD_CLONE);
+                feedbackHolder.addFeedback(project, filename, feedbackId, feedback);
+            } else {
+                feedbackHolder.fixFeedback(project, filename, feedbackId);
+            }
         }
 
         @Override
@@ -120,17 +170,18 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
                     whileLoopMap, doWhileLoopMap, switchMap, assertMap,
                     tryMap, throwMap, prefixMap, postfixMap);
 
-            List<Integer> rangeOfCases = IntStream.range(0, cases.length).boxed().collect(Collectors.toList());
-            List<Set<Integer>> clones = new ArrayList<>(cases.length);
-
-            // If we have an entire case where duplicate / similar has been detected for every line in another case
-            for (int i = 0; i < cases.length; i++) {
-                //Only consider error when all cases are > 0 in length (excluding break;)
-                if (cases[i].length < 1 || cases[i][0] == null) {
+            //Only consider error when all cases are > 0 in length (excluding break;)
+            for (PsiStatement[] caseBody : cases) {
+                if (caseBody.length < 1 || caseBody[0] == null) {
                     return;
                 }
+            }
+
+            CloneClusters clusters = new CloneClusters(cases.length);
 
-                Set<Location> intersection = getClones(cases[i][0],
+            // If we have an entire case where duplicate / similar has been detected for every line in another case
+            for (int i = 0; i < cases.length && clusters.getClusterCount() > 1; i++) {
+                LocationSet intersection = getCombinedClones(cases[i],
                         declarationMap, assignmentMap,
                         ifStmtMap, methodCallMap,
                         returnMap, forLoopMap,
@@ -140,52 +191,20 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
                         tryMap, throwMap,
                         prefixMap, postfixMap);
 
-                if (intersection == null || intersection.size() == 0) {
-                    intersection = new LinkedHashSet<>();
-                    intersection.add(new Location(-1, -1));
-                }
-
-                for (int j = 1; j < cases[0].length; j++) {
-                    if (cases[i][j] == null) {
-                        break;
-                    }
-                    Set<Location> currClones = getClones(cases[i][j],
-                            declarationMap, assignmentMap,
-                            ifStmtMap, methodCallMap,
-                            returnMap, forLoopMap,
-                            forEachLoopMap, whileLoopMap,
-                            doWhileLoopMap,
-                            switchMap, assertMap,
-                            tryMap, throwMap,
-                            prefixMap, postfixMap);
-
-                    if (currClones == null) {
-                        Set<Location> dummy = new LinkedHashSet<>();
-                        dummy.add(new Location(-1, -1));
-                        intersection = CodeCloneUtils.getCombinedClones(intersection, dummy);
-                    } else {
-                        intersection = CodeCloneUtils.getCombinedClones(intersection, currClones);
+                for (int caseIndex = 0; caseIndex < cases.length; caseIndex++) {
+                    // Cases already in the same cluster do not need comparing
+                    if (!clusters.isConnected(i, caseIndex) && BlockClones.containsBlockClone(intersection, caseIndex, true) != null) {
+                        clusters.union(i, caseIndex);
                     }
                 }
-
-                // Add itself to its clones
-                Set<Integer> caseClones = new LinkedHashSet<>();
-                caseClones.add(i);
-
-                for (int blockIndex : rangeOfCases) {
-                    if (CodeCloneUtils.containsBlockClone(intersection, blockIndex, true) != null) {
-                        caseClones.add(blockIndex);
-                    }
-                }
-
-                clones.add(caseClones);
             }
 
             String filename = statement.getContainingFile().getName();
             int line = Utils.getLineNumber(statement);
-            FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(statement), line + "switch-" + INSPECTION_NAME, PsiStmtType.SWITCH, line);
+            FeedbackIdentifier feedbackId = new FeedbackIdentifier(statement, line + "switch-" + INSPECTION_NAME, PsiStmtType.SWITCH, line);
 
-            if (CodeCloneUtils.transitiveClosureOfClones(clones, rangeOfCases)) {
+            // Every case is a clone of another, directly or through other cases
+            if (cases.length > 1 && clusters.getClusterCount() == 1) {
                 Feedback feedback = new Feedback(line,
                         filename,
                         line + "-switch-" + INSPECTION_NAME,
@@ -217,30 +236,24 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
                 return;
             }
 
-            Map<PsiDeclarationStatement, CloneExpression> declarationMap = new HashMap<>();
-            Map<PsiAssignmentExpression, CloneExpression> assignmentMap = new HashMap<>();
-            Map<PsiIfStatement, CloneExpression> ifStmtMap = new HashMap<>();
-            Map<PsiMethodCallExpression, CloneExpression> methodCallMap = new HashMap<>();
-            Map<PsiReturnStatement, CloneExpression> returnMap = new HashMap<>();
-            Map<PsiForStatement, CloneExpression> forLoopMap = new HashMap<>();
-            Map<PsiForeachStatement, CloneExpression> forEachLoopMap = new HashMap<>();
-            Map<PsiWhileStatement, CloneExpression> whileLoopMap = new HashMap<>();
-            Map<PsiDoWhileStatement, CloneExpression> doWhileLoopMap = new HashMap<>();
-            Map<PsiSwitchStatement, CloneExpression> switchMap = new HashMap<>();
-            Map<PsiAssertStatement, CloneExpression> assertMap = new HashMap<>();
-            Map<PsiTryStatement, CloneExpression> tryMap = new HashMap<>();
-            Map<PsiThrowStatement, CloneExpression> throwMap = new HashMap<>();
-            Map<PsiPrefixExpression, CloneExpression> prefixMap = new HashMap<>();
-            Map<PsiPostfixExpression, CloneExpression> postfixMap = new HashMap<>();
-
             PsiStatement[][] blockBodies = CodeCloneUtils.getBlockBodies(codeBlocks);
-            cloneInit(blockBodies, declarationMap, assignmentMap, ifStmtMap,
-                    methodCallMap, returnMap, forLoopMap, forEachLoopMap,
-                    whileLoopMap, doWhileLoopMap, switchMap, assertMap,
-                    tryMap, throwMap, prefixMap, postfixMap);
+            String filename = aClass.getContainingFile().getName();
+
+            CloneGraph graph = new CloneGraph(filename + ":" + aClass.getName() + ":" + cloneSimilarity, priority,
+                    getBlockKeys(codeBlocks), parents, aClass.getUserData(CLONE_GRAPH_KEY));
+            // No code block has changed since the last pass, so no clone status can have flipped
+            if (graph.isUnchanged()) {
+                return;
+            }
+
+            // Only the statements of changed blocks are compared again
+            graph.updateStatements(blockBodies,
+                    (statement, otherStatement) -> haveSimilarBodies(graph.getStatement(statement), graph.getStatement(otherStatement)));
 
             List<Integer> rangeOfBlocks = IntStream.range(0, blockBodies.length).boxed().collect(Collectors.toList());
-            String filename = aClass.getContainingFile().getName();
+            SequenceCloneDetector sequenceDetector = null;
+            NearMissCloneDetector nearMissDetector = null;
+            CloneClusters clusters = new CloneClusters(codeBlocks.length);
 
             // If we have an entire method where duplicate / similar has been detected for every line in another method
             for (int i = 0; i < blockBodies.length; i++) {
@@ -249,80 +262,186 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
                     continue;
                 }
 
-                Set<Location> intersection = getClones(blockBodies[i][0],
-                        declarationMap, assignmentMap,
-                        ifStmtMap, methodCallMap,
-                        returnMap, forLoopMap,
-                        forEachLoopMap, whileLoopMap,
-                        doWhileLoopMap,
-                        switchMap, assertMap,
-                        tryMap, throwMap,
-                        prefixMap, postfixMap);
+                // Only found if some pair with this block has to be compared again
+                List<LocationSet> statementClones = null;
+                Set<Integer> cloneBlocks = null;
+                // Only combine the clones of each statement if some pair is not settled by an exact sequence
+                LocationSet intersection = null;
+                boolean hasIntersection = false;
 
-                if (intersection == null || intersection.size() == 0) {
-                    intersection = new LinkedHashSet<>();
-                    intersection.add(new Location(-1, -1));
-                }
+                for (int blockIndex : rangeOfBlocks) {
+                    // Blocks already in the same cluster do not need comparing
+                    if (clusters.isConnected(i, blockIndex)) {
+                        continue;
+                    }
+
+                    Boolean isStatementClone = graph.getStatementCloneEdge(i, blockIndex);
+                    if (isStatementClone == null) {
+                        if (statementClones == null) {
+                            statementClones = new ArrayList<>();
+                            cloneBlocks = new HashSet<>();
+                            for (int j = 0; j < blockBodies[0].length && blockBodies[i][j] != null; j++) {
+                                LocationSet currClones = graph.getClones(i, j);
+                                statementClones.add(currClones);
+                                if (currClones != null) {
+                                    for (int block : currClones.getCodeBlocks()) {
+                                        cloneBlocks.add(block);
+                                    }
+                                }
+                            }
+                        }
+
+                        if (sequenceDetector == null) {
+                            sequenceDetector = getSequenceDetector(blockBodies);
+                        }
+
+                        Pair<Pair<Integer, Integer>, Pair<Integer, Integer>> cloneSequence = sequenceDetector.getBlockClone(i, blockIndex, false);
+                        // A block with no statement similar to one in this block cannot contain a clone of it
+                        if (cloneSequence == null && cloneBlocks.contains(blockIndex)) {
+                            if (!hasIntersection) {
+                                intersection = BlockClones.combineClones(statementClones);
+                                hasIntersection = true;
+                            }
+                            cloneSequence = BlockClones.containsBlockClone(intersection, blockIndex, false);
+                        }
 
-                for (int j = 1; j < blockBodies[0].length; j++) {
-                    if (blockBodies[i][j] == null) {
-                        break;
+                        isStatementClone = cloneSequence != null;
+                        graph.addStatementCloneEdge(i, blockIndex, isStatementClone);
                     }
-                    Set<Location> currClones = getClones(blockBodies[i][j],
-                            declarationMap, assignmentMap,
-                            ifStmtMap, methodCallMap,
-                            returnMap, forLoopMap,
-                            forEachLoopMap, whileLoopMap,
-                            doWhileLoopMap,
-                            switchMap, assertMap,
-                            tryMap, throwMap,
-                            prefixMap, postfixMap);
-
-                    if (currClones == null) {
-                        Set<Location> dummy = new LinkedHashSet<>();
-                        dummy.add(new Location(-1, -1));
-                        intersection = CodeCloneUtils.getCombinedClones(intersection, dummy);
-                    } else {
-                        intersection = CodeCloneUtils.getCombinedClones(intersection, currClones);
+
+                    boolean isClone = isStatementClone;
+                    if (!isClone && cloneSimilarity > 0) {
+                        Boolean isNearMiss = graph.getNearMissEdge(i, blockIndex);
+                        if (isNearMiss == null) {
+                            if (nearMissDetector == null) {
+                                nearMissDetector = getNearMissDetector(blockBodies);
+                            }
+
+                            isNearMiss = nearMissDetector.isClone(i, blockIndex);
+                            graph.addNearMissEdge(i, blockIndex, isNearMiss);
+                        }
+
+                        isClone = isNearMiss && !isNested(codeBlocks, i, blockIndex);
+                    }
+
+                    if (isClone) {
+                        clusters.union(i, blockIndex);
                     }
                 }
 
-                boolean hasClone = false;
+                // The blocks nested in a clone are reported with it
+                if (clusters.getClusterSize(i) > 1) {
+                    i = BlockClones.getNextNonNested(parents, i);
+                }
+            }
 
-                for (int blockIndex : rangeOfBlocks) {
-                    FeedbackIdentifier feedbackId;
-                    int line;
-                    String methodName;
-                    if (i > blockIndex) {
-                        line = Utils.getLineNumber(codeBlocks[i]);
-                        methodName = Utils.getMethodName(codeBlocks[i]);
-                        feedbackId = new FeedbackIdentifier(Utils.getPointer(codeBlocks[i]), Utils.getPointer(codeBlocks[blockIndex]), blockIndex + "-block-" + INSPECTION_NAME, PsiStmtType.BLOCK, line);
-                    } else {
-                        line = Utils.getLineNumber(codeBlocks[blockIndex]);
-                        methodName = Utils.getMethodName(codeBlocks[blockIndex]);
-                        feedbackId = new FeedbackIdentifier(Utils.getPointer(codeBlocks[blockIndex]), Utils.getPointer(codeBlocks[i]), i + "-block-" + INSPECTION_NAME, PsiStmtType.BLOCK, line);
+            Map<Integer, List<Integer>> blockClusters = new HashMap<>();
+            for (int block = 0; block < codeBlocks.length; block++) {
+                blockClusters.computeIfAbsent(clusters.find(block), root -> new ArrayList<>()).add(block);
+            }
+
+            // One report for each cluster of clones, on the first block in it
+            for (int block = 0; block < codeBlocks.length; block++) {
+                List<Integer> cluster = blockClusters.get(clusters.find(block));
+                if (cluster.size() < 2 || cluster.get(0) != block) {
+                    cluster = null;
+                }
+
+                // Only report clusters which have changed, or whose blocks have
+                if (!graph.updateBlockCluster(block, cluster)) {
+                    continue;
+                }
+
+                int line = Utils.getLineNumber(codeBlocks[block]);
+                FeedbackIdentifier feedbackId = new FeedbackIdentifier(codeBlocks[block], "block-" + INSPECTION_NAME, PsiStmtType.BLOCK, line);
+
+                if (cluster != null) {
+                    List<Integer> cloneLines = new ArrayList<>();
+                    for (int member : cluster.subList(1, cluster.size())) {
+                        cloneLines.add(Utils.getLineNumber(codeBlocks[member]));
                     }
 
-                    Pair<Pair<Integer, Integer>, Pair<Integer, Integer>> cloneSequence = CodeCloneUtils.containsBlockClone(intersection, blockIndex, false);
-                    if (cloneSequence != null) {
-                        Feedback feedback = new Feedback(line,
-                                filename,
-                                line + "-block-" + INSPECTION_NAME,
-                                priority,
-                                aClass.getName(),
-                                methodName,
-                                FeedbackType.CLONE);
-                        feedbackHolder.addFeedback(holder.getProject(), filename, feedbackId, feedback);
-                        hasClone = true;
-                    } else {
-                        feedbackHolder.fixFeedback(holder.getProject(), filename, feedbackId);
+                    Feedback feedback = new Feedback(line,
+                            filename,
+                            line + "-block-" + INSPECTION_NAME,
+                            priority,
+                            aClass.getName(),
+                            Utils.getMethodName(codeBlocks[block]),
+                            FeedbackType.CLONE,
+                            cloneLines);
+                    feedbackHolder.addFeedback(holder.getProject(), filename, feedbackId, feedback);
+                } else {
+                    feedbackHolder.fixFeedback(holder.getProject(), filename, feedbackId);
+                }
+            }
+
+            graph.complete();
+            aClass.putUserData(CLONE_GRAPH_KEY, graph);
+        }
+
+        // A block shares most of its tokens with a block wrapped around it, which is not duplication
+        private static boolean isNested(PsiCodeBlock[] codeBlocks, int block, int otherBlock) {
+            return PsiTreeUtil.isAncestor(codeBlocks[block], codeBlocks[otherBlock], true)
+                    || PsiTreeUtil.isAncestor(codeBlocks[otherBlock], codeBlocks[block], true);
+        }
+
+        private NearMissCloneDetector getNearMissDetector(PsiStatement[][] blockBodies) {
+            int[][] blockTokens = new int[blockBodies.length][];
+
+            for (int i = 0; i < blockBodies.length; i++) {
+                TokenBuffer buffer = new TokenBuffer();
+                for (int j = 0; j < blockBodies[i].length && blockBodies[i][j] != null; j++) {
+                    int[] tokens = TokeniseUtils.getStatementTokens(blockBodies[i][j]).getTokens();
+                    if (tokens != null) {
+                        for (int token : tokens) {
+                            buffer.add(token);
+                        }
                     }
                 }
+                blockTokens[i] = buffer.toArray(0);
+            }
+
+            return new NearMissCloneDetector(blockTokens, cloneSimilarity);
+        }
+
+        private SequenceCloneDetector getSequenceDetector(PsiStatement[][] blockBodies) {
+            long[][] sequences = new long[blockBodies.length][];
+            int[][] weights = new int[blockBodies.length][];
+
+            for (int i = 0; i < blockBodies.length; i++) {
+                int length = 0;
+                while (length < blockBodies[i].length && blockBodies[i][length] != null) {
+                    length++;
+                }
+
+                sequences[i] = new long[length];
+                weights[i] = new int[length];
+                for (int j = 0; j < length; j++) {
+                    StatementTokens statementTokens = TokeniseUtils.getStatementTokens(blockBodies[i][j]);
+                    // Statements that cannot be tokenised or are never compared are never clones, so give each its own value
+                    boolean isCompared = statementTokens.getTokens() != null && CodeCloneUtils.isComparedForClones(blockBodies[i][j]);
+                    sequences[i][j] = isCompared ? statementTokens.getFingerprint() : ~(((long) i << 32) | j);
+                    weights[i][j] = statementTokens.getStatementCount();
+                }
+            }
+
+            return new SequenceCloneDetector(sequences, weights);
+        }
 
-                if (hasClone) {
-                    i = CodeCloneUtils.getNextNonNested(parents, i);
+        private long[] getBlockKeys(PsiCodeBlock[] codeBlocks) {
+            long[] blockKeys = new long[codeBlocks.length];
+
+            for (int i = 0; i < codeBlocks.length; i++) {
+                PsiStatement[] statements = codeBlocks[i].getStatements();
+                long[] fingerprints = new long[statements.length];
+                for (int j = 0; j < statements.length; j++) {
+                    fingerprints[j] = TokeniseUtils.getStatementTokens(statements[j]).getFingerprint();
                 }
+
+                blockKeys[i] = CloneGraph.getBlockKey(fingerprints, i, Utils.getLineNumber(codeBlocks[i]), Utils.getMethodName(codeBlocks[i]));
             }
+
+            return blockKeys;
         }
 
         private void cloneInit(PsiStatement[][] bodies,
@@ -379,125 +498,57 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
         }
 
         private <T extends PsiElement> void compareStatements(Map<T, CloneExpression> map) {
-            for (Map.Entry<T, CloneExpression> entry : map.entrySet()) {
-                T entryKey = entry.getKey();
-                CloneExpression entryValue = entry.getValue();
-                String[] entryStringRep = entryValue.getStringRep();
-
-                for (Map.Entry<T, CloneExpression> otherEntry : map.entrySet()) {
-                    T otherEntryKey = otherEntry.getKey();
-                    CloneExpression otherEntryValue = otherEntry.getValue();
-                    String[] otherEntryStringRep = otherEntryValue.getStringRep();
-
-                    if (entryKey.equals(otherEntryKey)) {
-                        continue;
-                    }
+            List<Map.Entry<T, CloneExpression>> entries = new ArrayList<>(map.entrySet());
+            if (entries.isEmpty()) {
+                return;
+            }
 
-                    if (Arrays.equals(entryStringRep, otherEntryStringRep)) {
-                        updateCloneSet(entryValue, otherEntryValue);
-                        updateCloneSet(otherEntryValue, entryValue);
-                        continue;
-                    }
+            // Every statement in a map is of the same kind
+            StatementKind kind = CodeCloneUtils.getStatementKind(entries.get(0).getKey());
 
-                    boolean update = false;
+            List<CloneExpression> expressions = new ArrayList<>(entries.size());
+            for (Map.Entry<T, CloneExpression> entry : entries) {
+                expressions.add(entry.getValue());
+            }
 
-                    if (entryKey instanceof PsiDeclarationStatement) {
-                        if (CodeCloneUtils.declChangeInVarName(entryStringRep, otherEntryStringRep)) {
-                            update = true;
-                        }
-                    } else if (entryKey instanceof PsiIfStatement) {
-                        if (CodeCloneUtils.sameIfCondition(entryStringRep, otherEntryStringRep)) {
-                            PsiIfStatement ifStmt = (PsiIfStatement) entryKey;
-                            PsiIfStatement otherIfStmt = (PsiIfStatement) otherEntryKey;
+            StatementClones.compareStatements(kind, expressions,
+                    (index, otherIndex) -> haveSimilarBodies(entries.get(index).getKey(), entries.get(otherIndex).getKey()));
+        }
 
-                            if (areSimilarBlocks(ifStmt.getThenBranch(), otherIfStmt.getThenBranch())) {
-                                update = true;
-                            }
-                        } else if (CodeCloneUtils.sameIfBody(entryStringRep, otherEntryStringRep)) {
-                            if (CodeCloneUtils.conditionChangeInLhs(entryStringRep, otherEntryStringRep)) {
-                                update = true;
-                            } else if (CodeCloneUtils.conditionChangeInRhs(entryStringRep, otherEntryStringRep)) {
-                                update = true;
-                            } else if (CodeCloneUtils.conditionPartial(entryStringRep, otherEntryStringRep)) {
-                                update = true;
-                            }
-                        }
-                    } else if (entryKey instanceof PsiAssignmentExpression) {
-                        if (CodeCloneUtils.changeInRHS(entryStringRep, otherEntryStringRep)) {
-                            update = true;
-                        } else if (CodeCloneUtils.changeInOp(entryStringRep, otherEntryStringRep)) {
-                            update = true;
-                        } else if (CodeCloneUtils.changeInLHS(entryStringRep, otherEntryStringRep)) {
-                            update = true;
-                        }
-                    } else if (entryKey instanceof PsiForStatement) {
-                        if (CodeCloneUtils.sameForSetup(entryStringRep, otherEntryStringRep)) {
-                            PsiForStatement forStmt = (PsiForStatement) entryKey;
-                            PsiForStatement otherForStmt = (PsiForStatement) otherEntryKey;
+        private boolean haveSimilarBodies(PsiElement stat, PsiElement otherStat) {
+            if (stat instanceof PsiIfStatement) {
+                return areSimilarBlocks(((PsiIfStatement) stat).getThenBranch(), ((PsiIfStatement) otherStat).getThenBranch());
+            }
 
-                            if (areSimilarBlocks(forStmt.getBody(), otherForStmt.getBody())) {
-                                update = true;
-                            }
-                        }
-                    } else if (entryKey instanceof PsiForeachStatement) {
-                        if (CodeCloneUtils.sameForEachSetup(entryStringRep, otherEntryStringRep)) {
-                            PsiForeachStatement forEachStmt = (PsiForeachStatement) entryKey;
-                            PsiForeachStatement otherForEachStmt = (PsiForeachStatement) otherEntryKey;
+            if (stat instanceof PsiLoopStatement) {
+                return areSimilarBlocks(((PsiLoopStatement) stat).getBody(), ((PsiLoopStatement) otherStat).getBody());
+            }
 
-                            if (areSimilarBlocks(forEachStmt.getBody(), otherForEachStmt.getBody())) {
-                                update = true;
-                            }
-                        }
-                    } else if (entryKey instanceof PsiWhileStatement) {
-                        if (CodeCloneUtils.sameWhileCondition(entryStringRep, otherEntryStringRep)) {
-                            PsiWhileStatement whileStmt = (PsiWhileStatement) entryKey;
-                            PsiWhileStatement otherWhileStmt = (PsiWhileStatement) otherEntryKey;
+            if (stat instanceof PsiSwitchStatement) {
+                return haveSimilarSwitchBodies((PsiSwitchStatement) stat, (PsiSwitchStatement) otherStat);
+            }
 
-                            if (areSimilarBlocks(whileStmt.getBody(), otherWhileStmt.getBody())) {
-                                update = true;
-                            }
-                        }
-                    } else if (entryKey instanceof PsiDoWhileStatement) {
-                        if (CodeCloneUtils.sameDoWhileCondition(entryStringRep, otherEntryStringRep)) {
-                            PsiDoWhileStatement doWhileStmt = (PsiDoWhileStatement) entryKey;
-                            PsiDoWhileStatement otherDoWhileStmt = (PsiDoWhileStatement) otherEntryKey;
+            return false;
+        }
 
-                            if (areSimilarBlocks(doWhileStmt.getBody(), otherDoWhileStmt.getBody())) {
-                                update = true;
-                            }
-                        }
-                    } else if (entryKey instanceof PsiSwitchStatement) {
-                        if (CodeCloneUtils.sameSwitchVar(entryStringRep, otherEntryStringRep)) {
-                            PsiSwitchStatement switchStmt = (PsiSwitchStatement) entryKey;
-                            PsiSwitchStatement otherSwitchStmt = (PsiSwitchStatement) otherEntryKey;
+        private boolean haveSimilarSwitchBodies(PsiSwitchStatement switchStmt, PsiSwitchStatement otherSwitchStmt) {
+            PsiCodeBlock body = switchStmt.getBody();
+            PsiCodeBlock otherBody = otherSwitchStmt.getBody();
 
-                            if (haveSimilarSwitchBodies(switchStmt, otherSwitchStmt)) {
-                                update = true;
-                            }
-                        }
-                    } else if (entryKey instanceof PsiPrefixExpression) {
-                        if (CodeCloneUtils.prefixExprChangeInVar(entryStringRep, otherEntryStringRep)) {
-                            update = true;
-                        } else if (CodeCloneUtils.prefixExprChangeInOp(entryStringRep, otherEntryStringRep)) {
-                            update = true;
-                        }
-                    } else if (entryKey instanceof PsiPostfixExpression) {
-                        if (CodeCloneUtils.postfixExprChangeInVar(entryStringRep, otherEntryStringRep)) {
-                            update = true;
-                        } else if (CodeCloneUtils.postfixExprChangeInOp(entryStringRep, otherEntryStringRep)) {
-                            update = true;
-                        }
-                    }
+            if (body != null && otherBody != null && SubtreeHash.isSameSubtree(body, otherBody)) {
+                return true;
+            }
 
-                    if (update) {
-                        updateCloneSet(entryValue, otherEntryValue);
-                        updateCloneSet(otherEntryValue, entryValue);
-                    }
-                }
+            Boolean isSimilar = similarBodies.get(body, otherBody);
+            if (isSimilar == null) {
+                isSimilar = compareSwitchBodies(body, otherBody);
+                similarBodies.put(body, otherBody, isSimilar);
             }
+
+            return isSimilar;
         }
 
-        private boolean haveSimilarSwitchBodies(PsiSwitchStatement switchStmt, PsiSwitchStatement otherSwitchStmt) {
+        private boolean compareSwitchBodies(PsiCodeBlock body, PsiCodeBlock otherBody) {
             Map<PsiDeclarationStatement, CloneExpression> declarationMap = new HashMap<>();
             Map<PsiAssignmentExpression, CloneExpression> assignmentMap = new HashMap<>();
             Map<PsiIfStatement, CloneExpression> ifStmtMap = new HashMap<>();
@@ -514,9 +565,6 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
             Map<PsiPrefixExpression, CloneExpression> prefixMap = new HashMap<>();
             Map<PsiPostfixExpression, CloneExpression> postfixMap = new HashMap<>();
 
-            PsiCodeBlock body = switchStmt.getBody();
-            PsiCodeBlock otherBody = otherSwitchStmt.getBody();
-
             if (body == null && otherBody == null) {
                 return true;
             }
@@ -536,7 +584,7 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
                     continue;
                 }
 
-                Set<Location> intersection = getClones(blocks[i][0],
+                LocationSet intersection = getCombinedClones(blocks[i],
                         declarationMap, assignmentMap,
                         ifStmtMap, methodCallMap,
                         returnMap, forLoopMap,
@@ -546,37 +594,8 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
                         tryMap, throwMap,
                         prefixMap, postfixMap);
 
-                if (intersection == null || intersection.size() == 0) {
-                    intersection = new LinkedHashSet<>();
-                    intersection.add(new Location(-1, -1));
-                }
-
-                for (int j = 1; j < blocks[0].length; j++) {
-                    if (blocks[i][j] == null) {
-                        break;
-                    }
-
-                    Set<Location> currClones = getClones(blocks[i][j],
-                            declarationMap, assignmentMap,
-                            ifStmtMap, methodCallMap,
-                            returnMap, forLoopMap,
-                            forEachLoopMap, whileLoopMap,
-                            doWhileLoopMap,
-                            switchMap, assertMap,
-                            tryMap, throwMap,
-                            prefixMap, postfixMap);
-
-                    if (currClones == null) {
-                        Set<Location> dummy = new LinkedHashSet<>();
-                        dummy.add(new Location(-1, -1));
-                        intersection = CodeCloneUtils.getCombinedClones(intersection, dummy);
-                    } else {
-                        intersection = CodeCloneUtils.getCombinedClones(intersection, currClones);
-                    }
-                }
-
                 // Must be a clone of the following block
-                if (CodeCloneUtils.containsBlockClone(intersection, i + 1, true) == null) {
+                if (BlockClones.containsBlockClone(intersection, i + 1, true) == null) {
                     return false;
                 }
             }
@@ -585,6 +604,20 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
         }
 
         private boolean areSimilarBlocks(PsiStatement stat, PsiStatement otherStat) {
+            if (stat != null && otherStat != null && SubtreeHash.isSameSubtree(stat, otherStat)) {
+                return true;
+            }
+
+            Boolean isSimilar = similarBodies.get(stat, otherStat);
+            if (isSimilar == null) {
+                isSimilar = compareBlocks(stat, otherStat);
+                similarBodies.put(stat, otherStat, isSimilar);
+            }
+
+            return isSimilar;
+        }
+
+        private boolean compareBlocks(PsiStatement stat, PsiStatement otherStat) {
             Map<PsiDeclarationStatement, CloneExpression> declarationMap = new HashMap<>();
             Map<PsiAssignmentExpression, CloneExpression> assignmentMap = new HashMap<>();
             Map<PsiIfStatement, CloneExpression> ifStmtMap = new HashMap<>();
@@ -617,7 +650,7 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
             //Both not empty - need to check they are the same
 
             for (int i = 0; i < blocks.length; i++) {
-                Set<Location> intersection = getClones(blocks[i][0],
+                LocationSet intersection = getCombinedClones(blocks[i],
                         declarationMap, assignmentMap,
                         ifStmtMap, methodCallMap,
                         returnMap, forLoopMap,
@@ -627,35 +660,8 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
                         tryMap, throwMap,
                         prefixMap, postfixMap);
 
-                if (intersection == null || intersection.size() == 0) {
-                    intersection = new LinkedHashSet<>();
-                    intersection.add(new Location(-1, -1));
-                }
-
-                for (int j = 1; j < blocks[0].length; j++) {
-                    if (blocks[i][j] == null) {
-                        break;
-                    }
-                    Set<Location> currClones = getClones(blocks[i][j],
-                            declarationMap, assignmentMap,
-                            ifStmtMap, methodCallMap,
-                            returnMap, forLoopMap,
-                            forEachLoopMap, whileLoopMap,
-                            doWhileLoopMap,
-                            switchMap, assertMap,
-                            tryMap, throwMap,
-                            prefixMap, postfixMap);
-                    if (currClones == null) {
-                        Set<Location> dummy = new LinkedHashSet<>();
-                        dummy.add(new Location(-1, -1));
-                        intersection = CodeCloneUtils.getCombinedClones(intersection, dummy);
-                    } else {
-                        intersection = CodeCloneUtils.getCombinedClones(intersection, currClones);
-                    }
-                }
-
                 int otherBlock = i == 0 ? 1 : 0;
-                if (CodeCloneUtils.containsBlockClone(intersection, otherBlock, true) != null) {
+                if (BlockClones.containsBlockClone(intersection, otherBlock, true) != null) {
                     return true;
                 }
             }
@@ -663,16 +669,6 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
             return false;
         }
 
-        private void updateCloneSet(CloneExpression cloneExpr, CloneExpression otherCloneExpr) {
-            Set<Location> existingClones = cloneExpr.getClones();
-            Location location = otherCloneExpr.getLocation();
-            if (existingClones == null) {
-                existingClones = new LinkedHashSet<>();
-            }
-            existingClones.add(location);
-            cloneExpr.setClones(existingClones);
-        }
-
         private void addStatToMap(PsiStatement stat, Location location,
                                   Map<PsiDeclarationStatement, CloneExpression> declarationMap,
                                   Map<PsiAssignmentExpression, CloneExpression> assignmentMap,
@@ -689,12 +685,12 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
                                   Map<PsiThrowStatement, CloneExpression> throwMap,
                                   Map<PsiPrefixExpression, CloneExpression> prefixMap,
                                   Map<PsiPostfixExpression, CloneExpression> postfixMap) {
-            String[] stringRep = TokeniseUtils.getStmtAsStringArray(stat);
+            StatementTokens statementTokens = TokeniseUtils.getStatementTokens(stat);
+            int[] tokens = statementTokens.getTokens();
 
-            int statementCount = CodeCloneUtils.getStatementCount(stat);
-            location.setStatementCount(statementCount);
+            location.setStatementCount(statementTokens.getStatementCount());
 
-            if (stringRep == null) {
+            if (tokens == null) {
                 return;
             }
 
@@ -702,110 +698,147 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
                 PsiExpression expr = ((PsiExpressionStatement) stat).getExpression();
                 if (expr instanceof PsiAssignmentExpression) {
                     PsiAssignmentExpression assExpr = (PsiAssignmentExpression) expr;
-                    assignmentMap.put(assExpr, new CloneExpression(stringRep, location));
+                    assignmentMap.put(assExpr, new CloneExpression(statementTokens, location));
                     return;
                 }
 
                 if (expr instanceof PsiMethodCallExpression) {
                     PsiMethodCallExpression callExpr = (PsiMethodCallExpression) expr;
-                    methodCallMap.put(callExpr, new CloneExpression(stringRep, location));
+                    methodCallMap.put(callExpr, new CloneExpression(statementTokens, location));
                     return;
                 }
                 if (expr instanceof PsiPrefixExpression) {
                     PsiPrefixExpression prefixExpr = (PsiPrefixExpression) expr;
-                    prefixMap.put(prefixExpr, new CloneExpression(stringRep, location));
+                    prefixMap.put(prefixExpr, new CloneExpression(statementTokens, location));
                     return;
                 }
                 if (expr instanceof PsiPostfixExpression) {
                     PsiPostfixExpression postfixExpr = (PsiPostfixExpression) expr;
-                    postfixMap.put(postfixExpr, new CloneExpression(stringRep, location));
+                    postfixMap.put(postfixExpr, new CloneExpression(statementTokens, location));
                     return;
                 }
             }
 
             if (stat instanceof PsiIfStatement) {
                 PsiIfStatement ifStmt = (PsiIfStatement) stat;
-                ifStmtMap.put(ifStmt, new CloneExpression(stringRep, location));
+                ifStmtMap.put(ifStmt, new CloneExpression(statementTokens, location));
                 return;
             }
 
             if (stat instanceof PsiDeclarationStatement) {
                 PsiDeclarationStatement declStmt = (PsiDeclarationStatement) stat;
-                declarationMap.put(declStmt, new CloneExpression(stringRep, location));
+                declarationMap.put(declStmt, new CloneExpression(statementTokens, location));
                 return;
             }
 
             if (stat instanceof PsiReturnStatement) {
                 PsiReturnStatement returnStat = (PsiReturnStatement) stat;
-                returnMap.put(returnStat, new CloneExpression(stringRep, location));
+                returnMap.put(returnStat, new CloneExpression(statementTokens, location));
                 return;
             }
 
             if (stat instanceof PsiForStatement) {
                 PsiForStatement forStat = (PsiForStatement) stat;
-                forLoopMap.put(forStat, new CloneExpression(stringRep, location));
+                forLoopMap.put(forStat, new CloneExpression(statementTokens, location));
                 return;
             }
 
             if (stat instanceof PsiForeachStatement) {
                 PsiForeachStatement forEachStat = (PsiForeachStatement) stat;
-                forEachLoopMap.put(forEachStat, new CloneExpression(stringRep, location));
+                forEachLoopMap.put(forEachStat, new CloneExpression(statementTokens, location));
                 return;
             }
 
             if (stat instanceof PsiWhileStatement) {
                 PsiWhileStatement whileStat = (PsiWhileStatement) stat;
-                whileLoopMap.put(whileStat, new CloneExpression(stringRep, location));
+                whileLoopMap.put(whileStat, new CloneExpression(statementTokens, location));
                 return;
             }
 
             if (stat instanceof PsiDoWhileStatement) {
                 PsiDoWhileStatement doWhileStat = (PsiDoWhileStatement) stat;
-                doWhileLoopMap.put(doWhileStat, new CloneExpression(stringRep, location));
+                doWhileLoopMap.put(doWhileStat, new CloneExpression(statementTokens, location));
                 return;
             }
 
             if (stat instanceof PsiSwitchStatement) {
                 PsiSwitchStatement switchStat = (PsiSwitchStatement) stat;
-                switchMap.put(switchStat, new CloneExpression(stringRep, location));
+                switchMap.put(switchStat, new CloneExpression(statementTokens, location));
                 return;
             }
 
             if (stat instanceof PsiAssertStatement) {
                 PsiAssertStatement assertStat = (PsiAssertStatement) stat;
-                assertMap.put(assertStat, new CloneExpression(stringRep, location));
+                assertMap.put(assertStat, new CloneExpression(statementTokens, location));
                 return;
             }
 
             if (stat instanceof PsiTryStatement) {
                 PsiTryStatement tryStat = (PsiTryStatement) stat;
-                tryMap.put(tryStat, new CloneExpression(stringRep, location));
+                tryMap.put(tryStat, new CloneExpression(statementTokens, location));
                 return;
             }
 
             if (stat instanceof PsiThrowStatement) {
                 PsiThrowStatement throwStat = (PsiThrowStatement) stat;
-                throwMap.put(throwStat, new CloneExpression(stringRep, location));
+                throwMap.put(throwStat, new CloneExpression(statementTokens, location));
                 return;
             }
         }
 
-        private Set<Location> getClones(PsiStatement stat,
-                                        Map<PsiDeclarationStatement, CloneExpression> declarationMap,
-                                        Map<PsiAssignmentExpression, CloneExpression> assignmentMap,
-                                        Map<PsiIfStatement, CloneExpression> ifStmtMap,
-                                        Map<PsiMethodCallExpression, CloneExpression> methodCallMap,
-                                        Map<PsiReturnStatement, CloneExpression> returnMap,
-                                        Map<PsiForStatement, CloneExpression> forLoopMap,
-                                        Map<PsiForeachStatement, CloneExpression> forEachLoopMap,
-                                        Map<PsiWhileStatement, CloneExpression> whileLoopMap,
-                                        Map<PsiDoWhileStatement, CloneExpression> doWhileLoopMap,
-                                        Map<PsiSwitchStatement, CloneExpression> switchMap,
-                                        Map<PsiAssertStatement, CloneExpression> assertMap,
-                                        Map<PsiTryStatement, CloneExpression> tryMap,
-                                        Map<PsiThrowStatement, CloneExpression> throwMap,
-                                        Map<PsiPrefixExpression, CloneExpression> prefixMap,
-                                        Map<PsiPostfixExpression, CloneExpression> postfixMap) {
+        // The statements of a block run until the first null
+        private LocationSet getCombinedClones(PsiStatement[] statements,
+                                              Map<PsiDeclarationStatement, CloneExpression> declarationMap,
+                                              Map<PsiAssignmentExpression, CloneExpression> assignmentMap,
+                                              Map<PsiIfStatement, CloneExpression> ifStmtMap,
+                                              Map<PsiMethodCallExpression, CloneExpression> methodCallMap,
+                                              Map<PsiReturnStatement, CloneExpression> returnMap,
+                                              Map<PsiForStatement, CloneExpression> forLoopMap,
+                                              Map<PsiForeachStatement, CloneExpression> forEachLoopMap,
+                                              Map<PsiWhileStatement, CloneExpression> whileLoopMap,
+                                              Map<PsiDoWhileStatement, CloneExpression> doWhileLoopMap,
+                                              Map<PsiSwitchStatement, CloneExpression> switchMap,
+                                              Map<PsiAssertStatement, CloneExpression> assertMap,
+                                              Map<PsiTryStatement, CloneExpression> tryMap,
+                                              Map<PsiThrowStatement, CloneExpression> throwMap,
+                                              Map<PsiPrefixExpression, CloneExpression> prefixMap,
+                                              Map<PsiPostfixExpression, CloneExpression> postfixMap) {
+            List<LocationSet> statementClones = new ArrayList<>();
+            for (PsiStatement statement : statements) {
+                if (statement == null) {
+                    break;
+                }
+
+                statementClones.add(getClones(statement,
+                        declarationMap, assignmentMap,
+                        ifStmtMap, methodCallMap,
+                        returnMap, forLoopMap,
+                        forEachLoopMap, whileLoopMap,
+                        doWhileLoopMap,
+                        switchMap, assertMap,
+                        tryMap, throwMap,
+                        prefixMap, postfixMap));
+            }
+
+            return BlockClones.combineClones(statementClones);
+        }
+
+        private LocationSet getClones(PsiStatement stat,
+                                      Map<PsiDeclarationStatement, CloneExpression> declarationMap,
+                                      Map<PsiAssignmentExpression, CloneExpression> assignmentMap,
+                                      Map<PsiIfStatement, CloneExpression> ifStmtMap,
+                                      Map<PsiMethodCallExpression, CloneExpression> methodCallMap,
+                                      Map<PsiReturnStatement, CloneExpression> returnMap,
+                                      Map<PsiForStatement, CloneExpression> forLoopMap,
+                                      Map<PsiForeachStatement, CloneExpression> forEachLoopMap,
+                                      Map<PsiWhileStatement, CloneExpression> whileLoopMap,
+                                      Map<PsiDoWhileStatement, CloneExpression> doWhileLoopMap,
+                                      Map<PsiSwitchStatement, CloneExpression> switchMap,
+                                      Map<PsiAssertStatement, CloneExpression> assertMap,
+                                      Map<PsiTryStatement, CloneExpression> tryMap,
+                                      Map<PsiThrowStatement, CloneExpression> throwMap,
+                                      Map<PsiPrefixExpression, CloneExpression> prefixMap,
+                                      Map<PsiPostfixExpression, CloneExpression> postfixMap) {
             if (stat instanceof PsiExpressionStatement) {
                 PsiExpression expr = ((PsiExpressionStatement) stat).getExpression();
                 if (expr instanceof PsiAssignmentExpression) {
@@ -906,24 +939,24 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
                 return;
             }
 
-            Map<PsiPolyadicExpression, String[]> polyadicMap = new HashMap<>();
+            Map<PsiPolyadicExpression, int[]> polyadicMap = new HashMap<>();
             Map<PsiPolyadicExpression, Integer> polyadicLocationMap = new HashMap<>();
 
             for (int i = 0; i < polyExprs.length; i++) {
                 PsiPolyadicExpression expr = polyExprs[i];
-                polyadicMap.put(expr, TokeniseUtils.getPolyExprAsStringArray(expr));
+                polyadicMap.put(expr, TokeniseUtils.getPolyExprAsTokens(expr));
                 polyadicLocationMap.put(expr, i);
             }
 
             String filename = aClass.getContainingFile().getName();
 
-            for (Map.Entry<PsiPolyadicExpression, String[]> expr : polyadicMap.entrySet()) {
+            for (Map.Entry<PsiPolyadicExpression, int[]> expr : polyadicMap.entrySet()) {
                 PsiPolyadicExpression exprKey = expr.getKey();
-                String[] exprStringRep = expr.getValue();
+                int[] exprTokens = expr.getValue();
 
-                for (Map.Entry<PsiPolyadicExpression, String[]> otherExpr : polyadicMap.entrySet()) {
+                for (Map.Entry<PsiPolyadicExpression, int[]> otherExpr : polyadicMap.entrySet()) {
                     PsiPolyadicExpression otherExprKey = otherExpr.getKey();
-                    String[] otherExprStringRep = otherExpr.getValue();
+                    int[] otherExprTokens = otherExpr.getValue();
 
                     if (exprKey.equals(otherExprKey)) {
                         continue;
@@ -935,14 +968,14 @@ public final class CloneInspection extends AbstractBaseJavaLocalInspectionTool {
                     if (polyadicLocationMap.get(exprKey) > polyadicLocationMap.get(otherExprKey)) {
                         line = Utils.getLineNumber(exprKey);
                         methodName = Utils.getMethodName(exprKey);
-                        feedbackId = new FeedbackIdentifier(Utils.getPointer(exprKey), Utils.getPointer(otherExprKey), polyadicLocationMap.get(otherExprKey) + "-polyadic-" + INSPECTION_NAME, PsiStmtType.POLYADIC_EXPR, line);
+                        feedbackId = new FeedbackIdentifier(exprKey, otherExprKey, polyadicLocationMap.get(otherExprKey) + "-polyadic-" + INSPECTION_NAME, PsiStmtType.POLYADIC_EXPR, line);
                     } else {
                         line = Utils.getLineNumber(otherExprKey);
                         methodName = Utils.getMethodName(otherExprKey);
-                        feedbackId = new FeedbackIdentifier(Utils.getPointer(otherExprKey), Utils.getPointer(exprKey), polyadicLocationMap.get(exprKey) + "-polyadic-" + INSPECTION_NAME, PsiStmtType.POLYADIC_EXPR, line);
+                        feedbackId = new FeedbackIdentifier(otherExprKey, exprKey, polyadicLocationMap.get(exprKey) + "-polyadic-" + INSPECTION_NAME, PsiStmtType.POLYADIC_EXPR, line);
                     }
 
-                    if (Arrays.equals(exprStringRep, otherExprStringRep)) {
+                    if (Arrays.equals(exprTokens, otherExprTokens)) {
                         Feedback feedback = new Feedback(line,
                                 filename,
                                 line + "-polyadic-" + INSPECTION_NAME,
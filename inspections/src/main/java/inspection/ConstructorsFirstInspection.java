@@ -1,7 +1,6 @@
 package inspection;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.*;
 import feedback.Feedback;
@@ -15,7 +14,7 @@ import util.InspectionPriority;
 import util.PsiStmtType;
 import util.Utils;
 
-public final class ConstructorsFirstInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class ConstructorsFirstInspection extends MeasuredInspection {
 
     private static final String INSPECTION_NAME = "constructors-first";
 
@@ -66,7 +65,7 @@ public final class ConstructorsFirstInspection extends AbstractBaseJavaLocalInsp
                     return;
                 }
 
-                feedbackHolder.writeToFile();
+                feedbackHolder.writeToFile(holder.getProject());
             }
 
             @Override
@@ -86,7 +85,7 @@ public final class ConstructorsFirstInspection extends AbstractBaseJavaLocalInsp
 
                 for (PsiMethod m : methods) {
                     int line = Utils.getLineNumber(m);
-                    FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(m), INSPECTION_NAME, PsiStmtType.METHOD, line);
+                    FeedbackIdentifier feedbackId = new FeedbackIdentifier(m, INSPECTION_NAME, PsiStmtType.METHOD, line);
 
                     if (isClassConstructor(m, className) && !prevIsCons) {
                         Feedback feedback = new Feedback(line,
@@ -1,7 +1,6 @@
 package inspection;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.*;
 import com.intellij.psi.tree.IElementType;
@@ -13,7 +12,7 @@ import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import util.*;
 
-public final class FieldsFirstInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class FieldsFirstInspection extends MeasuredInspection {
 
     private static final String INSPECTION_NAME = "fields-first";
 
@@ -63,7 +62,7 @@ public final class FieldsFirstInspection extends AbstractBaseJavaLocalInspection
                     return;
                 }
 
-                feedbackHolder.writeToFile();
+                feedbackHolder.writeToFile(holder.getProject());
             }
 
             @Override
@@ -100,7 +99,7 @@ public final class FieldsFirstInspection extends AbstractBaseJavaLocalInspection
 
                 String filename = field.getContainingFile().getName();
                 int line = Utils.getLineNumber(field);
-                FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(field), INSPECTION_NAME, PsiStmtType.FIELD, line);
+                FeedbackIdentifier feedbackId = new FeedbackIdentifier(field, INSPECTION_NAME, PsiStmtType.FIELD, line);
 
                 if (registerProblem) {
                     Feedback feedback = new Feedback(line,
@@ -1,7 +1,6 @@
 package inspection;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.*;
 import feedback.Feedback;
@@ -14,7 +13,7 @@ import util.InspectionPriority;
 import util.PsiStmtType;
 import util.Utils;
 
-public final class IfReturnElseInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class IfReturnElseInspection extends MeasuredInspection {
 
     private static final String INSPECTION_NAME = "redundant-else";
 
@@ -66,7 +65,7 @@ public final class IfReturnElseInspection extends AbstractBaseJavaLocalInspectio
                     return;
                 }
 
-                feedbackHolder.writeToFile();
+                feedbackHolder.writeToFile(holder.getProject());
             }
 
             @Override
@@ -79,7 +78,7 @@ public final class IfReturnElseInspection extends AbstractBaseJavaLocalInspectio
 
                 String filename = statement.getContainingFile().getName();
                 int line = Utils.getLineNumber(statement);
-                FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(statement), INSPECTION_NAME, PsiStmtType.IF, line);
+                FeedbackIdentifier feedbackId = new FeedbackIdentifier(statement, INSPECTION_NAME, PsiStmtType.IF, line);
 
                 // Check if there is an else case
                 if (statement.getElseBranch() != null) {
@@ -1,7 +1,6 @@
 package inspection;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.*;
 import feedback.Feedback;
@@ -15,7 +14,7 @@ import util.InspectionPriority;
 import util.PsiStmtType;
 import util.Utils;
 
-public final class MethodLengthInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class MethodLengthInspection extends MeasuredInspection {
 
     private static final String INSPECTION_NAME = "method-length";
     private static final int MAX_METHOD_LENGTH = 20;
@@ -67,7 +66,7 @@ public final class MethodLengthInspection extends AbstractBaseJavaLocalInspectio
                     return;
                 }
 
-                feedbackHolder.writeToFile();
+                feedbackHolder.writeToFile(holder.getProject());
             }
 
             @Override
@@ -82,7 +81,7 @@ public final class MethodLengthInspection extends AbstractBaseJavaLocalInspectio
 
                 String filename = method.getContainingFile().getName();
                 int line = Utils.getLineNumber(method);
-                FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(method), INSPECTION_NAME, PsiStmtType.METHOD, line);
+                FeedbackIdentifier feedbackId = new FeedbackIdentifier(method, INSPECTION_NAME, PsiStmtType.METHOD, line);
 
                 if (body != null && body.getStatementCount() >= MAX_METHOD_LENGTH) {
                     Feedback feedback = new Feedback(line,
@@ -1,7 +1,6 @@
 package inspection;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.*;
 import feedback.Feedback;
@@ -12,7 +11,7 @@ import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import util.*;
 
-public final class ScreamingSnakeCaseInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class ScreamingSnakeCaseInspection extends MeasuredInspection {
 
     private static final String INSPECTION_NAME = "screaming-snake-case";
 
@@ -63,7 +62,7 @@ public final class ScreamingSnakeCaseInspection extends AbstractBaseJavaLocalIns
                     return;
                 }
 
-                feedbackHolder.writeToFile();
+                feedbackHolder.writeToFile(holder.getProject());
             }
 
             @Override
@@ -82,7 +81,7 @@ public final class ScreamingSnakeCaseInspection extends AbstractBaseJavaLocalIns
                     if (field instanceof PsiEnumConstant) {
                         PsiEnumConstant enumConstant = (PsiEnumConstant) field;
                         int line = Utils.getLineNumber(enumConstant);
-                        FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(enumConstant), INSPECTION_NAME, PsiStmtType.ENUM, line);
+                        FeedbackIdentifier feedbackId = new FeedbackIdentifier(enumConstant, INSPECTION_NAME, PsiStmtType.ENUM, line);
 
                         if (!Utils.isUpperSnakeCase(enumConstant.getName())) {
                             Feedback feedback = new Feedback(line,
@@ -118,7 +117,7 @@ public final class ScreamingSnakeCaseInspection extends AbstractBaseJavaLocalIns
                     }
 
                     int line = Utils.getLineNumber(field);
-                    FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(field), INSPECTION_NAME, PsiStmtType.FIELD, line);
+                    FeedbackIdentifier feedbackId = new FeedbackIdentifier(field, INSPECTION_NAME, PsiStmtType.FIELD, line);
                     String filename = field.getContainingFile().getName();
 
                     if (modifierList.hasModifierProperty(PsiModifier.FINAL) && modifierList.hasModifierProperty(PsiModifier.STATIC) && !Utils.isUpperSnakeCase(field.getName())) {
@@ -1,7 +1,6 @@
 package inspection;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.*;
 import feedback.Feedback;
@@ -15,7 +14,7 @@ import util.InspectionPriority;
 import util.PsiStmtType;
 import util.Utils;
 
-public final class SimplifyIfInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class SimplifyIfInspection extends MeasuredInspection {
 
     private static final String INSPECTION_NAME = "simplify-if";
 
@@ -66,7 +65,7 @@ public final class SimplifyIfInspection extends AbstractBaseJavaLocalInspectionT
                     return;
                 }
 
-                feedbackHolder.writeToFile();
+                feedbackHolder.writeToFile(holder.getProject());
             }
 
             @Override
@@ -82,7 +81,7 @@ public final class SimplifyIfInspection extends AbstractBaseJavaLocalInspectionT
 
                 String filename = statement.getContainingFile().getName();
                 int line = Utils.getLineNumber(statement);
-                FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(statement), INSPECTION_NAME, PsiStmtType.IF, line);
+                FeedbackIdentifier feedbackId = new FeedbackIdentifier(statement, INSPECTION_NAME, PsiStmtType.IF, line);
 
                 int elseRes;
                 if (thenStat == null || elseStat == null) {
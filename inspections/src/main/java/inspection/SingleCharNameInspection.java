@@ -1,7 +1,6 @@
 package inspection;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.*;
 import feedback.Feedback;
@@ -15,7 +14,7 @@ import util.InspectionPriority;
 import util.PsiStmtType;
 import util.Utils;
 
-public final class SingleCharNameInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class SingleCharNameInspection extends MeasuredInspection {
 
     private static final String INSPECTION_NAME = "single-char-name";
 
@@ -65,7 +64,7 @@ public final class SingleCharNameInspection extends AbstractBaseJavaLocalInspect
                     return;
                 }
 
-                feedbackHolder.writeToFile();
+                feedbackHolder.writeToFile(holder.getProject());
             }
 
             @Override
@@ -78,7 +77,7 @@ public final class SingleCharNameInspection extends AbstractBaseJavaLocalInspect
 
                 String filename = field.getContainingFile().getName();
                 int line = Utils.getLineNumber(field);
-                FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(field), INSPECTION_NAME, PsiStmtType.FIELD, line);
+                FeedbackIdentifier feedbackId = new FeedbackIdentifier(field, INSPECTION_NAME, PsiStmtType.FIELD, line);
 
                 if (field.getName().length() == 1) {
                     Feedback feedback = new Feedback(line,
@@ -111,7 +110,7 @@ public final class SingleCharNameInspection extends AbstractBaseJavaLocalInspect
 
                         String filename = statement.getContainingFile().getName();
                         int line = Utils.getLineNumber(localElement);
-                        FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(localElement), INSPECTION_NAME, PsiStmtType.LOCAL_VAR, line);
+                        FeedbackIdentifier feedbackId = new FeedbackIdentifier(localElement, INSPECTION_NAME, PsiStmtType.LOCAL_VAR, line);
 
                         if (!(statement.getParent() instanceof PsiForeachStatement || statement.getParent() instanceof PsiForStatement)) {
                             if (localElement.getName().length() == 1) {
@@ -145,7 +144,7 @@ public final class SingleCharNameInspection extends AbstractBaseJavaLocalInspect
                 String filename = method.getContainingFile().getName();
                 int line = Utils.getLineNumber(method);
                 String className = Utils.getClassName(method);
-                FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(method), INSPECTION_NAME, PsiStmtType.METHOD, line);
+                FeedbackIdentifier feedbackId = new FeedbackIdentifier(method, INSPECTION_NAME, PsiStmtType.METHOD, line);
 
                 if (method.getName().length() == 1) {
                     Feedback feedback = new Feedback(line,
@@ -166,7 +165,7 @@ public final class SingleCharNameInspection extends AbstractBaseJavaLocalInspect
                 int index = 0;
                 for (PsiParameter p : params) {
                     line = Utils.getLineNumber(p);
-                    feedbackId = new FeedbackIdentifier(Utils.getPointer(p), INSPECTION_NAME, PsiStmtType.PARAMETER, line);
+                    feedbackId = new FeedbackIdentifier(p, INSPECTION_NAME, PsiStmtType.PARAMETER, line);
 
                     if (p.getName().length() == 1) {
                         Feedback feedback = new Feedback(line,
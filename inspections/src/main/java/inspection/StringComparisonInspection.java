@@ -1,7 +1,6 @@
 package inspection;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.*;
 import com.intellij.psi.tree.IElementType;
@@ -16,7 +15,7 @@ import util.InspectionPriority;
 import util.PsiStmtType;
 import util.Utils;
 
-public final class StringComparisonInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class StringComparisonInspection extends MeasuredInspection {
 
     private static final String INSPECTION_NAME = "string-comparison";
 
@@ -67,7 +66,7 @@ public final class StringComparisonInspection extends AbstractBaseJavaLocalInspe
                     return;
                 }
 
-                feedbackHolder.writeToFile();
+                feedbackHolder.writeToFile(holder.getProject());
             }
 
             @Override
@@ -81,7 +80,7 @@ public final class StringComparisonInspection extends AbstractBaseJavaLocalInspe
 
                 String filename = expression.getContainingFile().getName();
                 int line = Utils.getLineNumber(expression);
-                FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(expression), INSPECTION_NAME, PsiStmtType.BIN_EXPR, line);
+                FeedbackIdentifier feedbackId = new FeedbackIdentifier(expression, INSPECTION_NAME, PsiStmtType.BIN_EXPR, line);
 
                 if ((expression.getROperand() != null) && (expression.getLOperand().getType() != null) && (expression.getROperand().getType() != null)) {
                     IElementType op = expression.getOperationTokenType();
@@ -1,7 +1,6 @@
 package inspection;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.*;
 import feedback.Feedback;
@@ -16,7 +15,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-public final class StringConcatInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class StringConcatInspection extends MeasuredInspection {
 
     private static final String INSPECTION_NAME = "string-concat";
 
@@ -67,7 +66,7 @@ public final class StringConcatInspection extends AbstractBaseJavaLocalInspectio
                     return;
                 }
 
-                feedbackHolder.writeToFile();
+                feedbackHolder.writeToFile(holder.getProject());
             }
 
             @Override
@@ -247,13 +246,13 @@ public final class StringConcatInspection extends AbstractBaseJavaLocalInspectio
                         Utils.getClassName(stat),
                         Utils.getMethodName(stat),
                         FeedbackType.STRING_CONCAT);
-                FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(stat), INSPECTION_NAME, PsiStmtType.STATEMENT, line);
+                FeedbackIdentifier feedbackId = new FeedbackIdentifier(stat, INSPECTION_NAME, PsiStmtType.STATEMENT, line);
                 feedbackHolder.addFeedback(holder.getProject(), filename, feedbackId, feedback);
             }
 
             private void fixFeedback(String filename, PsiStatement stat) {
                 int line = Utils.getLineNumber(stat);
-                FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(stat), INSPECTION_NAME, PsiStmtType.STATEMENT, line);
+                FeedbackIdentifier feedbackId = new FeedbackIdentifier(stat, INSPECTION_NAME, PsiStmtType.STATEMENT, line);
                 feedbackHolder.fixFeedback(holder.getProject(), filename, feedbackId);
             }
         };
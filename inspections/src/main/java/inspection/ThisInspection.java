@@ -1,7 +1,6 @@
 package inspection;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.*;
 import feedback.Feedback;
@@ -15,7 +14,7 @@ import util.InspectionPriority;
 import util.PsiStmtType;
 import util.Utils;
 
-public final class ThisInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class ThisInspection extends MeasuredInspection {
 
     private static final String INSPECTION_NAME = "this";
 
@@ -66,7 +65,7 @@ public final class ThisInspection extends AbstractBaseJavaLocalInspectionTool {
                     return;
                 }
 
-                feedbackHolder.writeToFile();
+                feedbackHolder.writeToFile(holder.getProject());
             }
 
             @Override
@@ -79,7 +78,7 @@ public final class ThisInspection extends AbstractBaseJavaLocalInspectionTool {
 
                 String filename = expression.getContainingFile().getName();
                 int line = Utils.getLineNumber(expression);
-                FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(expression), INSPECTION_NAME + line, PsiStmtType.THIS_EXPR, line);
+                FeedbackIdentifier feedbackId = new FeedbackIdentifier(expression, INSPECTION_NAME + line, PsiStmtType.THIS_EXPR, line);
                 inspectThisExpression(expression, filename, feedbackId);
             }
 
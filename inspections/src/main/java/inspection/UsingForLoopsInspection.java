@@ -1,7 +1,6 @@
 package inspection;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.*;
 import feedback.FeedbackHolder;
@@ -12,7 +11,7 @@ import util.InspectionPriority;
 import util.TipType;
 import util.Utils;
 
-public final class UsingForLoopsInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class UsingForLoopsInspection extends MeasuredInspection {
 
     private static final String POS_INSPECTION_NAME = "for-loops";
     private static final String NEG_INSPECTION_NAME = "no-" + POS_INSPECTION_NAME;
@@ -120,7 +119,7 @@ public final class UsingForLoopsInspection extends AbstractBaseJavaLocalInspecti
                 }
             }
 
-            feedbackHolder.writeToFile();
+            feedbackHolder.writeToFile(holder.getProject());
         }
     }
 }
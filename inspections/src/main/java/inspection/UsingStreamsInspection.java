@@ -1,7 +1,6 @@
 package inspection;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.JavaElementVisitor;
 import com.intellij.psi.PsiElementVisitor;
@@ -15,7 +14,7 @@ import util.InspectionPriority;
 import util.TipType;
 import util.Utils;
 
-public final class UsingStreamsInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class UsingStreamsInspection extends MeasuredInspection {
 
     private static final String POS_INSPECTION_NAME = "streams";
     private static final String NEG_INSPECTION_NAME = "no-" + POS_INSPECTION_NAME;
@@ -117,7 +116,7 @@ public final class UsingStreamsInspection extends AbstractBaseJavaLocalInspectio
                 }
             }
 
-            feedbackHolder.writeToFile();
+            feedbackHolder.writeToFile(holder.getProject());
         }
     }
 }
@@ -0,0 +1,288 @@
+package util;
+
+import com.intellij.psi.PsiStatement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Clone results for one class, carried from one pass to the next. The statements of each code block are nodes keyed
+// by the content of the block, so only the statements of changed blocks are removed and compared again. Results
+// between blocks are keyed by what they depend on, so only pairs involving a changed block (or a block whose
+// statements gained or lost clones) are recomputed, and code blocks are keyed by their content and position for
+// reporting, so only clusters of code blocks that have changed are reported again.
+public class CloneGraph {
+
+    private final String context;
+    private final InspectionPriority priority;
+    private final long[] blocks;
+    private final List<Integer> parents;
+
+    // Moved over to the next pass on the same class
+    private StatementCloneGraph statements;
+    private Map<Long, int[]> blockStatements;
+
+    // Whether a block contains a clone of another, keyed by its content and the clones of its statements, and by the
+    // content of the other block
+    private final Map<Edge, Boolean> statementCloneEdges;
+    // Whether the tokens of two blocks overlap enough to be near-miss clones, keyed by the content of each block
+    private final Map<Edge, Boolean> nearMissEdges;
+    // The blocks of each cluster of clones, keyed by the first block in it
+    private final Map<Long, List<Long>> blockClusters;
+
+    // Only for this pass
+    private long[] contentKeys;
+    private int[][] statementIds;
+    private long[] cloneKeys;
+    private Map<Integer, PsiStatement> statementElements;
+    private Map<Integer, Location> statementLocations;
+
+    // The last pass over the class with the same similarity, and the last pass whose feedback is still reported
+    private CloneGraph last;
+    private CloneGraph previous;
+
+    public CloneGraph(String context, InspectionPriority priority, long[] blocks, List<Integer> parents, CloneGraph previous) {
+        this.context = context;
+        this.priority = priority;
+        this.blocks = blocks;
+        this.parents = parents;
+
+        statementCloneEdges = new HashMap<>();
+        nearMissEdges = new HashMap<>();
+        blockClusters = new HashMap<>();
+
+        if (previous != null && context.equals(previous.context)) {
+            last = previous;
+            // Feedback from a pass with a different file, class or priority has to be reported again
+            if (priority == previous.priority) {
+                this.previous = previous;
+            }
+        }
+    }
+
+    public boolean isUnchanged() {
+        return previous != null && Arrays.equals(blocks, previous.blocks) && parents.equals(previous.parents);
+    }
+
+    // Takes the statements over from the last pass, removing those of code blocks that have gone and adding those of
+    // new ones, then compares the added statements
+    public void updateStatements(PsiStatement[][] blockBodies, StatementCloneGraph.Comparison comparison) {
+        if (last == null || !last.moveStatementsTo(this)) {
+            statements = new StatementCloneGraph();
+            blockStatements = new HashMap<>();
+        }
+
+        Map<Long, int[]> previousBlocks = blockStatements;
+        blockStatements = new HashMap<>();
+        contentKeys = getContentKeys(blockBodies);
+        statementIds = new int[blockBodies.length][];
+        statementElements = new HashMap<>();
+        statementLocations = new HashMap<>();
+
+        for (int i = 0; i < blockBodies.length; i++) {
+            int[] ids = previousBlocks.remove(contentKeys[i]);
+            if (ids == null) {
+                ids = addStatements(blockBodies[i]);
+            }
+
+            blockStatements.put(contentKeys[i], ids);
+            statementIds[i] = ids;
+
+            for (int j = 0; j < ids.length; j++) {
+                Location location = new Location(i, j);
+                location.setStatementCount(TokeniseUtils.getStatementTokens(blockBodies[i][j]).getStatementCount());
+                statementElements.put(ids[j], blockBodies[i][j]);
+                statementLocations.put(ids[j], location);
+            }
+        }
+
+        for (int[] ids : previousBlocks.values()) {
+            for (int id : ids) {
+                statements.remove(id);
+            }
+        }
+
+        statements.compareAdded(comparison);
+
+        cloneKeys = new long[blockBodies.length];
+        for (int i = 0; i < blockBodies.length; i++) {
+            cloneKeys[i] = getCloneKey(i);
+        }
+    }
+
+    public PsiStatement getStatement(int statement) {
+        return statementElements.get(statement);
+    }
+
+    // Null if the statement has no clones
+    public LocationSet getClones(int block, int statement) {
+        LocationSet.Builder builder = new LocationSet.Builder();
+        for (int clone : statements.getClones(statementIds[block][statement])) {
+            builder.add(statementLocations.get(clone));
+        }
+
+        return builder.isEmpty() ? null : builder.build();
+    }
+
+    public Boolean getStatementCloneEdge(int block, int otherBlock) {
+        return getEdge(statementCloneEdges, last == null ? null : last.statementCloneEdges, cloneKeys[block], contentKeys[otherBlock]);
+    }
+
+    public void addStatementCloneEdge(int block, int otherBlock, boolean isClone) {
+        statementCloneEdges.put(new Edge(cloneKeys[block], contentKeys[otherBlock]), isClone);
+    }
+
+    public Boolean getNearMissEdge(int block, int otherBlock) {
+        return getEdge(nearMissEdges, last == null ? null : last.nearMissEdges, contentKeys[block], contentKeys[otherBlock]);
+    }
+
+    public void addNearMissEdge(int block, int otherBlock, boolean isClone) {
+        nearMissEdges.put(new Edge(contentKeys[block], contentKeys[otherBlock]), isClone);
+    }
+
+    // Returns whether the cluster starting at the block differs from the last pass, where a null cluster means that
+    // no cluster starts at it
+    public boolean updateBlockCluster(int block, List<Integer> cluster) {
+        List<Long> clusterKeys = null;
+        if (cluster != null) {
+            clusterKeys = new ArrayList<>(cluster.size());
+            for (int member : cluster) {
+                clusterKeys.add(blocks[member]);
+            }
+            blockClusters.put(blocks[block], clusterKeys);
+        }
+
+        if (previous == null) {
+            return true;
+        }
+
+        return !Objects.equals(clusterKeys, previous.blockClusters.get(blocks[block]));
+    }
+
+    // Drops the last pass and the elements of this one, so the graph kept on the class holds no PSI
+    public void complete() {
+        last = null;
+        previous = null;
+        contentKeys = null;
+        statementIds = null;
+        cloneKeys = null;
+        statementElements = null;
+        statementLocations = null;
+    }
+
+    public static long getBlockKey(long[] statementFingerprints, int index, int line, String methodName) {
+        long key = 1125899906842597L;
+        for (long fingerprint : statementFingerprints) {
+            key = 31 * key + fingerprint;
+        }
+
+        key = 31 * key + index;
+        key = 31 * key + line;
+        key = 31 * key + Objects.hashCode(methodName);
+
+        return key;
+    }
+
+    // A concurrent pass over the same class may already have taken them, in which case it starts again
+    private synchronized boolean moveStatementsTo(CloneGraph graph) {
+        if (statements == null) {
+            return false;
+        }
+
+        graph.statements = statements;
+        graph.blockStatements = blockStatements;
+        statements = null;
+        blockStatements = null;
+
+        return true;
+    }
+
+    private int[] addStatements(PsiStatement[] body) {
+        int length = 0;
+        while (length < body.length && body[length] != null) {
+            length++;
+        }
+
+        int[] ids = new int[length];
+        for (int j = 0; j < length; j++) {
+            ids[j] = statements.add(CodeCloneUtils.getClonedStatementKind(body[j]), TokeniseUtils.getStatementTokens(body[j]).getTokens());
+        }
+
+        return ids;
+    }
+
+    // Whether a block contains a clone of another depends on where every statement of the block has clones, not just
+    // those in the other block, as statements without any clones are treated differently
+    private long getCloneKey(int block) {
+        long key = contentKeys[block];
+        for (int id : statementIds[block]) {
+            long clonesKey = 0;
+            for (int clone : statements.getClones(id)) {
+                Location location = statementLocations.get(clone);
+                clonesKey += Hashing.combine(contentKeys[location.getCodeBlock()], location.getLine());
+            }
+            key = Hashing.combine(key, clonesKey);
+        }
+
+        return key;
+    }
+
+    private static Boolean getEdge(Map<Edge, Boolean> edges, Map<Edge, Boolean> lastEdges, long from, long to) {
+        Edge edge = new Edge(from, to);
+        Boolean isClone = edges.get(edge);
+        if (isClone == null && lastEdges != null) {
+            isClone = lastEdges.get(edge);
+            if (isClone != null) {
+                edges.put(edge, isClone);
+            }
+        }
+
+        return isClone;
+    }
+
+    // Identical blocks are told apart by how many came before them
+    private static long[] getContentKeys(PsiStatement[][] blockBodies) {
+        long[] keys = new long[blockBodies.length];
+        Map<Long, Integer> occurrences = new HashMap<>();
+
+        for (int i = 0; i < blockBodies.length; i++) {
+            long key = 0;
+            for (int j = 0; j < blockBodies[i].length && blockBodies[i][j] != null; j++) {
+                key = Hashing.combine(key, TokeniseUtils.getStatementTokens(blockBodies[i][j]).getFingerprint());
+            }
+
+            int occurrence = occurrences.merge(key, 1, Integer::sum);
+            keys[i] = Hashing.combine(key, occurrence);
+        }
+
+        return keys;
+    }
+
+    private static class Edge {
+        private final long from;
+        private final long to;
+
+        Edge(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Edge)) {
+                return false;
+            }
+
+            Edge other = (Edge) obj;
+            return from == other.from && to == other.to;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(from) * 31 + Long.hashCode(to);
+        }
+    }
+}
@@ -7,6 +7,71 @@ import java.util.*;
 
 public class CodeCloneUtils {
 
+    // Statements of different kinds are never clones of each other, so each kind is compared separately
+    public static StatementKind getStatementKind(PsiElement stat) {
+        if (stat instanceof PsiDeclarationStatement) {
+            return StatementKind.DECLARATION;
+        }
+        if (stat instanceof PsiAssignmentExpression) {
+            return StatementKind.ASSIGNMENT;
+        }
+        if (stat instanceof PsiIfStatement) {
+            return StatementKind.IF;
+        }
+        if (stat instanceof PsiMethodCallExpression) {
+            return StatementKind.METHOD_CALL;
+        }
+        if (stat instanceof PsiReturnStatement) {
+            return StatementKind.RETURN;
+        }
+        if (stat instanceof PsiForStatement) {
+            return StatementKind.FOR;
+        }
+        if (stat instanceof PsiForeachStatement) {
+            return StatementKind.FOREACH;
+        }
+        if (stat instanceof PsiWhileStatement) {
+            return StatementKind.WHILE;
+        }
+        if (stat instanceof PsiDoWhileStatement) {
+            return StatementKind.DO_WHILE;
+        }
+        if (stat instanceof PsiSwitchStatement) {
+            return StatementKind.SWITCH;
+        }
+        if (stat instanceof PsiAssertStatement) {
+            return StatementKind.ASSERT;
+        }
+        if (stat instanceof PsiTryStatement) {
+            return StatementKind.TRY;
+        }
+        if (stat instanceof PsiThrowStatement) {
+            return StatementKind.THROW;
+        }
+        if (stat instanceof PsiPrefixExpression) {
+            return StatementKind.PREFIX;
+        }
+        if (stat instanceof PsiPostfixExpression) {
+            return StatementKind.POSTFIX;
+        }
+
+        return null;
+    }
+
+    // Null for statements of any other kind (e.g. break, a nested block or new Foo();), which are never compared, so
+    // never clones
+    public static StatementKind getClonedStatementKind(PsiStatement stat) {
+        if (stat instanceof PsiExpressionStatement) {
+            return getStatementKind(((PsiExpressionStatement) stat).getExpression());
+        }
+
+        return getStatementKind(stat);
+    }
+
+    public static boolean isComparedForClones(PsiStatement stat) {
+        return getClonedStatementKind(stat) != null;
+    }
+
     public static PsiStatement[][] getCaseBlocks(@Nonnull PsiCodeBlock body) {
         // Ignoring default case
         PsiStatement[] bodyStatements = body.getStatements();
@@ -137,7 +202,7 @@ public class CodeCloneUtils {
                 PsiExpressionList exprList = (PsiExpressionList) child;
                 PsiExpression[] exprs = exprList.getExpressions();
                 for (PsiExpression expr : exprs) {
-                    sb.append(TokeniseUtils.getExprAsString(expr));
+                    sb.append(Arrays.toString(TokeniseUtils.getExprAsTokens(expr)));
                 }
                 break;
             }
@@ -264,442 +329,6 @@ public class CodeCloneUtils {
         }
     }
 
-    public static boolean changeInLHS(String[] first, String[] second) {
-        // RHS, type of LHS, operator the same
-        // LHS different
-        int firstTypeIndex = getStartIndex("LHS-TYPE", first) + 1;
-        int firstEndTypeIndex = getStartIndex("LHS-VAR", first);
-
-        int secondTypeIndex = getStartIndex("LHS-TYPE", first) + 1;
-        int secondEndTypeIndex = getStartIndex("LHS-VAR", first);
-
-        int firstOpIndex = getStartIndex("OP", first);
-        int secondOpIndex = getStartIndex("OP", second);
-
-        return Arrays.equals(first, firstTypeIndex, firstEndTypeIndex, second, secondTypeIndex, secondEndTypeIndex) &&
-                Arrays.equals(first, firstOpIndex, first.length, second, secondOpIndex, second.length);
-    }
-
-    public static boolean changeInRHS(String[] first, String[] second) {
-        // LHS and operator the same
-        // RHS different
-        int firstRhsIndex = getStartIndex("RHS", first);
-        int secondRhsIndex = getStartIndex("RHS", second);
-
-        return Arrays.equals(first, 0, firstRhsIndex, second, 0, secondRhsIndex);
-    }
-
-    public static boolean changeInOp(String[] first, String[] second) {
-        // LHS and RHS the same
-        // Operator different
-        int firstOpIndex = getStartIndex("OP", first);
-        int firstEndOpIndex = getStartIndex("RHS", first);
-
-        int secondOpIndex = getStartIndex("OP", second);
-        int secondEndOpIndex = getStartIndex("RHS", second);
-
-        return Arrays.equals(first, 0, firstOpIndex, second, 0, secondOpIndex) &&
-                Arrays.equals(first, firstEndOpIndex, first.length, second, secondEndOpIndex, second.length);
-    }
-
-    public static boolean prefixExprChangeInVar(String[] first, String[] second) {
-        // Same operator and type of var, Change in var name
-        int firstTypeIndex = getStartIndex("PREFIX-TYPE", first) + 1;
-        int firstEndTypeIndex = getStartIndex("PREFIX-VAR", first);
-
-        int secondTypeIndex = getStartIndex("PREFIX-TYPE", first) + 1;
-        int secondEndTypeIndex = getStartIndex("PREFIX-VAR", first);
-
-        int firstOpIndex = getStartIndex("PREFIX-OP", first);
-        int secondOpIndex = getStartIndex("PREFIX-OP", second);
-
-        return Arrays.equals(first, firstTypeIndex, firstEndTypeIndex, second, secondTypeIndex, secondEndTypeIndex) &&
-                Arrays.equals(first, firstOpIndex, first.length, second, secondOpIndex, second.length);
-    }
-
-    public static boolean prefixExprChangeInOp(String[] first, String[] second) {
-        // Same var name and type, Change in op
-        int firstEndVarIndex = getStartIndex("PREFIX-OP", first);
-        int secondEndVarIndex = getStartIndex("PREFIX-OP", second);
-
-        return Arrays.equals(first, 0, firstEndVarIndex, second, 0, secondEndVarIndex);
-    }
-
-    public static boolean postfixExprChangeInVar(String[] first, String[] second) {
-        // Same operator and type of var, Change in var name
-        int firstTypeIndex = getStartIndex("POSTFIX-TYPE", first) + 1;
-        int firstEndTypeIndex = getStartIndex("POSTFIX-VAR", first);
-
-        int secondTypeIndex = getStartIndex("POSTFIX-TYPE", first) + 1;
-        int secondEndTypeIndex = getStartIndex("POSTFIX-VAR", first);
-
-        int firstOpIndex = getStartIndex("POSTFIX-OP", first);
-        int secondOpIndex = getStartIndex("POSTFIX-OP", second);
-
-        return Arrays.equals(first, firstTypeIndex, firstEndTypeIndex, second, secondTypeIndex, secondEndTypeIndex) &&
-                Arrays.equals(first, firstOpIndex, first.length, second, secondOpIndex, second.length);
-    }
-
-    public static boolean postfixExprChangeInOp(String[] first, String[] second) {
-        // Same var name and type, Change in op
-        int firstEndVarIndex = getStartIndex("POSTFIX-OP", first);
-        int secondEndVarIndex = getStartIndex("POSTFIX-OP", second);
-
-        return Arrays.equals(first, 0, firstEndVarIndex, second, 0, secondEndVarIndex);
-    }
-
-    public static boolean sameIfCondition(String[] first, String[] second) {
-        int firstCondIndex = getStartIndex("IF-COND", first) + 1;
-        int firstCondEndIndex = getStartIndex("IF-THEN", first);
-        int secondCondIndex = getStartIndex("IF-COND", second) + 1;
-        int secondCondEndIndex = getStartIndex("IF-THEN", second);
-
-        return Arrays.equals(first, firstCondIndex, firstCondEndIndex, second, secondCondIndex, secondCondEndIndex);
-    }
-
-    public static boolean sameWhileCondition(String[] first, String[] second) {
-        int firstCondIndex = getStartIndex("WHILE-COND", first) + 1;
-        int firstCondEndIndex = getStartIndex("END-WHILE-COND", first);
-        int secondCondIndex = getStartIndex("WHILE-COND", second) + 1;
-        int secondCondEndIndex = getStartIndex("END-WHILE-COND", second);
-
-        return Arrays.equals(first, firstCondIndex, firstCondEndIndex, second, secondCondIndex, secondCondEndIndex);
-    }
-
-    public static boolean sameDoWhileCondition(String[] first, String[] second) {
-        int firstCondIndex = getStartIndex("DOWHILE-COND", first) + 1;
-        int firstCondEndIndex = getStartIndex("END-DOWHILE-COND", first);
-        int secondCondIndex = getStartIndex("DOWHILE-COND", second) + 1;
-        int secondCondEndIndex = getStartIndex("END-DOWHILE-COND", second);
-
-        return Arrays.equals(first, firstCondIndex, firstCondEndIndex, second, secondCondIndex, secondCondEndIndex);
-    }
-
-    public static boolean conditionChangeInRhs(String[] first, String[] second) {
-        // LHS and operator the same
-        // RHS different
-        int firstRhsIndex = getStartIndex("BINEXPRRHS", first);
-        int secondRhsIndex = getStartIndex("BINEXPRRHS", second);
-
-        if (firstRhsIndex == -1 || secondRhsIndex == -1) {
-            return false;
-        }
-
-        return Arrays.equals(first, 0, firstRhsIndex, second, 0, secondRhsIndex);
-    }
-
-    public static boolean conditionChangeInLhs(String[] first, String[] second) {
-        // RHS and operator the same
-        // LHS different
-        int firstOpIndex = getStartIndex("BINEXPROP", first);
-        int secondOpIndex = getStartIndex("BINEXPROP", second);
-
-        if (firstOpIndex == -1 || secondOpIndex == -1) {
-            return false;
-        }
-
-        return Arrays.equals(first, firstOpIndex, first.length, second, secondOpIndex, second.length);
-    }
-
-    public static boolean conditionPartial(String[] first, String[] second) {
-        String[] firstCond = Arrays.copyOfRange(first, getStartIndex("IF-COND", first) + 1, getStartIndex("IF-THEN", first));
-        String[] secondCond = Arrays.copyOfRange(second, getStartIndex("IF-COND", second) + 1, getStartIndex("IF-THEN", second));
-
-
-        List<Pair<Integer, Integer>> firstBinExpr = getAllBinExpr(firstCond);
-        List<Pair<Integer, Integer>> secondBinExpr = getAllBinExpr(secondCond);
-
-        for (Pair<Integer, Integer> firstIndex : firstBinExpr) {
-            for (Pair<Integer, Integer> secondIndex : secondBinExpr) {
-                if (equalWithCondVar(firstCond, firstIndex, secondCond, secondIndex)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    private static boolean equalWithCondVar(String[] first, Pair<Integer, Integer> firstIndex, String[] second, Pair<Integer, Integer> secondIndex) {
-        int length = firstIndex.getSecond() - firstIndex.getFirst();
-
-        if (length != secondIndex.getSecond() - secondIndex.getFirst()) {
-            return false;
-        }
-
-        for (int i = 0; i < length; i++) {
-                if (!first[firstIndex.getFirst() + i].equals(second[secondIndex.getFirst() + i]) &&
-                        !first[firstIndex.getFirst() + i].startsWith("CONDVAR") &&
-                        !second[secondIndex.getFirst() + i].startsWith("CONDVAR")) {
-                    return false;
-                }
-
-        }
-
-        return true;
-    }
-
-    private static List<Pair<Integer, Integer>> getAllBinExpr(String[] arr) {
-        List<Pair<Integer, Integer>> allBinExpr = new ArrayList<>();
-        Stack<Integer> startIndexes = new Stack<>();
-        for (int i = 0; i < arr.length; i++) {
-            if (arr[i].equals("BINEXPR")) {
-                startIndexes.push(i);
-            } else if (arr[i].equals("END-BINEXPR")) {
-                assert !startIndexes.empty() : "Stack empty, no corresponding start token " +print(arr);
-                allBinExpr.add(new Pair<>(startIndexes.pop(), i + 1));
-            }
-        }
-
-        return allBinExpr;
-    }
-
-    public static boolean sameIfBody(String[] first, String[] second) {
-        int firstThenIndex = getStartIndex("IF-THEN", first);
-        int secondThenIndex = getStartIndex("IF-THEN", second);
-
-        return equalWithCondVar(first, new Pair<>(firstThenIndex, first.length), second, new Pair<>(secondThenIndex, second.length));
-    }
-
-    public static boolean sameForSetup(String[] first, String[] second) {
-        int firstBodyIndex = getStartIndex("FOR-BODY", first);
-        int secondBodyIndex = getStartIndex("FOR-BODY", second);
-
-        return Arrays.equals(first, 0, firstBodyIndex, second, 0, secondBodyIndex);
-    }
-
-    public static boolean sameForEachSetup(String[] first, String[] second) {
-        int firstTypeIndex = getStartIndex("FOREACH-TYPE", first) + 1;
-        int secondTypeIndex = getStartIndex("FOREACH-TYPE", second) + 1;
-
-        if (!(first[firstTypeIndex].equals(second[secondTypeIndex]))) {
-            return false;
-        }
-
-        int firstIteratedIndex = getStartIndex("FOREACH-IN", first) + 1;
-        int secondIteratedIndex = getStartIndex("FOREACH-IN", second) + 1;
-
-        return first[firstIteratedIndex].equals(second[secondIteratedIndex]);
-    }
-
-    public static boolean declChangeInVarName(String[] first, String[] second) {
-        // int z = 0 and int x = 0 are the same we just have called them different names
-        // Same type and initialiser (if they have one)
-        // Different variable name
-        int firstNameIndex = getStartIndex("NAME", first);
-        int firstEndNameIndex = getStartIndex("INIT", first);
-        int secondNameIndex = getStartIndex("NAME", second);
-        int secondEndNameIndex = getStartIndex("INIT", second);
-
-        boolean sameType = Arrays.equals(first, 0, firstNameIndex, second, 0, secondNameIndex);
-
-        if (!sameType) {
-            return false;
-        }
-
-        if (firstEndNameIndex == -1 && secondEndNameIndex == -1) {
-            return true;
-        }
-
-        if (firstEndNameIndex != -1 && secondEndNameIndex != -1) {
-            return Arrays.equals(first, firstEndNameIndex, first.length, second, secondEndNameIndex, second.length);
-        }
-
-        return false;
-    }
-
-    public static boolean sameSwitchVar(String[] first, String[] second) {
-        int firstVarIndex = getStartIndex("SWITCH-VAR", first) + 1;
-        int firstEndVarIndex = getStartIndex("END-SWITCH-VAR", first);
-        int secondVarIndex = getStartIndex("SWITCH-VAR", second) + 1;
-        int secondEndVarIndex = getStartIndex("END-SWITCH-VAR", second);
-
-        return Arrays.equals(first, firstVarIndex, firstEndVarIndex, second, secondVarIndex, secondEndVarIndex);
-    }
-
-    private static int getStartIndex(String toFind, String[] arr) {
-        for (int i = 0; i < arr.length; i++) {
-            if (arr[i].equals(toFind)) {
-                return i;
-            }
-        }
-
-        return -1;
-    }
-
-    public static boolean transitiveClosureOfClones(List<Set<Integer>> cases, List<Integer> aim) {
-        if (cases.isEmpty()) {
-            return false;
-        }
-
-        Set<Integer> currClones = new LinkedHashSet<>(cases.get(0));
-
-        for (int i = 1; i < cases.size(); i++) {
-            if (Collections.disjoint(currClones, cases.get(i))) {
-                currClones = cases.get(i);
-            } else {
-                currClones.addAll(cases.get(i));
-            }
-
-            if (currClones.containsAll(aim)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    public static Pair<Pair<Integer, Integer>, Pair<Integer, Integer>> containsBlockClone(Set<Location> clones, int blockIndex, boolean innerBlock) {
-        if (clones == null || clones.isEmpty()) {
-            return null;
-        }
-
-        Set<Location> clonesInBlock = getClonesInCodeBlock(clones, blockIndex, true);
-
-        if (clonesInBlock.isEmpty()) {
-            return null;
-        }
-
-        int longestSeq = 0;
-        int seqStart = -1;
-        int seqEnd = -1;
-        int otherStart = -1;
-        int otherEnd = -1;
-
-        int prev = -1;
-        int currSeq = 0;
-        int currStart = 0;
-        int currOtherStart = 0;
-
-        int index = 0;
-        for (Location l : clonesInBlock) {
-            if (index == 0) {
-                currOtherStart = l.getLine();
-            }
-
-            if (l.getLine() != prev + 1) {
-                if (currSeq > longestSeq) {
-                    longestSeq = currSeq;
-
-                    seqStart = currStart;
-                    seqEnd = index;
-
-                    otherStart = currOtherStart;
-                    otherEnd = prev + 1;
-                }
-
-                currStart = index;
-                currOtherStart = l.getLine();
-                prev = l.getLine();
-                currSeq = 0;
-            } else {
-                prev = l.getLine();
-            }
-
-            currSeq += l.getStatementCount();
-            index++;
-        }
-
-        if (currSeq > longestSeq) {
-            longestSeq = currSeq;
-
-            seqStart = currStart;
-            seqEnd = index;
-
-            otherStart = currOtherStart;
-            otherEnd = prev + 1;
-        }
-
-        if ((innerBlock && longestSeq > 0) || longestSeq > 1) {
-            return new Pair<>(new Pair<>(seqStart, seqEnd), new Pair<>(otherStart, otherEnd));
-        }
-
-        return null;
-    }
-
-    public static Set<Location> getCombinedClones(Set<Location> firstClones, Set<Location> secondClones) {
-        if (firstClones == null) {
-            return null;
-        }
-
-        Set<Location> combinedClones = new LinkedHashSet<>();
-        Set<Location> toAdd = new LinkedHashSet<>();
-        List<Integer> seenCodeBlocks = new ArrayList<>();
-
-        // To allow additional lines at start of code block
-        boolean prevIsNull = true;
-        // To allow additional lines at end of code block
-        boolean followingIsNull = false;
-
-        if (!getClonesInCodeBlock(secondClones, -1, false).isEmpty()) {
-            combinedClones.addAll(firstClones);
-            combinedClones.add(new Location(-1, -1));
-            return combinedClones;
-        }
-
-        if (onlyContainsNullCase(firstClones)) {
-            combinedClones.addAll(firstClones);
-            combinedClones.addAll(secondClones);
-            return combinedClones;
-        }
-
-        for (Location location : firstClones) {
-            int currCodeBlock = location.getCodeBlock();
-
-            if ((currCodeBlock == -1) && !prevIsNull) {
-                followingIsNull = true;
-            }
-
-            if ((currCodeBlock != -1) && followingIsNull) {
-                return null;
-            }
-
-            if (currCodeBlock != -1) {
-                prevIsNull = false;
-
-                if (!(seenCodeBlocks.contains(currCodeBlock))) {
-                    seenCodeBlocks.add(currCodeBlock);
-
-                    Set<Location> secondInBlock = getClonesInCodeBlock(secondClones, currCodeBlock, false);
-
-                    if (!(secondInBlock.isEmpty())) {
-                        combinedClones.addAll(getClonesInCodeBlock(firstClones, currCodeBlock, false));
-                        toAdd.addAll(secondInBlock);
-                    }
-
-                }
-            } else {
-                combinedClones.add(location);
-            }
-        }
-
-        combinedClones.addAll(toAdd);
-
-        return combinedClones;
-    }
-
-    private static boolean onlyContainsNullCase(Set<Location> clones) {
-        if (clones == null) {
-            return false;
-        }
-
-        return clones.size() == getClonesInCodeBlock(clones, -1, false).size();
-    }
-
-    public static Set<Location> getClonesInCodeBlock(Set<Location> clones, int codeBlock, boolean showAdditional) {
-        Set<Location> clonesInCodeBlock = new LinkedHashSet<>();
-
-        for (Location l : clones) {
-            if (l.getCodeBlock() == codeBlock) {
-                clonesInCodeBlock.add(l);
-            }
-            if (showAdditional && l.getCodeBlock() == -1) {
-                clonesInCodeBlock.add(l);
-            }
-        }
-
-        return clonesInCodeBlock;
-    }
-
     public static String printCodeBlock(PsiCodeBlock codeBlock, Pair<Integer, Integer> sequence) {
         StringBuffer sb = new StringBuffer();
 
@@ -761,39 +390,6 @@ public class CodeCloneUtils {
         return polyExprs;
     }
 
-    public static String print(String[] arr) {
-        StringBuffer sb = new StringBuffer();
-
-        for (String s : arr) {
-            sb.append(s);
-            sb.append(" ");
-        }
-
-        return sb.toString();
-    }
-
-    public static Set<Location> removeCodeBlock(Set<Location> clones, int toRemove) {
-        Set<Location> newClones = new LinkedHashSet<>();
-
-        for (Location l : clones) {
-            if (l.getCodeBlock() != toRemove) {
-                newClones.add(l);
-            }
-        }
-
-        return newClones;
-    }
-
-    public static boolean contains(Set<Location> clones, int toFind) {
-        for (Location l : clones) {
-            if (l.getCodeBlock() == toFind) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
     public static int getStatementCount(PsiStatement stat) {
         int currCount = 0;
 
@@ -901,15 +497,4 @@ public class CodeCloneUtils {
 
         return currCount;
     }
-
-    public static int getNextNonNested(List<Integer> list, int currIndex) {
-        int toFind = list.get(currIndex);
-        for (int i = currIndex + 1; i < list.size(); i++) {
-            if (list.get(i) <= toFind) {
-                return i - 1;
-            }
-        }
-
-        return list.size();
-    }
 }
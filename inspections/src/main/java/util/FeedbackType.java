@@ -9,6 +9,8 @@ public enum FeedbackType {
             "Nice. You reduced code duplication on line $lineNumber."),
     EXPR_CLONE("Have you checked for duplicated expressions in class $className?",
             "Nice. You reduced code duplication on line $lineNumber."),
+    METHOD_CLONE("Have you checked for methods duplicated in other classes in class $className?",
+            "Nice. You reduced code duplication on line $lineNumber."),
     CONSTRUCTORS_FIRST("Is the constructor(s) the first method(s) in class $className?",
             "Good work! You moved the constructor to the top of the class from line $lineNumber."),
     FIELDS_FIRST("In class $className, did you declare your fields at the start of the class?",
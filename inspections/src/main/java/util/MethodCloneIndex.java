@@ -0,0 +1,123 @@
+package util;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// Indexes every Java file by the structural hashes of its method bodies, so that a method copied into another
+// file can be found without parsing the rest of the project. The platform keeps it up to date as files change.
+// The hashes are the 64-bit subtree hashes, so a match is taken to be a copy without loading the other file.
+public class MethodCloneIndex extends ScalarIndexExtension<Long> {
+
+    public static final ID<Long, Void> NAME = ID.create("diligent.methodClones");
+
+    @NotNull
+    @Override
+    public ID<Long, Void> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<Long, Void, FileContent> getIndexer() {
+        return inputData -> {
+            Map<Long, Void> methods = new HashMap<>();
+
+            PsiFile file = inputData.getPsiFile();
+            if (file instanceof PsiJavaFile) {
+                for (PsiClass aClass : ((PsiJavaFile) file).getClasses()) {
+                    addMethods(methods, aClass);
+                }
+            }
+
+            return methods;
+        };
+    }
+
+    private static void addMethods(Map<Long, Void> methods, PsiClass aClass) {
+        for (PsiMethod method : aClass.getMethods()) {
+            if (isIndexed(method)) {
+                methods.put(getMethodKey(method), null);
+            }
+        }
+
+        for (PsiClass innerClass : aClass.getInnerClasses()) {
+            addMethods(methods, innerClass);
+        }
+    }
+
+    public static boolean isIndexed(PsiMethod method) {
+        PsiCodeBlock body = method.getBody();
+
+        // Only consider methods with more than one statement, as for code blocks within a class
+        return body != null && body.getStatementCount() > 1;
+    }
+
+    // Doesn't resolve anything, so that it can be used while indexing, and is kept on the body until it changes
+    public static long getMethodKey(PsiMethod method) {
+        return SubtreeHash.getHash(method.getBody(), SubtreeHash.Variant.EXACT);
+    }
+
+    public static Collection<VirtualFile> getFilesWithMethod(Project project, PsiMethod method) {
+        return FileBasedIndex.getInstance().getContainingFiles(NAME, getMethodKey(method), GlobalSearchScope.projectScope(project));
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<Long> getKeyDescriptor() {
+        return MethodKeyDescriptor.INSTANCE;
+    }
+
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(JavaFileType.INSTANCE);
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    private static class MethodKeyDescriptor implements KeyDescriptor<Long> {
+
+        private static final MethodKeyDescriptor INSTANCE = new MethodKeyDescriptor();
+
+        @Override
+        public int getHashCode(Long value) {
+            return Long.hashCode(value);
+        }
+
+        @Override
+        public boolean isEqual(Long value, Long otherValue) {
+            return value.equals(otherValue);
+        }
+
+        @Override
+        public void save(@NotNull DataOutput out, Long value) throws IOException {
+            out.writeLong(value);
+        }
+
+        @Override
+        public Long read(@NotNull DataInput in) throws IOException {
+            return in.readLong();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package util;
+
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.*;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+
+// Bottom-up hashes of statement and expression subtrees. Each statement, expression, code block and member keeps the hashes
+// of its subtree until the PSI changes, so a parent's hash is built from its children's without walking them again.
+// The hashes are 64-bit and well mixed, so equal hashes are taken to mean equal subtrees.
+public class SubtreeHash {
+
+    public enum Variant {
+        EXACT,
+        MASK_IDENTIFIERS,
+        MASK_LITERALS
+    }
+
+    private static final Key<CachedValue<long[]>> SUBTREE_HASH_KEY = Key.create("diligent.subtreeHash");
+
+    private static final long IDENTIFIER = Hashing.hash("IDENTIFIER");
+    private static final long LITERAL = Hashing.hash("LITERAL");
+
+    private static final ClassValue<Long> TYPE_HASHES = new ClassValue<Long>() {
+        @Override
+        protected Long computeValue(Class<?> type) {
+            return Hashing.hash(type.getName());
+        }
+    };
+
+    public static long getHash(PsiElement element, Variant variant) {
+        return getHashes(element)[variant.ordinal()];
+    }
+
+    // Both subtrees are only walked when assertions are enabled, to catch a collision
+    public static boolean isSameSubtree(PsiElement element, PsiElement otherElement) {
+        if (element == otherElement) {
+            return true;
+        }
+
+        boolean isSame = getHash(element, Variant.EXACT) == getHash(otherElement, Variant.EXACT);
+        assert !isSame || isSameTree(element, otherElement) : "Subtree hash collision";
+
+        return isSame;
+    }
+
+    private static long[] getHashes(PsiElement element) {
+        if (element instanceof PsiStatement || element instanceof PsiExpression || element instanceof PsiCodeBlock
+                || element instanceof PsiMember) {
+            return CachedValuesManager.getCachedValue(element, SUBTREE_HASH_KEY,
+                    () -> CachedValueProvider.Result.create(computeHashes(element), PsiModificationTracker.MODIFICATION_COUNT));
+        }
+
+        return computeHashes(element);
+    }
+
+    private static long[] computeHashes(PsiElement element) {
+        long[] hashes = new long[Variant.values().length];
+
+        PsiElement child = element.getFirstChild();
+        if (child == null) {
+            long hash = Hashing.hash(element.getText());
+            hashes[Variant.EXACT.ordinal()] = hash;
+            hashes[Variant.MASK_IDENTIFIERS.ordinal()] = element instanceof PsiIdentifier ? IDENTIFIER : hash;
+            hashes[Variant.MASK_LITERALS.ordinal()] = hash;
+            return hashes;
+        }
+
+        long typeHash = TYPE_HASHES.get(element.getClass());
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = typeHash;
+        }
+
+        while (child != null) {
+            if (!isIgnored(child)) {
+                long[] childHashes = getHashes(child);
+                for (int i = 0; i < hashes.length; i++) {
+                    hashes[i] = Hashing.combine(hashes[i], childHashes[i]);
+                }
+            }
+            child = child.getNextSibling();
+        }
+
+        if (element instanceof PsiLiteralExpression) {
+            hashes[Variant.MASK_LITERALS.ordinal()] = LITERAL;
+        }
+
+        return hashes;
+    }
+
+    private static boolean isSameTree(PsiElement element, PsiElement otherElement) {
+        PsiElement child = element.getFirstChild();
+        PsiElement otherChild = otherElement.getFirstChild();
+
+        if (child == null || otherChild == null) {
+            return child == otherChild && element.getText().equals(otherElement.getText());
+        }
+
+        if (element.getClass() != otherElement.getClass()) {
+            return false;
+        }
+
+        while (true) {
+            child = skipIgnored(child);
+            otherChild = skipIgnored(otherChild);
+
+            if (child == null || otherChild == null) {
+                return child == otherChild;
+            }
+
+            if (!isSameTree(child, otherChild)) {
+                return false;
+            }
+
+            child = child.getNextSibling();
+            otherChild = otherChild.getNextSibling();
+        }
+    }
+
+    private static PsiElement skipIgnored(PsiElement element) {
+        while (element != null && isIgnored(element)) {
+            element = element.getNextSibling();
+        }
+
+        return element;
+    }
+
+    private static boolean isIgnored(PsiElement element) {
+        return element instanceof PsiWhiteSpace || element instanceof PsiComment;
+    }
+}
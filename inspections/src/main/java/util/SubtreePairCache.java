@@ -0,0 +1,53 @@
+package util;
+
+import com.intellij.psi.PsiElement;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Results of comparing two subtrees, keyed by their hashes so that the same pair of nested bodies met again
+// elsewhere in the class is not compared a second time. The 64-bit hashes are trusted, so no PSI is kept or walked.
+public class SubtreePairCache {
+
+    // Stands in for a missing subtree
+    private static final long NO_SUBTREE = Hashing.hash("NO_SUBTREE");
+
+    private final Map<Key, Boolean> results = new HashMap<>();
+
+    public Boolean get(PsiElement element, PsiElement otherElement) {
+        return results.get(new Key(getHash(element), getHash(otherElement)));
+    }
+
+    public void put(PsiElement element, PsiElement otherElement, boolean isSimilar) {
+        results.put(new Key(getHash(element), getHash(otherElement)), isSimilar);
+    }
+
+    private static long getHash(PsiElement element) {
+        return element == null ? NO_SUBTREE : SubtreeHash.getHash(element, SubtreeHash.Variant.EXACT);
+    }
+
+    private static class Key {
+        private final long hash;
+        private final long otherHash;
+
+        Key(long hash, long otherHash) {
+            this.hash = hash;
+            this.otherHash = otherHash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) obj;
+            return hash == other.hash && otherHash == other.otherHash;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash) * 31 + Long.hashCode(otherHash);
+        }
+    }
+}
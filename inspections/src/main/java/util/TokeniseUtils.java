@@ -1,159 +1,176 @@
 package util;
 
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.ModificationTracker;
 import com.intellij.psi.*;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiTreeUtil;
 
 import java.util.*;
 
 public class TokeniseUtils {
 
-    public static String[] getStmtAsStringArray(PsiStatement stmt) {
-        List<String> stmtAsString = getStmtAsString(stmt);
-        if (stmtAsString == null) {
-            return null;
-        }
-
-        return stmtAsString.toArray(new String[0]);
-    }
-
-    private static List<String> getStmtAsString(PsiStatement stmt) {
-        if (stmt instanceof PsiExpressionStatement) {
-            return getExprStmtAsString((PsiExpressionStatement) stmt);
-        }
-
-        if (stmt instanceof PsiIfStatement) {
-            return getIfStmtAsString((PsiIfStatement) stmt);
-        }
-
-        if (stmt instanceof PsiBreakStatement) {
-            return new ArrayList<>();
-        }
+    private static final int NAME = TokenDictionary.getKeywordId("NAME");
 
-        if (stmt instanceof PsiBlockStatement) {
-            return getBlockStmtAsString((PsiBlockStatement) stmt);
-        }
-
-        if (stmt instanceof PsiDeclarationStatement) {
-            return getDeclStmtAsString((PsiDeclarationStatement) stmt);
-        }
+    // Tokens are appended to a per-thread buffer and only copied out once the whole statement has been visited
+    private static final ThreadLocal<TokenBuffer> buffers = ThreadLocal.withInitial(TokenBuffer::new);
+    private static final Key<CachedValue<StatementTokens>> STATEMENT_TOKENS_KEY = Key.create("diligent.statementTokens");
+    // Cached tokens are only comparable to new ones while the dictionary is in the same generation
+    private static final ModificationTracker TOKEN_GENERATION = TokenDictionary::getGeneration;
 
-        if (stmt instanceof PsiReturnStatement) {
-            return getReturnStmtAsString((PsiReturnStatement) stmt);
-        }
+    // Shared by every pass over the statement (class, switch and nested switch). Kept across edits elsewhere, until the
+    // statement's own member or anything outside a code block changes, as the tokens include types resolved from either
+    public static StatementTokens getStatementTokens(PsiStatement stmt) {
+        return CachedValuesManager.getCachedValue(stmt, STATEMENT_TOKENS_KEY,
+                () -> CachedValueProvider.Result.create(new StatementTokens(getStmtAsTokens(stmt), CodeCloneUtils.getStatementCount(stmt)),
+                        PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT, TOKEN_GENERATION, getMemberTracker(stmt)));
+    }
 
-        if (stmt instanceof PsiForStatement) {
-            return getForStmtAsString((PsiForStatement) stmt);
+    private static ModificationTracker getMemberTracker(PsiStatement stmt) {
+        PsiMember member = PsiTreeUtil.getParentOfType(stmt, PsiMember.class);
+        if (member == null) {
+            return PsiModificationTracker.SERVICE.getInstance(stmt.getProject());
         }
 
-        if (stmt instanceof PsiForeachStatement) {
-            return getForEachStmtAsString((PsiForeachStatement) stmt);
-        }
+        return () -> SubtreeHash.getHash(member, SubtreeHash.Variant.EXACT);
+    }
 
-        if (stmt instanceof PsiWhileStatement) {
-            return getWhileStmtAsString((PsiWhileStatement) stmt);
-        }
+    public static int[] getStmtAsTokens(PsiStatement stmt) {
+        TokenBuffer buffer = buffers.get();
+        int start = buffer.size();
 
-        if (stmt instanceof PsiDoWhileStatement) {
-            return getDoWhileStmtAsString((PsiDoWhileStatement) stmt);
-        }
+        try {
+            if (!addStmt(buffer, stmt)) {
+                return null;
+            }
 
-        if (stmt instanceof PsiSwitchStatement) {
-            return getSwitchStmtAsString((PsiSwitchStatement) stmt);
+            return buffer.toArray(start);
+        } finally {
+            buffer.truncate(start);
         }
+    }
 
-        if (stmt instanceof PsiSwitchLabelStatement) {
-            return getSwitchLabelStmtAsString((PsiSwitchLabelStatement) stmt);
-        }
+    public static int[] getExprAsTokens(PsiExpression expr) {
+        TokenBuffer buffer = buffers.get();
+        int start = buffer.size();
 
-        if (stmt instanceof PsiAssertStatement) {
-            return getAssertStmtAsString((PsiAssertStatement) stmt);
+        try {
+            addExpr(buffer, expr);
+            return buffer.toArray(start);
+        } finally {
+            buffer.truncate(start);
         }
+    }
 
-        if (stmt instanceof PsiTryStatement) {
-            return getTryStmtAsString((PsiTryStatement) stmt);
-        }
+    public static int[] getPolyExprAsTokens(PsiPolyadicExpression expr) {
+        TokenBuffer buffer = buffers.get();
+        int start = buffer.size();
 
-        if (stmt instanceof PsiThrowStatement) {
-            return getThrowStmtAsString((PsiThrowStatement) stmt);
+        try {
+            addPolyExpr(buffer, expr);
+            return buffer.toArray(start);
+        } finally {
+            buffer.truncate(start);
         }
+    }
 
-        if (stmt instanceof PsiContinueStatement) {
-            return getContinueStmtAsString((PsiContinueStatement) stmt);
+    private static boolean addStmt(TokenBuffer buffer, PsiStatement stmt) {
+        if (stmt instanceof PsiExpressionStatement) {
+            addExprStmt(buffer, (PsiExpressionStatement) stmt);
+        } else if (stmt instanceof PsiIfStatement) {
+            addIfStmt(buffer, (PsiIfStatement) stmt);
+        } else if (stmt instanceof PsiBreakStatement) {
+            return true;
+        } else if (stmt instanceof PsiBlockStatement) {
+            addBlockStmt(buffer, (PsiBlockStatement) stmt);
+        } else if (stmt instanceof PsiDeclarationStatement) {
+            addDeclStmt(buffer, (PsiDeclarationStatement) stmt);
+        } else if (stmt instanceof PsiReturnStatement) {
+            addReturnStmt(buffer, (PsiReturnStatement) stmt);
+        } else if (stmt instanceof PsiForStatement) {
+            addForStmt(buffer, (PsiForStatement) stmt);
+        } else if (stmt instanceof PsiForeachStatement) {
+            addForEachStmt(buffer, (PsiForeachStatement) stmt);
+        } else if (stmt instanceof PsiWhileStatement) {
+            addWhileStmt(buffer, (PsiWhileStatement) stmt);
+        } else if (stmt instanceof PsiDoWhileStatement) {
+            addDoWhileStmt(buffer, (PsiDoWhileStatement) stmt);
+        } else if (stmt instanceof PsiSwitchStatement) {
+            addSwitchStmt(buffer, (PsiSwitchStatement) stmt);
+        } else if (stmt instanceof PsiSwitchLabelStatement) {
+            addSwitchLabelStmt(buffer, (PsiSwitchLabelStatement) stmt);
+        } else if (stmt instanceof PsiAssertStatement) {
+            addAssertStmt(buffer, (PsiAssertStatement) stmt);
+        } else if (stmt instanceof PsiTryStatement) {
+            addTryStmt(buffer, (PsiTryStatement) stmt);
+        } else if (stmt instanceof PsiThrowStatement) {
+            addThrowStmt(buffer, (PsiThrowStatement) stmt);
+        } else if (stmt instanceof PsiContinueStatement) {
+            addContinueStmt(buffer, (PsiContinueStatement) stmt);
+        } else {
+            return false;
         }
 
-        return null;
+        return true;
     }
 
-    private static List<String> getContinueStmtAsString(PsiContinueStatement stmt) {
-        List<String> continueStmtAsString = new ArrayList<>();
-        continueStmtAsString.add("CONTINUE");
-
-        return continueStmtAsString;
+    private static void addContinueStmt(TokenBuffer buffer, PsiContinueStatement stmt) {
+        buffer.add("CONTINUE");
     }
 
-    private static List<String> getThrowStmtAsString(PsiThrowStatement stmt) {
-        List<String> throwStmtAsString = new ArrayList<>();
-
-        throwStmtAsString.add("THROW");
+    private static void addThrowStmt(TokenBuffer buffer, PsiThrowStatement stmt) {
+        buffer.add("THROW");
 
-        throwStmtAsString.addAll(getExprAsString(stmt.getException()));
+        addExpr(buffer, stmt.getException());
 
-        throwStmtAsString.add("END-THROW");
-
-        return throwStmtAsString;
+        buffer.add("END-THROW");
     }
 
-    private static List<String> getTryStmtAsString(PsiTryStatement stmt) {
-        List<String> tryStmtAsString = new ArrayList<>();
-
+    private static void addTryStmt(TokenBuffer buffer, PsiTryStatement stmt) {
         if (stmt.getTryBlock() != null) {
-            tryStmtAsString.add("TRY");
-            tryStmtAsString.addAll(getCodeBlockAsString(stmt.getTryBlock()));
-            tryStmtAsString.add("END-TRY");
+            buffer.add("TRY");
+            addCodeBlock(buffer, stmt.getTryBlock());
+            buffer.add("END-TRY");
         }
 
         if (stmt.getCatchBlocks().length > 0) {
             for (PsiCatchSection c : stmt.getCatchSections()) {
                 if ((c.getCatchType() != null) && (c.getParameter() != null) && (c.getCatchBlock() != null)) {
-                    tryStmtAsString.add("CATCH");
+                    buffer.add("CATCH");
 
-                    tryStmtAsString.add("PARAM");
-                    tryStmtAsString.add(getTypeAsString(c.getCatchType()));
+                    buffer.add("PARAM");
+                    buffer.add(getTypeAsString(c.getCatchType()));
                     String exceptionName = c.getParameter().getName();
-                    tryStmtAsString.add("EXCEPTION");
+                    buffer.add("EXCEPTION");
 
-                    List<String> catchBlock = getCodeBlockAsString(c.getCatchBlock());
-                    findAndReplaceVar(catchBlock, exceptionName, "EXCEPTION");
-                    tryStmtAsString.addAll(catchBlock);
+                    int catchBlockStart = buffer.size();
+                    addCodeBlock(buffer, c.getCatchBlock());
+                    findAndReplaceVar(buffer, catchBlockStart, exceptionName, "EXCEPTION");
 
-                    tryStmtAsString.add("END-CATCH");
+                    buffer.add("END-CATCH");
                 }
             }
         }
 
         if (stmt.getFinallyBlock() != null) {
-            tryStmtAsString.add("FINALLY");
-            tryStmtAsString.addAll(getCodeBlockAsString(stmt.getFinallyBlock()));
-            tryStmtAsString.add("END-FINALLY");
+            buffer.add("FINALLY");
+            addCodeBlock(buffer, stmt.getFinallyBlock());
+            buffer.add("END-FINALLY");
         }
-
-        return tryStmtAsString;
     }
 
-    private static List<String> getAssertStmtAsString(PsiAssertStatement stmt) {
+    private static void addAssertStmt(TokenBuffer buffer, PsiAssertStatement stmt) {
         // Only consider assertion condition (not description)
-        List<String> assertStmtAsString = new ArrayList<>();
-
-        assertStmtAsString.add("ASSERT");
-        assertStmtAsString.addAll(getExprAsString(stmt.getAssertCondition()));
-        assertStmtAsString.add("END-ASSERT");
-
-        return assertStmtAsString;
+        buffer.add("ASSERT");
+        addExpr(buffer, stmt.getAssertCondition());
+        buffer.add("END-ASSERT");
     }
 
-    private static List<String> getSwitchLabelStmtAsString(PsiSwitchLabelStatement stmt) {
-        List<String> switchLabelStmtAsString = new ArrayList<>();
-
-        switchLabelStmtAsString.add("CASELABEL");
+    private static void addSwitchLabelStmt(TokenBuffer buffer, PsiSwitchLabelStatement stmt) {
+        buffer.add("CASELABEL");
 
         PsiElement[] children = stmt.getChildren();
 
@@ -162,38 +179,34 @@ public class TokeniseUtils {
                 PsiExpressionList exprList = (PsiExpressionList) child;
                 PsiExpression[] exprs = exprList.getExpressions();
                 for (PsiExpression expr : exprs) {
-                    switchLabelStmtAsString.addAll(getExprAsString(expr));
+                    addExpr(buffer, expr);
                 }
                 break;
             }
         }
 
-        switchLabelStmtAsString.add("END-CASELABEL");
-
-        return switchLabelStmtAsString;
+        buffer.add("END-CASELABEL");
     }
 
-    private static List<String> getSwitchStmtAsString(PsiSwitchStatement stmt) {
-        List<String> switchStmtAsString = new ArrayList<>();
+    private static void addSwitchStmt(TokenBuffer buffer, PsiSwitchStatement stmt) {
+        buffer.add("SWITCH");
 
-        switchStmtAsString.add("SWITCH");
-
-        switchStmtAsString.add("SWITCH-VAR");
+        buffer.add("SWITCH-VAR");
 
         PsiElement[] children = stmt.getChildren();
         for (PsiElement child : children) {
             if (child instanceof PsiReferenceExpression) {
                 PsiReferenceExpression refExpr = (PsiReferenceExpression) child;
                 if (refExpr.getType() != null) {
-                    switchStmtAsString.add("SWITCH-VAR-TYPE");
-                    switchStmtAsString.add(getTypeAsString(refExpr.getType()));
+                    buffer.add("SWITCH-VAR-TYPE");
+                    buffer.add(getTypeAsString(refExpr.getType()));
                 }
-                switchStmtAsString.addAll(getRefAsString(refExpr));
+                addRef(buffer, refExpr);
                 break;
             }
         }
 
-        switchStmtAsString.add("END-SWITCH-VAR");
+        buffer.add("END-SWITCH-VAR");
 
         PsiCodeBlock switchBody = stmt.getBody();
 
@@ -201,234 +214,200 @@ public class TokeniseUtils {
             PsiStatement[] stats = switchBody.getStatements();
 
             for (PsiStatement s : stats) {
-                switchStmtAsString.addAll(getStmtAsString(s));
+                addStmt(buffer, s);
             }
         }
 
-        switchStmtAsString.add("END-SWITCH");
-
-        return switchStmtAsString;
+        buffer.add("END-SWITCH");
     }
 
-    private static List<String> getForStmtAsString(PsiForStatement stmt) {
-        List<String> forStmtAsString = new ArrayList<>();
+    private static void addForStmt(TokenBuffer buffer, PsiForStatement stmt) {
+        int start = buffer.size();
 
-        forStmtAsString.add("FOR");
+        buffer.add("FOR");
         PsiStatement initStmt = stmt.getInitialization();
         PsiExpression limitExpr = stmt.getCondition();
-        PsiStatement updateStmt = stmt.getUpdate();
 
         String indexVar = "";
         if (initStmt instanceof PsiDeclarationStatement) {
-            List<String> initAsString = getDeclStmtAsString((PsiDeclarationStatement) initStmt);
+            buffer.add("FOR-INIT");
 
-            indexVar = initAsString.get(initAsString.indexOf("NAME") + 1);
+            int initStart = buffer.size();
+            addDeclStmt(buffer, (PsiDeclarationStatement) initStmt);
 
-            forStmtAsString.add("FOR-INIT");
-            forStmtAsString.addAll(initAsString);
+            int nameIndex = buffer.indexOf(NAME, initStart);
+            if (nameIndex != -1) {
+                indexVar = TokenDictionary.getToken(buffer.get(nameIndex + 1));
+            }
         }
 
-        forStmtAsString.add("FOR-COND");
-        forStmtAsString.addAll(getExprAsString(limitExpr));
-
-        forStmtAsString.add("FOR-UPDATE");
-        getStmtAsString(updateStmt);
+        buffer.add("FOR-COND");
+        addExpr(buffer, limitExpr);
 
-        forStmtAsString.add("FOR-BODY");
-        PsiStatement forBody = stmt.getBody();
-        forStmtAsString.addAll(getStmtAsString(forBody));
+        buffer.add("FOR-UPDATE");
 
-        findAndReplaceVar(forStmtAsString, indexVar, "FOR-INDEX");
+        buffer.add("FOR-BODY");
+        addStmt(buffer, stmt.getBody());
 
-        forStmtAsString.add("END-FOR");
+        findAndReplaceVar(buffer, start, indexVar, "FOR-INDEX");
 
-        return forStmtAsString;
+        buffer.add("END-FOR");
     }
 
-    private static List<String> getForEachStmtAsString(PsiForeachStatement stmt) {
-        List<String> forEachStmtAsString = new ArrayList<>();
-
-        forEachStmtAsString.add("FOREACH");
+    private static void addForEachStmt(TokenBuffer buffer, PsiForeachStatement stmt) {
+        buffer.add("FOREACH");
         PsiParameter param = stmt.getIterationParameter();
-        forEachStmtAsString.add("FOREACH-TYPE");
-        forEachStmtAsString.add(getTypeAsString(param.getType()));
+        buffer.add("FOREACH-TYPE");
+        buffer.add(getTypeAsString(param.getType()));
         String paramName = param.getName();
-        forEachStmtAsString.add("FOREACH-PARAM");
+        buffer.add("FOREACH-PARAM");
 
-        forEachStmtAsString.add("FOREACH-IN");
-        forEachStmtAsString.addAll(getExprAsString(stmt.getIteratedValue()));
+        buffer.add("FOREACH-IN");
+        addExpr(buffer, stmt.getIteratedValue());
 
         if (stmt.getBody() != null) {
-            forEachStmtAsString.add("FOREACH-BODY");
-            List<String> body = getStmtAsString(stmt.getBody());
-            findAndReplaceVar(body, paramName, "FOREACH-PARAM");
-            forEachStmtAsString.addAll(body);
-            forEachStmtAsString.add("END-FOREACH-BODY");
+            buffer.add("FOREACH-BODY");
+            int bodyStart = buffer.size();
+            addStmt(buffer, stmt.getBody());
+            findAndReplaceVar(buffer, bodyStart, paramName, "FOREACH-PARAM");
+            buffer.add("END-FOREACH-BODY");
         }
 
-        forEachStmtAsString.add("END-FOREACH");
-
-        return forEachStmtAsString;
+        buffer.add("END-FOREACH");
     }
 
-    private static List<String> getWhileStmtAsString(PsiWhileStatement stmt) {
-        List<String> whileStmtAsString = new ArrayList<>();
-
-        whileStmtAsString.add("WHILE");
+    private static void addWhileStmt(TokenBuffer buffer, PsiWhileStatement stmt) {
+        buffer.add("WHILE");
 
         if (stmt.getCondition() != null) {
-            whileStmtAsString.add("WHILE-COND");
-            whileStmtAsString.addAll(getExprAsString(stmt.getCondition()));
-            whileStmtAsString.add("END-WHILE-COND");
+            buffer.add("WHILE-COND");
+            addExpr(buffer, stmt.getCondition());
+            buffer.add("END-WHILE-COND");
         }
 
         if (stmt.getBody() != null) {
-            whileStmtAsString.add("WHILE-BODY");
-            whileStmtAsString.addAll(getStmtAsString(stmt.getBody()));
-            whileStmtAsString.add("END-WHILE-BODY");
+            buffer.add("WHILE-BODY");
+            addStmt(buffer, stmt.getBody());
+            buffer.add("END-WHILE-BODY");
         }
 
-        whileStmtAsString.add("END-WHILE");
-
-        return whileStmtAsString;
+        buffer.add("END-WHILE");
     }
 
-    private static List<String> getDoWhileStmtAsString(PsiDoWhileStatement stmt) {
-        List<String> doWhileStmtAsString = new ArrayList<>();
-
-        doWhileStmtAsString.add("DOWHILE");
+    private static void addDoWhileStmt(TokenBuffer buffer, PsiDoWhileStatement stmt) {
+        buffer.add("DOWHILE");
 
         if (stmt.getBody() != null) {
-            doWhileStmtAsString.add("DOWHILE-BODY");
-            doWhileStmtAsString.addAll(getStmtAsString(stmt.getBody()));
-            doWhileStmtAsString.add("END-DOWHILE-BODY");
+            buffer.add("DOWHILE-BODY");
+            addStmt(buffer, stmt.getBody());
+            buffer.add("END-DOWHILE-BODY");
         }
 
         if (stmt.getCondition() != null) {
-            doWhileStmtAsString.add("DOWHILE-COND");
-            doWhileStmtAsString.addAll(getExprAsString(stmt.getCondition()));
-            doWhileStmtAsString.add("END-DOWHILE-COND");
+            buffer.add("DOWHILE-COND");
+            addExpr(buffer, stmt.getCondition());
+            buffer.add("END-DOWHILE-COND");
         }
 
-        doWhileStmtAsString.add("END-DOWHILE");
-
-        return doWhileStmtAsString;
+        buffer.add("END-DOWHILE");
     }
 
-    private static void findAndReplaceVar(List<String> list, String toFind, String replacement) {
-        for (int i = 0; i < list.size(); i++) {
-            if (list.get(i).equals(toFind)) {
-                list.set(i, replacement);
-            }
+    private static void findAndReplaceVar(TokenBuffer buffer, int from, String toFind, String replacement) {
+        if (toFind == null) {
+            return;
         }
-    }
 
-    private static List<String> getReturnStmtAsString(PsiReturnStatement stmt) {
-        List<String> returnStmtAsString = new ArrayList<>();
+        buffer.replace(from, TokenDictionary.getId(toFind), TokenDictionary.getId(replacement));
+    }
 
-        returnStmtAsString.add("RETURN");
+    private static void addReturnStmt(TokenBuffer buffer, PsiReturnStatement stmt) {
+        buffer.add("RETURN");
 
         PsiExpression returnExpr = stmt.getReturnValue();
 
         if (returnExpr != null) {
-            returnStmtAsString.addAll(getExprAsString(returnExpr));
+            addExpr(buffer, returnExpr);
         }
 
-        returnStmtAsString.add("END-RETURN");
-
-        return returnStmtAsString;
+        buffer.add("END-RETURN");
     }
 
-    private static List<String> getDeclStmtAsString(PsiDeclarationStatement stmt) {
-        List<String> declStmtAsString = new ArrayList<>();
-
-        declStmtAsString.add("DECLARATION");
+    private static void addDeclStmt(TokenBuffer buffer, PsiDeclarationStatement stmt) {
+        buffer.add("DECLARATION");
 
         PsiElement[] elements = stmt.getDeclaredElements();
 
         for (PsiElement elem : elements) {
             if (elem instanceof PsiLocalVariable) {
-                declStmtAsString.addAll(getLocalVarAsString((PsiLocalVariable) elem));
+                addLocalVar(buffer, (PsiLocalVariable) elem);
             }
         }
 
-        declStmtAsString.add("END-DECLARATION");
-
-        return declStmtAsString;
+        buffer.add("END-DECLARATION");
     }
 
-    private static List<String> getLocalVarAsString(PsiLocalVariable var) {
-        List<String> localVarAsString = new ArrayList<>();
-
-        localVarAsString.add("TYPE");
+    private static void addLocalVar(TokenBuffer buffer, PsiLocalVariable var) {
+        buffer.add("TYPE");
         PsiTypeElement type = var.getTypeElement();
-        localVarAsString.add(getTypeAsString(type.getType()));
+        buffer.add(getTypeAsString(type.getType()));
 
-        localVarAsString.add("NAME");
-        localVarAsString.add(var.getName());
+        buffer.add("NAME");
+        buffer.add(var.getName());
 
         if (var.hasInitializer()) {
-            localVarAsString.add("INIT");
+            buffer.add("INIT");
             PsiExpression varInit = var.getInitializer();
-            localVarAsString.addAll(getExprAsString(varInit));
+            addExpr(buffer, varInit);
         }
-
-        return localVarAsString;
     }
 
-    private static List<String> getBlockStmtAsString(PsiBlockStatement stmt) {
-        return getCodeBlockAsString(stmt.getCodeBlock());
+    private static void addBlockStmt(TokenBuffer buffer, PsiBlockStatement stmt) {
+        addCodeBlock(buffer, stmt.getCodeBlock());
     }
 
-    private static List<String> getCodeBlockAsString(PsiCodeBlock stmt) {
-        List<String> codeBlockAsString = new ArrayList<>();
-
+    private static void addCodeBlock(TokenBuffer buffer, PsiCodeBlock stmt) {
         PsiStatement[] blockStmts = stmt.getStatements();
 
         for (PsiStatement blockStmt : blockStmts) {
-            codeBlockAsString.add("STMT");
-            codeBlockAsString.addAll(getStmtAsString(blockStmt));
-            codeBlockAsString.add("END-STMT");
+            buffer.add("STMT");
+            addStmt(buffer, blockStmt);
+            buffer.add("END-STMT");
         }
-
-        return codeBlockAsString;
     }
 
-    private static List<String> getIfStmtAsString(PsiIfStatement stmt) {
-        List<String> ifStmtAsString = new ArrayList<>();
+    private static void addIfStmt(TokenBuffer buffer, PsiIfStatement stmt) {
+        int start = buffer.size();
 
-        ifStmtAsString.add("IF");
+        buffer.add("IF");
 
         PsiExpression condExpr = stmt.getCondition();
 
         Map<String, String> replaceVars = null;
         if (condExpr != null) {
-            ifStmtAsString.add("IF-COND");
+            buffer.add("IF-COND");
             replaceVars = getConditionVar(condExpr);
-            ifStmtAsString.addAll(getExprAsString(condExpr));
+            addExpr(buffer, condExpr);
         }
 
         PsiStatement thenStmt = stmt.getThenBranch();
         if (thenStmt != null) {
-            ifStmtAsString.add("IF-THEN");
-            ifStmtAsString.addAll(getStmtAsString(thenStmt));
+            buffer.add("IF-THEN");
+            addStmt(buffer, thenStmt);
         }
 
         PsiStatement elseStmt = stmt.getElseBranch();
         if (elseStmt != null) {
-            ifStmtAsString.add("IF-ELSE");
-            ifStmtAsString.addAll(getStmtAsString(elseStmt));
+            buffer.add("IF-ELSE");
+            addStmt(buffer, elseStmt);
         }
 
         if (replaceVars != null) {
             for (Map.Entry<String, String> entry : replaceVars.entrySet()) {
-                findAndReplaceVar(ifStmtAsString, entry.getKey(), entry.getValue());
+                findAndReplaceVar(buffer, start, entry.getKey(), entry.getValue());
             }
         }
 
-        ifStmtAsString.add("END-IF");
-
-        return ifStmtAsString;
+        buffer.add("END-IF");
     }
 
     private static Map<String, String> getConditionVar(PsiExpression expr) {
@@ -449,213 +428,177 @@ public class TokeniseUtils {
         }
     }
 
-    private static List<String> getBinExprAsString(PsiBinaryExpression binExpr) {
-        List<String> binExprAsString = new ArrayList<>();
-        binExprAsString.add("BINEXPR");
+    private static void addBinExpr(TokenBuffer buffer, PsiBinaryExpression binExpr) {
+        buffer.add("BINEXPR");
 
-        binExprAsString.add("BINEXPRLHS");
+        buffer.add("BINEXPRLHS");
         PsiExpression leftExpr = binExpr.getLOperand();
-        binExprAsString.addAll(getExprAsString(leftExpr));
-        binExprAsString.add("END-BINEXPRLHS");
+        addExpr(buffer, leftExpr);
+        buffer.add("END-BINEXPRLHS");
 
-        binExprAsString.add("BINEXPROP");
-        binExprAsString.add(getOpAsString(binExpr.getOperationSign()));
+        buffer.add("BINEXPROP");
+        buffer.add(getOpAsString(binExpr.getOperationSign()));
 
-        binExprAsString.add("BINEXPRRHS");
+        buffer.add("BINEXPRRHS");
         PsiExpression rightExpr = binExpr.getROperand();
-        binExprAsString.addAll(getExprAsString(rightExpr));
-        binExprAsString.add("END-BINEXPRRHS");
+        addExpr(buffer, rightExpr);
+        buffer.add("END-BINEXPRRHS");
 
-        binExprAsString.add("END-BINEXPR");
-        return binExprAsString;
+        buffer.add("END-BINEXPR");
     }
 
-    private static List<String> getExprStmtAsString(PsiExpressionStatement exprStmt) {
+    private static void addExprStmt(TokenBuffer buffer, PsiExpressionStatement exprStmt) {
         PsiExpression expr = exprStmt.getExpression();
 
-        return getExprAsString(expr);
+        addExpr(buffer, expr);
     }
 
-    public static List<String> getExprAsString(PsiExpression expr) {
-        List<String> exprAsString = new ArrayList<>();
-
+    private static void addExpr(TokenBuffer buffer, PsiExpression expr) {
         if (expr instanceof PsiAssignmentExpression) {
-            exprAsString.addAll(getAssExprAsString((PsiAssignmentExpression) expr));
+            addAssExpr(buffer, (PsiAssignmentExpression) expr);
         } else if (expr instanceof PsiMethodCallExpression) {
-            exprAsString.addAll(getMethodCallExprAsString((PsiMethodCallExpression) expr));
+            addMethodCallExpr(buffer, (PsiMethodCallExpression) expr);
         } else if (expr instanceof PsiReferenceExpression) {
-            exprAsString.addAll(getRefAsString((PsiReferenceExpression) expr));
+            addRef(buffer, (PsiReferenceExpression) expr);
         } else if (expr instanceof PsiLiteralExpression) {
-            exprAsString.add(getLiteralAsString((PsiLiteralExpression) expr));
+            buffer.add(getLiteralAsString((PsiLiteralExpression) expr));
         } else if (expr instanceof PsiPostfixExpression) {
-            exprAsString.addAll(getPostfixExprAsString((PsiPostfixExpression) expr));
+            addPostfixExpr(buffer, (PsiPostfixExpression) expr);
         } else if (expr instanceof PsiPrefixExpression) {
-            exprAsString.addAll(getPrefixExprAsString((PsiPrefixExpression) expr));
+            addPrefixExpr(buffer, (PsiPrefixExpression) expr);
         } else if (expr instanceof PsiBinaryExpression) {
-            exprAsString.addAll(getBinExprAsString((PsiBinaryExpression) expr));
+            addBinExpr(buffer, (PsiBinaryExpression) expr);
         } else if (expr instanceof PsiNewExpression){
-            exprAsString.addAll(getNewExprAsString((PsiNewExpression) expr));
+            addNewExpr(buffer, (PsiNewExpression) expr);
         } else if (expr instanceof PsiPolyadicExpression) {
-            exprAsString.addAll(getPolyExprAsString((PsiPolyadicExpression) expr));
+            addPolyExpr(buffer, (PsiPolyadicExpression) expr);
         }
-
-        return exprAsString;
     }
 
-    private static List<String> getPostfixExprAsString(PsiPostfixExpression expr) {
-        List<String> postfixExprAsString = new ArrayList<>();
-
-        postfixExprAsString.add("POSTFIX");
+    private static void addPostfixExpr(TokenBuffer buffer, PsiPostfixExpression expr) {
+        buffer.add("POSTFIX");
         if (expr.getOperand().getType() != null) {
-            postfixExprAsString.add("POSTFIX-TYPE");
-            postfixExprAsString.add(getTypeAsString(expr.getOperand().getType()));
+            buffer.add("POSTFIX-TYPE");
+            buffer.add(getTypeAsString(expr.getOperand().getType()));
         }
-        postfixExprAsString.add("POSTFIX-VAR");
-        postfixExprAsString.addAll(getExprAsString(expr.getOperand()));
-        postfixExprAsString.add("POSTFIX-OP");
-        postfixExprAsString.add(getOpAsString(expr.getOperationSign()));
+        buffer.add("POSTFIX-VAR");
+        addExpr(buffer, expr.getOperand());
+        buffer.add("POSTFIX-OP");
+        buffer.add(getOpAsString(expr.getOperationSign()));
 
-        postfixExprAsString.add("END-POSTFIX");
-
-        return postfixExprAsString;
+        buffer.add("END-POSTFIX");
     }
 
-    private static List<String> getPrefixExprAsString(PsiPrefixExpression expr) {
-        List<String> prefixExprAsString = new ArrayList<>();
-
-        prefixExprAsString.add("PREFIX");
+    private static void addPrefixExpr(TokenBuffer buffer, PsiPrefixExpression expr) {
+        buffer.add("PREFIX");
         if (expr.getOperand() != null) {
             if (expr.getOperand().getType() != null) {
-                prefixExprAsString.add("PREFIX-TYPE");
-                prefixExprAsString.add(getTypeAsString(expr.getOperand().getType()));
+                buffer.add("PREFIX-TYPE");
+                buffer.add(getTypeAsString(expr.getOperand().getType()));
             }
-            prefixExprAsString.add("PREFIX-VAR");
-            prefixExprAsString.addAll(getExprAsString(expr.getOperand()));
+            buffer.add("PREFIX-VAR");
+            addExpr(buffer, expr.getOperand());
         }
-        prefixExprAsString.add("PREFIX-OP");
-        prefixExprAsString.add(getOpAsString(expr.getOperationSign()));
+        buffer.add("PREFIX-OP");
+        buffer.add(getOpAsString(expr.getOperationSign()));
 
-        prefixExprAsString.add("END-PREFIX");
-
-        return prefixExprAsString;
+        buffer.add("END-PREFIX");
     }
 
-    public static String[] getPolyExprAsStringArray(PsiPolyadicExpression expr) {
-        List<String> polyExprAsString = getPolyExprAsString(expr);
-
-        return polyExprAsString.toArray(new String[0]);
-    }
-
-    private static List<String> getPolyExprAsString(PsiPolyadicExpression expr) {
-        List<String> polyExprAsString = new ArrayList<>();
-
-        polyExprAsString.add("POLYEXPR");
+    private static void addPolyExpr(TokenBuffer buffer, PsiPolyadicExpression expr) {
+        buffer.add("POLYEXPR");
 
         for (PsiExpression e : expr.getOperands()) {
             PsiJavaToken op = expr.getTokenBeforeOperand(e);
             if (op != null) {
-                polyExprAsString.add(getOpAsString(op));
+                buffer.add(getOpAsString(op));
             }
-            polyExprAsString.addAll(getExprAsString(e));
+            addExpr(buffer, e);
         }
 
-        polyExprAsString.add("END-POLYEXPR");
-
-        return polyExprAsString;
+        buffer.add("END-POLYEXPR");
     }
 
-    private static List<String> getAssExprAsString(PsiAssignmentExpression expr) {
-        List<String> assExprAsString = new ArrayList<>();
-
-        assExprAsString.add("LHS");
+    private static void addAssExpr(TokenBuffer buffer, PsiAssignmentExpression expr) {
+        buffer.add("LHS");
         PsiExpression leftExpr = expr.getLExpression();
         if (leftExpr.getType() != null) {
-            assExprAsString.add("LHS-TYPE");
-            assExprAsString.add(getTypeAsString(leftExpr.getType()));
+            buffer.add("LHS-TYPE");
+            buffer.add(getTypeAsString(leftExpr.getType()));
         }
-        assExprAsString.add("LHS-VAR");
-        assExprAsString.addAll(getExprAsString(leftExpr));
+        buffer.add("LHS-VAR");
+        addExpr(buffer, leftExpr);
 
-        assExprAsString.add("OP");
+        buffer.add("OP");
         PsiJavaToken opToken = expr.getOperationSign();
-        assExprAsString.add(getOpAsString(opToken));
+        buffer.add(getOpAsString(opToken));
 
-        assExprAsString.add("RHS");
+        buffer.add("RHS");
         PsiExpression rightExpr = expr.getRExpression();
-        assExprAsString.addAll(getExprAsString(rightExpr));
-
-        return assExprAsString;
+        addExpr(buffer, rightExpr);
     }
 
-    private static List<String> getMethodCallExprAsString(PsiMethodCallExpression expr) {
-        List<String> methodCallExprAsString = new ArrayList<>();
-
+    private static void addMethodCallExpr(TokenBuffer buffer, PsiMethodCallExpression expr) {
         PsiReferenceExpression refExpr = expr.getMethodExpression();
 
-        methodCallExprAsString.add("METHOD-CALL");
-        methodCallExprAsString.addAll(getRefAsString(refExpr));
+        buffer.add("METHOD-CALL");
+        addRef(buffer, refExpr);
 
         PsiExpressionList paramList = expr.getArgumentList();
         PsiExpression[] params = paramList.getExpressions();
 
         if (params.length > 0) {
-            methodCallExprAsString.add("PARAMS");
+            buffer.add("PARAMS");
         }
 
         for (PsiExpression param : params) {
-            methodCallExprAsString.addAll(getExprAsString(param));
+            addExpr(buffer, param);
         }
 
-        methodCallExprAsString.add("END-METHOD-CALL");
-
-        return methodCallExprAsString;
+        buffer.add("END-METHOD-CALL");
     }
 
-    private static List<String> getNewExprAsString(PsiNewExpression expr) {
-        List<String> newExprAsString = new ArrayList<>();
-
+    private static void addNewExpr(TokenBuffer buffer, PsiNewExpression expr) {
         if (expr.isArrayCreation()) {
-            newExprAsString.add("NEW-ARRAY");
+            buffer.add("NEW-ARRAY");
             PsiArrayInitializerExpression arrInitExpr = expr.getArrayInitializer();
             if (arrInitExpr != null){
-                newExprAsString.add("TYPE");
+                buffer.add("TYPE");
                 PsiExpression[] initExprs = arrInitExpr.getInitializers();
                 for (PsiExpression e : initExprs) {
-                    newExprAsString.addAll(getExprAsString(e));
+                    addExpr(buffer, e);
                 }
             }
             PsiExpression[] dimensions = expr.getArrayDimensions();
-            newExprAsString.add("DIM");
+            buffer.add("DIM");
             for (PsiExpression e : dimensions) {
-                newExprAsString.addAll(getExprAsString(e));
+                addExpr(buffer, e);
             }
-            newExprAsString.add("END-NEW-ARRAY");
+            buffer.add("END-NEW-ARRAY");
         } else {
-            newExprAsString.add("NEW-OBJECT");
+            buffer.add("NEW-OBJECT");
             PsiJavaCodeReferenceElement refElem = expr.getClassReference();
             if (refElem != null) {
-                newExprAsString.add(refElem.getQualifiedName());
+                buffer.add(refElem.getQualifiedName());
                 PsiType[] typeParams = refElem.getTypeParameters();
                 if (typeParams.length > 0) {
-                    newExprAsString.add("TYPE-PARAMS");
+                    buffer.add("TYPE-PARAMS");
                 }
                 for (PsiType t : typeParams) {
-                    newExprAsString.add(getTypeAsString(t));
+                    buffer.add(getTypeAsString(t));
                 }
             }
 
             PsiExpressionList params = expr.getArgumentList();
             if (params != null) {
-                newExprAsString.add("PARAMS");
+                buffer.add("PARAMS");
                 PsiExpression[] exprs = params.getExpressions();
                 for (PsiExpression e : exprs) {
-                    newExprAsString.addAll(getExprAsString(e));
+                    addExpr(buffer, e);
                 }
             }
-            newExprAsString.add("END-NEW-OBJECT");
+            buffer.add("END-NEW-OBJECT");
         }
-
-        return newExprAsString;
     }
 
     private static String getOpAsString(PsiJavaToken opToken) {
@@ -676,22 +619,18 @@ public class TokeniseUtils {
         return "";
     }
 
-    private static List<String> getRefAsString(PsiReferenceExpression refExpr) {
-        List<String> refAsString = new ArrayList<>();
-
-        refAsString.add("REF");
+    private static void addRef(TokenBuffer buffer, PsiReferenceExpression refExpr) {
+        buffer.add("REF");
         if (refExpr.getQualifierExpression() != null) {
-            refAsString.addAll(getExprAsString(refExpr.getQualifierExpression()));
+            addExpr(buffer, refExpr.getQualifierExpression());
         }
 
         String id = getIdentifierString(refExpr);
         if (id != null) {
-            refAsString.add(id);
+            buffer.add(id);
         }
 
-        refAsString.add("END-REF");
-
-        return refAsString;
+        buffer.add("END-REF");
     }
 
     private static String getTypeAsString(PsiType type) {
@@ -1,34 +1,20 @@
 package util;
 
 import com.intellij.codeInspection.ProblemsHolder;
-import com.intellij.openapi.actionSystem.AnAction;
-import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.psi.*;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.tree.IElementType;
-import org.jetbrains.annotations.NotNull;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
-
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.*;
 
 public final class Utils {
 
     private static final String CAMEL_CASE = "([a-z]+[0-9]*[A-Z]*[^\\W_]*)+";
     private static final String UPPER_SNAKE_CASE = "([A-Z]+_?)+";
-    private static final Notifier NOTIFIER = new Notifier();
-
-    private static final List<Project> configsNotFound = new ArrayList<>();
-    private static final List<Project> usingDefault = new ArrayList<>();
-
-    private static final List<String> highDefaultConfig = Arrays.asList("string-comparison", "string-concat", "simplify-if");
-    private static final List<String> mediumDefaultConfig = Arrays.asList("camelcase", "screaming-snake-case", "this");
-    private static final List<String> lowDefaultConfig = Arrays.asList("single-char-name", "method-length");
+    private static final Key<CachedValue<Boolean>> HAS_ERRORS_KEY = Key.create("diligent.hasErrors");
 
     public static PsiElement removeWhitespaceUntilPrev(PsiElement prev) {
         while (prev instanceof PsiWhiteSpace || prev instanceof PsiComment) {
@@ -99,81 +85,7 @@ public final class Utils {
     }
 
     public static InspectionPriority getInspectionPriority(ProblemsHolder holder, String inspectionName) {
-        Project project = holder.getProject();
-        if (configsNotFound.contains(project)) {
-            if (usingDefault.contains(project)) {
-                return getInspectionPriorityInDefault(inspectionName);
-            }
-            return InspectionPriority.NONE;
-        }
-
-        String projectPath = project.getBasePath();
-        try {
-            Object obj = new JSONParser().parse(new FileReader(projectPath + "/diligent.json"));
-            JSONObject jo = (JSONObject) obj;
-            JSONArray highInspections = (JSONArray) jo.get("high");
-            JSONArray mediumInspections = (JSONArray) jo.get("medium");
-            JSONArray lowInspections = (JSONArray) jo.get("low");
-
-            for (Object inspection : highInspections) {
-                String highInspection = (String) inspection;
-                if (highInspection.equals(inspectionName)) {
-                    return InspectionPriority.HIGH;
-                }
-            }
-
-            for (Object inspection : mediumInspections) {
-                String mediumInspection = (String) inspection;
-                if (mediumInspection.equals(inspectionName)) {
-                    return InspectionPriority.MEDIUM;
-                }
-            }
-
-            for (Object inspection : lowInspections) {
-                String lowInspection = (String) inspection;
-                if (lowInspection.equals(inspectionName)) {
-                    return InspectionPriority.LOW;
-                }
-            }
-
-        } catch (IOException | ParseException e) {
-            AnAction defaultAction = new AnAction("Use Default Configuration") {
-                @Override
-                public void actionPerformed(@NotNull AnActionEvent anActionEvent) {
-                    usingDefault.add(project);
-                }
-            };
-            AnAction updateAction = new AnAction("Look Again For Configuration File") {
-                @Override
-                public void actionPerformed(@NotNull AnActionEvent anActionEvent) {
-                    configsNotFound.remove(project);
-                    usingDefault.remove(project);
-                }
-            };
-            NOTIFIER.notifyErrorWithAction(holder.getProject(),
-                    "Diligent",
-                    "No configuration file found at '" + projectPath + "/diligent.json'.",
-                    Arrays.asList(defaultAction, updateAction));
-            configsNotFound.add(project);
-        }
-
-        return InspectionPriority.NONE;
-    }
-
-    private static InspectionPriority getInspectionPriorityInDefault(String inspectionToFind) {
-        if (highDefaultConfig.contains(inspectionToFind)) {
-            return InspectionPriority.HIGH;
-        }
-
-        if (mediumDefaultConfig.contains(inspectionToFind)) {
-            return InspectionPriority.MEDIUM;
-        }
-
-        if (lowDefaultConfig.contains(inspectionToFind)) {
-            return InspectionPriority.LOW;
-        }
-
-        return InspectionPriority.NONE;
+        return ConfigurationService.getInstance(holder.getProject()).getInspectionPriority(inspectionName);
     }
 
     public static boolean hasErrorsInFile(PsiElement element) {
@@ -185,7 +97,9 @@ public final class Utils {
             file = element.getContainingFile();
         }
 
-        return hasErrors(file);
+        // The whole-file walk is shared by every inspection and only redone when the file changes
+        return CachedValuesManager.getCachedValue(file, HAS_ERRORS_KEY,
+                () -> CachedValueProvider.Result.create(hasErrors(file), file));
     }
 
     private static boolean hasErrors(PsiElement element) {
@@ -206,6 +120,11 @@ public final class Utils {
         return SmartPointerManager.createPointer(element);
     }
 
+    // Ignores whitespace and comments so that reformatting keeps the same feedback, and is kept with the subtree hashes
+    public static long getStructuralHash(PsiElement element) {
+        return SubtreeHash.getHash(element, SubtreeHash.Variant.EXACT);
+    }
+
     public static boolean isString(PsiType type) {
         if (type == null) {
             return false;
@@ -0,0 +1,78 @@
+// Shared by every report page. The file list comes from files.js, which is the only part rewritten when a file's status changes.
+
+function renderSidebar(currentFile) {
+    var sidebar = document.getElementById("filesidebar");
+
+    for (var i = 0; i < diligentFiles.length; i++) {
+        var file = diligentFiles[i];
+
+        var fileDiv = document.createElement("div");
+        fileDiv.id = "file";
+        fileDiv.setAttribute("onClick", "location.href = './" + file.path + "'");
+        if (file.id === currentFile) {
+            fileDiv.style.fontWeight = "550";
+            fileDiv.style.border = "5px solid white";
+        }
+
+        var container = document.createElement("div");
+        container.id = "filecontainer";
+
+        var title = document.createElement("div");
+        title.id = "filetitle";
+        title.textContent = file.name;
+        container.appendChild(title);
+
+        if (file.status) {
+            var icon = document.createElement("i");
+            icon.className = "material-icons";
+            icon.textContent = file.status;
+            container.appendChild(icon);
+        }
+
+        fileDiv.appendChild(container);
+        sidebar.appendChild(fileDiv);
+    }
+}
+
+function hideIgnoredAdvice(project, currentFile) {
+    var fileMap = JSON.parse(localStorage.getItem(project));
+    if (fileMap !== null && fileMap[currentFile]) {
+        var hidden = fileMap[currentFile];
+        for (var i = 0; i < hidden.length; i++) {
+            var x = document.getElementById(hidden[i]);
+            if (x === null) {
+                continue;
+            }
+            if (x.style.display === "none") {
+                x.style.display = "block";
+            } else {
+                x.style.display = "none";
+            }
+        }
+    }
+}
+
+function ignoreAdvice(div_id) {
+    var project = document.body.getAttribute("data-project");
+    var currentFile = document.body.getAttribute("data-file");
+    var fileMap = JSON.parse(localStorage.getItem(project));
+    if (fileMap === null) {
+        var newFileMap = {};
+    } else {
+        var newFileMap = fileMap;
+    }
+    var hidden = newFileMap[currentFile] || [];
+    hidden.push(div_id);
+    newFileMap[currentFile] = hidden;
+    localStorage.setItem(project, JSON.stringify(newFileMap));
+    window.location.reload();
+}
+
+function init() {
+    var project = document.body.getAttribute("data-project");
+    var currentFile = document.body.getAttribute("data-file");
+    renderSidebar(currentFile);
+    if (currentFile !== null) {
+        hideIgnoredAdvice(project, currentFile);
+    }
+}
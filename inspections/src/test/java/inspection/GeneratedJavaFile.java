@@ -0,0 +1,161 @@
+package inspection;
+
+// Java source of roughly the given number of lines, made of classes written the way students write them, so that
+// every inspection finds something to report: loops building strings, redundant else branches, cloned blocks and
+// switch cases, badly named variables, fields and constructors out of place and methods that run too long
+final class GeneratedJavaFile {
+
+    private static final int METHODS_PER_CLASS = 12;
+
+    private final StringBuilder text = new StringBuilder();
+    private int lines;
+
+    private GeneratedJavaFile() {
+    }
+
+    static String getText(int lines) {
+        GeneratedJavaFile file = new GeneratedJavaFile();
+
+        file.addHeader();
+        for (int index = 0; file.lines < lines; index++) {
+            file.addClass(index);
+        }
+
+        return file.text.toString();
+    }
+
+    private void addHeader() {
+        add("import java.util.ArrayList;");
+        add("import java.util.List;");
+        add("import java.util.stream.Collectors;");
+        add("");
+        add("interface Measurable {");
+        add("    int measure(int size);");
+        add("}");
+        add("");
+        add("abstract class Counter {");
+        add("    protected int count;");
+        add("");
+        add("    abstract void increment();");
+        add("}");
+        add("");
+    }
+
+    private void addClass(int index) {
+        add("class Generated" + index + " extends Counter implements Measurable {");
+        add("");
+        add("    private static final int maxSize = " + index + ";");
+        add("    private String name;");
+        add("    private List<String> words = new ArrayList<>();");
+        add("");
+        add("    Generated" + index + "(String name) {");
+        add("        this.name = name;");
+        add("    }");
+        add("");
+        add("    @Override");
+        add("    void increment() {");
+        add("        count = count + 1;");
+        add("    }");
+        add("");
+        add("    private int total;");
+        add("");
+        add("    Generated" + index + "() {");
+        add("        this(\"default\");");
+        add("    }");
+        add("");
+        add("    @Override");
+        add("    public int measure(int size) {");
+        add("        return size * maxSize;");
+        add("    }");
+
+        for (int method = 0; method < METHODS_PER_CLASS; method++) {
+            add("");
+            switch (method % 4) {
+                case 0:
+                    addLoops(method);
+                    break;
+                case 1:
+                    addConditions(method);
+                    break;
+                case 2:
+                    addClones(method);
+                    break;
+                default:
+                    addLongMethod(method);
+                    break;
+            }
+        }
+
+        add("}");
+        add("");
+    }
+
+    private void addLoops(int method) {
+        add("    String joinWords" + method + "(int limit) {");
+        add("        String result = \"\";");
+        add("        for (int i = 0; i < limit; i++) {");
+        add("            result += words.get(i);");
+        add("        }");
+        add("        int k = 0;");
+        add("        while (k < limit) {");
+        add("            result = result + name;");
+        add("            k++;");
+        add("        }");
+        add("        return result;");
+        add("    }");
+    }
+
+    private void addConditions(int method) {
+        add("    boolean isNamed" + method + "(String other) {");
+        add("        if (other == name) {");
+        add("            return true;");
+        add("        } else {");
+        add("            return false;");
+        add("        }");
+        add("    }");
+    }
+
+    private void addClones(int method) {
+        add("    int describe" + method + "(int option) {");
+        add("        int sum = 0;");
+        add("        switch (option) {");
+        add("            case 0:");
+        add("                sum = this.count + maxSize;");
+        add("                this.count = sum * 2;");
+        add("                break;");
+        add("            case 1:");
+        add("                sum = this.count + maxSize;");
+        add("                this.count = sum * 2;");
+        add("                break;");
+        add("            default:");
+        add("                sum = this.count - maxSize;");
+        add("                break;");
+        add("        }");
+        add("        if (sum > maxSize) {");
+        add("            sum = sum - 1;");
+        add("            total = total + sum;");
+        add("        } else {");
+        add("            sum = sum - 1;");
+        add("            total = total + sum;");
+        add("        }");
+        add("        return sum;");
+        add("    }");
+    }
+
+    private void addLongMethod(int method) {
+        add("    List<String> filter_words" + method + "(String prefix) {");
+        add("        List<String> x = words.stream().filter(w -> w.startsWith(prefix)).collect(Collectors.toList());");
+        add("        int Word_Count = x.size();");
+        for (int stat = 0; stat < 20; stat++) {
+            add("        Word_Count = Word_Count + " + stat + ";");
+        }
+        add("        total = Word_Count;");
+        add("        return x;");
+        add("    }");
+    }
+
+    private void add(String line) {
+        text.append(line).append('\n');
+        lines++;
+    }
+}
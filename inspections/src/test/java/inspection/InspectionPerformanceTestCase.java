@@ -0,0 +1,171 @@
+package inspection;
+
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.Timings;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+// Times the highlighting pass over generated files with one registered inspection enabled at a time, against the
+// budgets in performance-budgets.properties (in milliseconds, keyed by inspection and lines, and adjusted to the speed
+// of the machine running the test). An inspection with no budget fails. Run with -Ddiligent.performance.record to time
+// every inspection instead and write its budget into the resources.
+public abstract class InspectionPerformanceTestCase extends LightCodeInsightFixtureTestCase {
+
+    private static final String CONFIG_FILENAME = "diligent.json";
+    // Every inspection on, including both sides of the 'using' inspections, with near-miss clones looked for too
+    private static final String CONFIG = "{\"high\": [\"camelcase\", \"clone\", \"constructors-first\", \"fields-first\", "
+            + "\"redundant-else\", \"method-length\", \"screaming-snake-case\", \"shorthand-assignment\", \"simplify-if\", "
+            + "\"single-char-name\", \"string-comparison\", \"string-concat\", \"this\", "
+            + "\"for-loops\", \"no-for-loops\", \"inheritance\", \"no-inheritance\", \"interfaces\", \"no-interfaces\", "
+            + "\"streams\", \"no-streams\", \"while-loops\", \"no-while-loops\"], "
+            + "\"clone-similarity\": 0.8}";
+
+    private static final String BUDGETS_RESOURCE = "performance-budgets.properties";
+    // Null unless budgets are being recorded
+    private static final Path RECORDED_BUDGETS = getRecordedBudgets();
+    // Recorded budgets allow for twice the time measured
+    private static final double HEADROOM = 2.0;
+    private static final int SPEED_SCALE = 1000000;
+
+    private static final Properties BUDGETS = loadBudgets();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        // Written through the VFS so that the configuration service reloads it
+        VirtualFile baseDir = LocalFileSystem.getInstance().refreshAndFindFileByPath(getProject().getBasePath());
+        assertNotNull(baseDir);
+        WriteAction.run(() -> VfsUtil.saveText(baseDir.findOrCreateChildData(this, CONFIG_FILENAME), CONFIG));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            VirtualFile config = LocalFileSystem.getInstance().refreshAndFindFileByPath(getProject().getBasePath() + "/" + CONFIG_FILENAME);
+            if (config != null) {
+                WriteAction.run(() -> config.delete(this));
+            }
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    // Every inspection is timed before failing, so that one slow inspection does not hide another
+    protected void checkAllInspections(int lines, int attempts) throws IOException {
+        String text = GeneratedJavaFile.getText(lines);
+        List<String> failures = new ArrayList<>();
+
+        for (Class<? extends LocalInspectionTool> inspectionClass : new InspectionRegistration().getInspectionClasses()) {
+            LocalInspectionTool inspection = newInspection(inspectionClass);
+            String budgetKey = inspection.getShortName() + "." + lines;
+            String budget = BUDGETS.getProperty(budgetKey);
+
+            myFixture.enableInspections(inspection);
+            try {
+                if (RECORDED_BUDGETS != null) {
+                    recordBudget(budgetKey, measure(text, attempts));
+                    continue;
+                }
+
+                if (budget == null) {
+                    failures.add("No budget recorded for " + budgetKey + ", run with -Ddiligent.performance.record to record one");
+                    continue;
+                }
+
+                PlatformTestUtil.startPerformanceTest(inspection.getShortName() + " on " + lines + " lines", Integer.parseInt(budget),
+                        () -> myFixture.doHighlighting())
+                        // A fresh file each attempt, so that no cached values are carried over
+                        .setup(() -> myFixture.configureByText("Generated.java", text))
+                        .attempts(attempts)
+                        .assertTiming();
+            } catch (AssertionError e) {
+                failures.add(e.getMessage());
+            } finally {
+                myFixture.disableInspections(inspection);
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            fail(String.join("\n", failures));
+        }
+    }
+
+    // The fastest of the attempts, in milliseconds
+    private long measure(String text, int attempts) {
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < attempts; i++) {
+            myFixture.configureByText("Generated.java", text);
+
+            long start = System.nanoTime();
+            myFixture.doHighlighting();
+            fastest = Math.min(fastest, (System.nanoTime() - start) / 1000000);
+        }
+
+        return fastest;
+    }
+
+    // Budgets are scaled back to the reference machine, as assertTiming scales them to the machine running the test
+    private static void recordBudget(String budgetKey, long measuredMs) throws IOException {
+        double speed = Timings.adjustAccordingToMySpeed(SPEED_SCALE, false) / (double) SPEED_SCALE;
+        int budget = (int) Math.ceil(Math.max(1, measuredMs) * HEADROOM / speed);
+
+        Properties recorded = new Properties();
+        if (Files.exists(RECORDED_BUDGETS)) {
+            try (InputStream in = Files.newInputStream(RECORDED_BUDGETS)) {
+                recorded.load(in);
+            }
+        } else if (RECORDED_BUDGETS.getParent() != null) {
+            Files.createDirectories(RECORDED_BUDGETS.getParent());
+        }
+
+        recorded.setProperty(budgetKey, Integer.toString(budget));
+        try (OutputStream out = Files.newOutputStream(RECORDED_BUDGETS)) {
+            recorded.store(out, "Recorded by " + InspectionPerformanceTestCase.class.getSimpleName());
+        }
+    }
+
+    private static Path getRecordedBudgets() {
+        String path = System.getProperty("diligent.performance.record");
+        if (path == null) {
+            return null;
+        }
+
+        return Paths.get(path.isEmpty() ? "src/test/resources/inspection/" + BUDGETS_RESOURCE : path);
+    }
+
+    private static Properties loadBudgets() {
+        Properties budgets = new Properties();
+        try (InputStream in = InspectionPerformanceTestCase.class.getResourceAsStream(BUDGETS_RESOURCE)) {
+            if (in != null) {
+                budgets.load(in);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + BUDGETS_RESOURCE, e);
+        }
+
+        return budgets;
+    }
+
+    private static LocalInspectionTool newInspection(Class<? extends LocalInspectionTool> inspectionClass) {
+        try {
+            return inspectionClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException("Cannot create " + inspectionClass.getName(), e);
+        }
+    }
+}
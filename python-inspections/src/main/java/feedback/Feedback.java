@@ -4,12 +4,16 @@ import util.FeedbackType;
 import util.InspectionPriority;
 import util.ReportLevel;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 public class Feedback {
 
+    private static final DateTimeFormatter LAST_UPDATED_FORMAT = DateTimeFormatter.ofPattern("HH:mm dd/MM/yy");
+
     private final int lineNumber;
     private final String filename;
     private final String className;
@@ -61,42 +65,63 @@ public class Feedback {
         return sb.toString();
     }
 
-    public String toHTMLString(List<InspectionPriority> currentPriorities) {
-        if (currentPriorities.contains(priority) || hasBeenShown) {
-            hasBeenShown = true;
-            return "<div class=\"feedbackcontainer\" id=\"" + id + "\">\n" +
-                    "   <div style=\"border: " + getColour() + " solid 2px;\" id=\"feedback\">\n" +
-                    "       <div style=\"display: flex; align-items: center;\">\n" +
-                    getCopyCount() +
-                    "           <div style=\"flex-grow: 1;\">\n"  +
-                    "               <p style=\"font-weight: 500;\"> " + getTitleMessage() + " </p>\n" +
-                    "           </div>\n" +
-                    getPriorityIcons() +
-                    "       </div>\n"+
-                    getLevelMessages() +
-                    "       <p style=\"font-style: italic; text-align: right;\"> Last Updated: " + getLastUpdatedFormatted() + " </p>\n" +
-                    "   </div>\n" +
-                    getIgnoreAdviceButton() +
-                    "</div>";
+    // A copy to render from, which later changes to this feedback do not affect
+    public Feedback copy() {
+        Feedback copy = new Feedback(lineNumber, filename, id, priority, className, methodName, feedbackType);
+        copy.isFixed = isFixed;
+        copy.hasBeenShown = hasBeenShown;
+        copy.lastUpdated = lastUpdated;
+        copy.reportLevel = reportLevel;
+        copy.reportCount = reportCount;
+        copy.copyCount = copyCount;
+        return copy;
+    }
+
+    // Returns whether the feedback goes in a report showing these priorities, where it stays once it has been shown
+    public boolean show(List<InspectionPriority> currentPriorities) {
+        if (!currentPriorities.contains(priority) && !hasBeenShown) {
+            return false;
         }
 
-        return "";
+        hasBeenShown = true;
+        return true;
     }
 
-    private String getCopyCount() {
-        if (isFixed || copyCount < 2) {
-            return "";
-        }
+    public void writeHTML(Writer out) throws IOException {
+        out.write("<div class=\"feedbackcontainer\" id=\"");
+        out.write(id);
+        out.write("\">\n" +
+                "   <div style=\"border: ");
+        out.write(getColour());
+        out.write(" solid 2px;\" id=\"feedback\">\n" +
+                "       <div style=\"display: flex; align-items: center;\">\n");
+        writeCopyCount(out);
+        out.write("           <div style=\"flex-grow: 1;\">\n" +
+                "               <p style=\"font-weight: 500;\"> ");
+        out.write(getTitleMessage());
+        out.write(" </p>\n" +
+                "           </div>\n");
+        writePriorityIcons(out);
+        out.write("       </div>\n");
+        writeLevelMessages(out);
+        out.write("       <p style=\"font-style: italic; text-align: right;\"> Last Updated: ");
+        LAST_UPDATED_FORMAT.formatTo(lastUpdated, out);
+        out.write(" </p>\n" +
+                "   </div>\n");
+        writeIgnoreAdviceButton(out);
+        out.write("</div>");
+    }
 
-        if (copyCount < 10) {
-            return "             <div style=\"margin-right: 2%;\">\n" +
-                    "                <i class=\"material-icons\">filter_" + copyCount + "</i>\n" +
-                    "            </div>";
+    private void writeCopyCount(Writer out) throws IOException {
+        if (isFixed || copyCount < 2) {
+            return;
         }
 
-        return "             <div style=\"margin-right: 2%;\">\n" +
-                "                <i class=\"material-icons\">filter_9_plus</i>\n" +
-                "            </div>";
+        out.write("             <div style=\"margin-right: 2%;\">\n" +
+                "                <i class=\"material-icons\">filter_");
+        out.write(copyCount < 10 ? String.valueOf(copyCount) : "9_plus");
+        out.write("</i>\n" +
+                "            </div>");
     }
 
     private String getTitleMessage() {
@@ -107,62 +132,53 @@ public class Feedback {
         return feedbackType.getFixedMessage().replace("$lineNumber", String.valueOf(lineNumber));
     }
 
-    private String getLevelMessages() {
+    private void writeLevelMessages(Writer out) throws IOException {
         if (isFixed) {
-            return "";
+            return;
         }
 
-        if (reportLevel == ReportLevel.METHOD) {
-            return "<p> What about in method " + methodName + "? </p>\n";
+        if (reportLevel == ReportLevel.METHOD || (reportLevel == ReportLevel.LINE && methodName != null)) {
+            out.write("<p> What about in method ");
+            out.write(methodName);
+            out.write("? </p>\n");
         }
 
         if (reportLevel == ReportLevel.LINE) {
-            if (methodName == null) {
-                return "<p> Check line " + lineNumber + ". </p>\n";
-            }
-
-            return "<p> What about in method " + methodName + "? </p>\n <p> Check line " + lineNumber + ". </p>\n";
+            out.write(methodName == null ? "<p> Check line " : " <p> Check line ");
+            out.write(String.valueOf(lineNumber));
+            out.write(". </p>\n");
         }
-
-        return "";
     }
 
-    private String getPriorityIcons() {
+    private void writePriorityIcons(Writer out) throws IOException {
         if (isFixed) {
-            return "";
+            return;
         }
 
-        StringBuilder sb = new StringBuilder();
-
-        sb.append("           <div style=\"display: flex;\">\n");
+        out.write("           <div style=\"display: flex;\">\n");
         for (int i = 0; i < priority.getNumberOfIcons(); i++) {
-            sb.append("             <i class=\"material-icons\">priority_high</i>");
-            sb.append("\n");
+            out.write("             <i class=\"material-icons\">priority_high</i>");
+            out.write("\n");
         }
-        sb.append("           </div>\n");
-
-        return sb.toString();
-    }
-
-    private String getLastUpdatedFormatted() {
-        DateTimeFormatter dtf = DateTimeFormatter.ofPattern("HH:mm dd/MM/yy");
-        return dtf.format(lastUpdated);
+        out.write("           </div>\n");
     }
 
     private String getColour() {
         return isFixed ? "green" : "red";
     }
 
-    private String getIgnoreAdviceButton() {
-        if (!isFixed) {
-            return "<div style=\"margin-left: 2.5%;\">\n" +
-                    "   <button class=\"ignorebutton\" id=\"" + id + "\" onclick=\"ignoreAdvice(id)\">\n" +
-                    "       Ignore Advice\n" +
-                    "   </button>\n" +
-                    "</div>\n";
+    private void writeIgnoreAdviceButton(Writer out) throws IOException {
+        if (isFixed) {
+            return;
         }
 
-        return "";
+        out.write("<div style=\"margin-left: 2.5%;\">\n" +
+                "   <button class=\"ignorebutton\" id=\"");
+        out.write(id);
+        out.write("\" onclick=\"ignoreAdvice(id)\">\n" +
+                "       Ignore Advice\n" +
+                "   </button>\n" +
+                "</div>\n");
     }
 
     public boolean isFixed() {
@@ -279,4 +295,8 @@ public class Feedback {
     public void incrementCopyCount() {
         copyCount++;
     }
+
+    public void resetCopyCount() {
+        copyCount = 1;
+    }
 }
@@ -1,6 +1,8 @@
 package feedback;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import util.MetricsHolder;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -9,41 +11,50 @@ public class FeedbackHolder {
 
     private static final FeedbackHolder INSTANCE = new FeedbackHolder();
     private final Map<Project, ProjectFeedbackHolder> projects;
+    private final ReportScheduler reportScheduler;
 
     private FeedbackHolder() {
         projects = new ConcurrentHashMap<>();
+        reportScheduler = new ReportScheduler();
     }
 
     public static FeedbackHolder getInstance() {
         return INSTANCE;
     }
 
-    public void writeToFile() {
-        for (Map.Entry<Project, ProjectFeedbackHolder> project : projects.entrySet()) {
-            ProjectFeedbackHolder projectFeedbackHolder = project.getValue();
-            projectFeedbackHolder.updateReport();
+    // Only asks for the report to be updated, the render and write are timed by the report scheduler
+    public void writeToFile(Project project) {
+        if (project.isDisposed()) {
+            return;
         }
-    }
 
-    public void addFeedback(Project project, String filename, FeedbackIdentifier feedbackId, Feedback feedback) {
         ProjectFeedbackHolder projectFeedbackHolder = projects.get(project);
-
-        if (projectFeedbackHolder == null) {
-            projectFeedbackHolder = new ProjectFeedbackHolder(project);
-            projects.put(project, projectFeedbackHolder);
+        if (projectFeedbackHolder != null) {
+            reportScheduler.requestUpdate(projectFeedbackHolder);
         }
+    }
+
+    public ProjectFeedbackHolder getProjectFeedbackHolder(Project project) {
+        return projects.computeIfAbsent(project, p -> {
+            // Dropped when the project is closed, so that the project and its metrics are not kept
+            Disposer.register(p, () -> projects.remove(p));
+            return new ProjectFeedbackHolder(p);
+        });
+    }
 
+    public void addFeedback(Project project, String filename, FeedbackIdentifier feedbackId, Feedback feedback) {
+        ProjectFeedbackHolder projectFeedbackHolder = getProjectFeedbackHolder(project);
+
+        long start = System.nanoTime();
         projectFeedbackHolder.addFeedback(filename, feedbackId, feedback);
+        MetricsHolder.getInstance(project).getProjectMetrics().recordLatency("FeedbackHolder.addFeedback", System.nanoTime() - start);
     }
 
     public void fixFeedback(Project project, String filename, FeedbackIdentifier feedbackId) {
-        ProjectFeedbackHolder projectFeedbackHolder = projects.get(project);
-
-        if (projectFeedbackHolder == null) {
-            projectFeedbackHolder = new ProjectFeedbackHolder(project);
-            projects.put(project, projectFeedbackHolder);
-        }
+        ProjectFeedbackHolder projectFeedbackHolder = getProjectFeedbackHolder(project);
 
+        long start = System.nanoTime();
         projectFeedbackHolder.fixFeedback(filename, feedbackId);
+        MetricsHolder.getInstance(project).getProjectMetrics().recordLatency("FeedbackHolder.fixFeedback", System.nanoTime() - start);
     }
 }
@@ -1,18 +1,33 @@
 package feedback;
 
 import com.intellij.openapi.project.Project;
-import org.apache.commons.io.FileUtils;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiTreeChangeAdapter;
+import com.intellij.psi.PsiTreeChangeEvent;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.jetbrains.annotations.NotNull;
+import org.json.simple.JSONArray;
 import util.InspectionPriority;
+import util.MetricsHolder;
 import util.Notifier;
 import util.Pair;
+import util.ProjectMetrics;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -23,23 +38,72 @@ public class ProjectFeedbackHolder {
     private static final Charset CHARSET = StandardCharsets.UTF_8;
     private static final Notifier NOTIFIER = new Notifier();
 
+    private static final String STYLESHEET = readResource("diligent.css");
+    private static final String SCRIPT = readResource("diligent.js");
+
+    private static final ReportTemplate PAGE_TEMPLATE = new ReportTemplate(getOutputTemplate(), "$project", "$current_file", "$feedback");
+    private static final ReportTemplate FRAME_TEMPLATE = new ReportTemplate(getFrameTemplate(), "$project");
+
     private final Map<String, FileFeedbackHolder> files;
+    private final Set<String> changedFiles;
     private final Map<InspectionPriority, Integer> priorityCount;
     private final String projectPath;
     private final Project project;
+    private final StringBuilderWriter pageBuffer = new StringBuilderWriter(16 * 1024);
+    private final ReportFileWriter reportWriter = new ReportFileWriter(CHARSET);
+    private final ProjectMetrics metrics;
 
     private final ReentrantLock updateFeedbackLock = new ReentrantLock();
 
+    private volatile boolean allFilesChanged;
     private boolean isCurrent;
+    private List<InspectionPriority> lastReportedPriorities;
+    private String lastIndex;
+    private boolean assetsWritten;
 
     public ProjectFeedbackHolder(Project project) {
         this.project = project;
 
         files = new ConcurrentHashMap<>();
+        changedFiles = ConcurrentHashMap.newKeySet();
         priorityCount = new ConcurrentHashMap<>();
         initMap(priorityCount);
         projectPath = project.getBasePath();
         isCurrent = true;
+        metrics = MetricsHolder.getInstance(project).getProjectMetrics();
+
+        // Feedback can only have been deleted if its element was inside a part of the tree that was removed or
+        // replaced, which still has its range before the change
+        PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
+            @Override
+            public void beforeChildRemoval(@NotNull PsiTreeChangeEvent event) {
+                markChanged(event, event.getChild());
+            }
+
+            @Override
+            public void beforeChildReplacement(@NotNull PsiTreeChangeEvent event) {
+                markChanged(event, event.getOldChild());
+            }
+        }, project);
+    }
+
+    private void markChanged(PsiTreeChangeEvent event, PsiElement changed) {
+        PsiFile file = event.getFile();
+        if (file == null && changed instanceof PsiFile) {
+            file = (PsiFile) changed;
+        }
+
+        if (file == null) {
+            allFilesChanged = true;
+            return;
+        }
+
+        FileFeedbackHolder fileFeedbackHolder = files.get(file.getName());
+        // All of the file's feedback if the file itself was removed or replaced
+        TextRange range = changed == null || changed == file ? null : changed.getTextRange();
+        if (fileFeedbackHolder != null && fileFeedbackHolder.markChanged(range)) {
+            changedFiles.add(file.getName());
+        }
     }
 
     private void initMap(Map<InspectionPriority, Integer> map) {
@@ -49,6 +113,30 @@ public class ProjectFeedbackHolder {
     }
 
     public void updateReport() {
+        long bytesWritten = reportWriter.getBytesWritten();
+        long bytesSkipped = reportWriter.getBytesSkipped();
+        long filesWritten = reportWriter.getFilesWritten();
+        long filesSkipped = reportWriter.getFilesSkipped();
+
+        try {
+            writeReport();
+        } finally {
+            metrics.add("ProjectFeedbackHolder.bytesWritten", reportWriter.getBytesWritten() - bytesWritten);
+            metrics.add("ProjectFeedbackHolder.bytesSkipped", reportWriter.getBytesSkipped() - bytesSkipped);
+            metrics.add("ProjectFeedbackHolder.filesWritten", reportWriter.getFilesWritten() - filesWritten);
+            metrics.add("ProjectFeedbackHolder.filesSkipped", reportWriter.getFilesSkipped() - filesSkipped);
+        }
+    }
+
+    public ProjectMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void writeReport() {
+        Map<File, String> pages = new LinkedHashMap<>();
+        // Pages are only rendered once the lock has been released, from copies taken under it
+        Map<File, Pair<ReportTemplate, ReportTemplate.Fragment[]>> pagesToRender = new LinkedHashMap<>();
+
         updateFeedbackLock.lock();
 
         try {
@@ -62,40 +150,125 @@ public class ProjectFeedbackHolder {
             List<InspectionPriority> reportedPriorities = getReportedPriorities();
 
             try {
-                String frameTemplate = getFrameTemplate();
-                frameTemplate = frameTemplate.replace("$files", getAllFilesAsHTMLString());
-                File frameHtmlFile = new File(projectPath + "/" + FILEPATH);
-                FileUtils.writeStringToFile(frameHtmlFile, frameTemplate, CHARSET);
+                // The stylesheet, script and frame never change, and every page loads the file list from files.js
+                if (!assetsWritten) {
+                    pages.put(getReportFile("diligent.css"), STYLESHEET);
+                    pages.put(getReportFile("diligent.js"), SCRIPT);
+                    pagesToRender.put(new File(projectPath + "/" + FILEPATH), new Pair<>(FRAME_TEMPLATE, new ReportTemplate.Fragment[0]));
+                    assetsWritten = true;
+                }
+
+                String index = getAllFilesAsJSONString();
+                if (!index.equals(lastIndex)) {
+                    pages.put(getReportFile("files.js"), "var diligentFiles = " + index + ";\n");
+                }
+
+                boolean prioritiesChanged = !reportedPriorities.equals(lastReportedPriorities);
 
                 for (Map.Entry<String, FileFeedbackHolder> file : files.entrySet()) {
                     String filename = file.getKey();
                     FileFeedbackHolder fileFeedbackHolder = file.getValue();
 
-                    String template = getOutputTemplate();
-                    template = template.replace("$files", getAllFilesAsHTMLString(filename));
-                    template = template.replace("$feedback", fileFeedbackHolder.getFeedbackAsHTMLString(reportedPriorities));
-                    template = template.replace("$project", project.getName());
-                    template = template.replace("$current_file", filename);
-                    File newHtmlFile = new File(projectPath + "/" + TEMPLATE_FILEPATH.replace("$filename", fileFeedbackHolder.getFilepath()));
-                    FileUtils.writeStringToFile(newHtmlFile, template, CHARSET);
-                }
+                    if (fileFeedbackHolder.isReportCurrent() && !prioritiesChanged) {
+                        continue;
+                    }
 
-                String browserLink = "http://localhost:63342/" + project.getName() + "/" + FILEPATH;
-                NOTIFIER.notify(project, "Diligent for Python", "Updated Feedback Report. <a style=\"cursor: pointer;\" href=\"" + browserLink + "\">Click Here to View</a>");
+                    FileFeedbackHolder.Report report = fileFeedbackHolder.getReport(reportedPriorities);
+                    pagesToRender.put(getReportFile(fileFeedbackHolder.getFilepath()), new Pair<>(PAGE_TEMPLATE, new ReportTemplate.Fragment[]{
+                            out -> out.write(filename),
+                            report::writeHTML}));
+                    fileFeedbackHolder.updateReport();
+                }
 
+                lastIndex = index;
+                lastReportedPriorities = reportedPriorities;
                 isCurrent = true;
-            } catch (IOException | IndexOutOfBoundsException e) {
+            } catch (IndexOutOfBoundsException e) {
                 System.err.println(e);
+                markOutdated();
+                return;
+            }
+
+        } finally {
+            updateFeedbackLock.unlock();
+        }
+
+        // Inspections never wait on rendering or disk IO
+        try {
+            boolean written = false;
+            for (Map.Entry<File, String> page : pages.entrySet()) {
+                written |= reportWriter.write(page.getKey().toPath(), page.getValue());
+            }
+
+            // Each page is written straight from the shared buffer before the next one is rendered into it
+            for (Map.Entry<File, Pair<ReportTemplate, ReportTemplate.Fragment[]>> page : pagesToRender.entrySet()) {
+                CharSequence content = renderPage(page.getValue().getFirst(), page.getValue().getSecond());
+                written |= reportWriter.write(page.getKey().toPath(), content);
             }
 
+            if (!written) {
+                return;
+            }
+
+            String browserLink = "http://localhost:63342/" + project.getName() + "/" + FILEPATH;
+            NOTIFIER.notify(project, "Diligent for Python", "Updated Feedback Report. <a style=\"cursor: pointer;\" href=\"" + browserLink + "\">Click Here to View</a>");
+        } catch (IOException e) {
+            System.err.println(e);
+            markOutdated();
+        }
+    }
+
+    private void markOutdated() {
+        updateFeedbackLock.lock();
+        try {
+            isCurrent = false;
+            lastIndex = null;
+            assetsWritten = false;
+            for (FileFeedbackHolder fileFeedbackHolder : files.values()) {
+                fileFeedbackHolder.outdateReport();
+            }
         } finally {
             updateFeedbackLock.unlock();
         }
     }
 
+    // Renders into a buffer that is reused across pages. Only called from the report writer thread.
+    private CharSequence renderPage(ReportTemplate template, ReportTemplate.Fragment... fragments) throws IOException {
+        StringBuilder page = pageBuffer.getBuilder();
+        page.setLength(0);
+
+        ReportTemplate.Fragment[] allFragments = new ReportTemplate.Fragment[fragments.length + 1];
+        allFragments[0] = out -> out.write(project.getName());
+        System.arraycopy(fragments, 0, allFragments, 1, fragments.length);
+
+        template.render(pageBuffer, allFragments);
+        return page;
+    }
+
+    private File getReportFile(String filename) {
+        return new File(projectPath + "/" + TEMPLATE_FILEPATH.replace("$filename", filename));
+    }
+
     private void updateDeleted() {
-        for (Map.Entry<String, FileFeedbackHolder> file : files.entrySet()) {
-            FileFeedbackHolder fileFeedbackHolder = file.getValue();
+        Collection<String> filesToCheck;
+        if (allFilesChanged) {
+            allFilesChanged = false;
+            changedFiles.clear();
+            filesToCheck = new ArrayList<>(files.keySet());
+            for (FileFeedbackHolder fileFeedbackHolder : files.values()) {
+                fileFeedbackHolder.markChanged(null);
+            }
+        } else {
+            filesToCheck = new ArrayList<>(changedFiles);
+            changedFiles.removeAll(filesToCheck);
+        }
+
+        for (String filename : filesToCheck) {
+            FileFeedbackHolder fileFeedbackHolder = files.get(filename);
+            if (fileFeedbackHolder == null) {
+                continue;
+            }
+
             Map<InspectionPriority, Integer> changeToPriorities = fileFeedbackHolder.updateDeleted();
 
             if (!(changeToPriorities.get(InspectionPriority.HIGH) == 0 &&
@@ -140,6 +313,7 @@ public class ProjectFeedbackHolder {
             Pair<Boolean, Boolean> addFeedbackRes = fileFeedbackHolder.addFeedback(feedbackId, feedback);
             if (addFeedbackRes.getSecond()) {
                 editCount(feedback.getPriority(), 1);
+                metrics.increment(feedbackId.getFeedbackType() + ".added");
             }
             files.put(filename, fileFeedbackHolder);
 
@@ -164,6 +338,7 @@ public class ProjectFeedbackHolder {
             InspectionPriority priority = fileFeedbackHolder.fixFeedback(feedbackId);
             if (priority != InspectionPriority.NONE) {
                 editCount(priority, -1);
+                metrics.increment(feedbackId.getFeedbackType() + ".fixed");
                 isCurrent = false;
             }
         } finally {
@@ -184,35 +359,28 @@ public class ProjectFeedbackHolder {
         priorityCount.put(priority, currCount);
     }
 
-    private String getAllFilesAsHTMLString() {
-        StringBuffer sb = new StringBuffer();
+    @SuppressWarnings("unchecked")
+    private String getAllFilesAsJSONString() {
+        JSONArray ja = new JSONArray();
 
         for (Map.Entry<String, FileFeedbackHolder> file : files.entrySet()) {
             FileFeedbackHolder fileFeedbackHolder = file.getValue();
-            sb.append(fileFeedbackHolder.toHTMLString());
+            ja.add(fileFeedbackHolder.toJSONObject());
         }
 
-        return sb.toString();
+        return ja.toJSONString();
     }
 
-    private String getAllFilesAsHTMLString(String selectedFile) {
-        StringBuffer sb = new StringBuffer();
-
-        for (Map.Entry<String, FileFeedbackHolder> file : files.entrySet()) {
-            String filename = file.getKey();
-            FileFeedbackHolder fileFeedbackHolder = file.getValue();
-
-            if (filename.equals(selectedFile)) {
-                sb.append(fileFeedbackHolder.toSelectedHTMLString());
-            } else {
-                sb.append(fileFeedbackHolder.toHTMLString());
-            }
+    private static String readResource(String name) {
+        try (InputStream in = ProjectFeedbackHolder.class.getResourceAsStream("/report/" + name)) {
+            return IOUtils.toString(in, CHARSET);
+        } catch (IOException | NullPointerException e) {
+            System.err.println(e);
+            return "";
         }
-
-        return sb.toString();
     }
 
-    private String getOutputTemplate() {
+    private static String getOutputTemplate() {
         return "<!DOCTYPE html>\n" +
                 "<html lang=\"en\" style=\"height: 100%;\">\n" +
                 "<head>\n" +
@@ -220,114 +388,10 @@ public class ProjectFeedbackHolder {
                 "    <meta name=\"theme-color\" content=\"#34558b\">\n" +
                 "    <link rel=\"stylesheet\" href=\"https://fonts.googleapis.com/css?family=Roboto:300,400,500\">\n" +
                 "    <link rel=\"stylesheet\" href=\"https://fonts.googleapis.com/icon?family=Material+Icons\">\n" +
+                "    <link rel=\"stylesheet\" href=\"./diligent.css\">\n" +
                 "    <title>Diligent for Python</title>\n" +
-                "    <style>\n" +
-                "        .material-icons {\n" +
-                "            font-family: 'Material Icons';\n" +
-                "            font-weight: normal;\n" +
-                "            font-style: normal;\n" +
-                "            font-size: 24px;\n" +
-                "            display: inline-block;\n" +
-                "            line-height: 1;\n" +
-                "            text-transform: none;\n" +
-                "            letter-spacing: normal;\n" +
-                "            word-wrap: normal;\n" +
-                "            white-space: nowrap;\n" +
-                "            direction: ltr;\n" +
-                "            /* Support for all WebKit browsers. */\n" +
-                "            -webkit-font-smoothing: antialiased;\n" +
-                "            /* Support for Safari and Chrome. */\n" +
-                "            text-rendering: optimizeLegibility;\n" +
-                "            /* Support for Firefox. */\n" +
-                "            -moz-osx-font-smoothing: grayscale;\n" +
-                "            /* Support for IE. */\n" +
-                "            font-feature-settings: 'liga';\n" +
-                "        }\n" +
-                "        #topbar {\n" +
-                "            min-height: 64px;\n" +
-                "            background-color: #34558b;\n" +
-                "            display: flex;\n" +
-                "            position: relative;\n" +
-                "            align-items: center;\n" +
-                "        }\n" +
-                "        #topbartitle {\n" +
-                "            font-family: Roboto, Helvetica, Arial, sans-serif;\n" +
-                "            font-weight: 500;\n" +
-                "            line-height: 1.6;\n" +
-                "            letter-spacing: 0.0075em;\n" +
-                "            color:white;\n" +
-                "            margin: 0px;\n" +
-                "            padding-left: 24px;\n" +
-                "            flex-grow: 1;\n" +
-                "        }\n" +
-                "        #page {\n" +
-                "            display: flex;\n" +
-                "            flex-direction: row;\n" +
-                "            height: 100%;\n" +
-                "        }\n" +
-                "        #filesidebar {\n" +
-                "            width: 20%;\n" +
-                "            background-color: #34558b;\n" +
-                "            color: white;\n" +
-                "            height: 100%;\n" +
-                "            display: flex;\n" +
-                "            flex-direction: column;\n" +
-                "            align-items: center;\n" +
-                "        }\n" +
-                "        #file {\n" +
-                "            cursor: pointer;\n" +
-                "            border: white solid 2px;\n" +
-                "            width: 80%;\n" +
-                "            margin-top: 5%;\n" +
-                "            border-radius: 5px;\n" +
-                "            padding: 10px;\n" +
-                "            font-family: Roboto, Helvetica, Arial, sans-serif;\n" +
-                "        }\n" +
-                "        #mainpage {\n" +
-                "            width:100%;\n" +
-                "            height: 100%;\n" +
-                "            display: flex;\n" +
-                "            flex-direction: column;\n" +
-                "        }\n" +
-                "        div.feedbackcontainer {\n" +
-                "            display: flex;\n" +
-                "            flex-direction: row;\n" +
-                "            align-items: center;\n" +
-                "            margin-top: 2.5%;\n" +
-                "            margin-left: 2.5%;\n" +
-                "        }\n" +
-                "        #feedback {\n" +
-                "            width: 50%;\n" +
-                "            border-radius: 5px;\n" +
-                "            padding: 1%;\n" +
-                "            font-family: Roboto, Helvetica, Arial, sans-serif;\n" +
-                "        }\n" +
-                "        button.ignorebutton {\n" +
-                "            background-color: #34558b;\n" +
-                "            color: white;\n" +
-                "            border: none;\n" +
-                "            border-radius: 5px;\n" +
-                "            font-family: Roboto, Helvetica, Arial, sans-serif;\n" +
-                "            padding: 10%;\n" +
-                "            cursor: pointer;\n" +
-                "        }\n" +
-                "        #filetitle {\n" +
-                "            display: flex;\n" +
-                "            flex-grow: 1;\n" +
-                "        }\n" +
-                "        #filecontainer {\n" +
-                "            display: flex;\n" +
-                "            flex-direction: row;\n" +
-                "            align-items: center;\n" +
-                "        }\n" +
-                "        #homeicon {\n" +
-                "            color: white;\n" +
-                "            padding-right: 24px;\n" +
-                "            cursor: pointer;\n" +
-                "        }\n" +
-                "    </style>\n" +
                 "</head>\n" +
-                "<body style=\"margin: 0px;height: 100%;\">\n" +
+                "<body style=\"margin: 0px;height: 100%;\" data-project=\"$project\" data-file=\"$current_file\">\n" +
                 "<div id=\"root\" style=\"height: 100%;\">\n" +
                 "    <div id=\"topbar\">\n" +
                 "        <h1 id=\"topbartitle\">\n" +
@@ -336,51 +400,20 @@ public class ProjectFeedbackHolder {
                 "        <i class=\"material-icons\" id=\"homeicon\" onClick=\"location.href = './diligent.html'\">home</i>\n" +
                 "    </div>\n" +
                 "    <div id=\"page\">\n" +
-                "        <div id=\"filesidebar\">\n" +
-                "            $files " +
-                "        </div>\n" +
+                "        <div id=\"filesidebar\"></div>\n" +
                 "        <div id=\"mainpage\">\n" +
                 "            $feedback\n" +
                 "        </div>\n" +
                 "    </div>\n" +
                 "</div>\n" +
-                "<script>\n" +
-                "    window.onload = init();\n" +
-                "    \n" +
-                "    function init() {\n" +
-                "        var fileMap = JSON.parse(localStorage.getItem(\"$project\"));\n" +
-                "        if (fileMap !== null) {\n" +
-                "            var hidden = fileMap[\"$current_file\"];\n" +
-                "            for (var i = 0; i < hidden.length; i++) {\n" +
-                "                var x = document.getElementById(hidden[i]);\n" +
-                "                if (x.style.display === \"none\") {\n" +
-                "                    x.style.display = \"block\";\n" +
-                "                } else {\n" +
-                "                    x.style.display = \"none\";\n" +
-                "                }\n" +
-                "            }\n" +
-                "        }\n" +
-                "    }\n" +
-                "\n" +
-                "    function ignoreAdvice(div_id) {\n" +
-                "        var fileMap = JSON.parse(localStorage.getItem(\"$project\"));\n" +
-                "        if (fileMap === null) {\n" +
-                "            var hidden = [div_id];\n" +
-                "            var newFileMap = {\"$current_file\" : hidden};\n" +
-                "        } else {\n" +
-                "            var hidden = fileMap[\"$current_file\"];\n" +
-                "            hidden.push(div_id);\n" +
-                "            var newFileMap = {...fileMap, \"$current_file\" : hidden};\n" +
-                "        }\n" +
-                "        localStorage.setItem(\"$project\", JSON.stringify(newFileMap));\n" +
-                "        window.location.reload();\n" +
-                "    }\n" +
-                "</script> \n" +
+                "<script src=\"./files.js\"></script>\n" +
+                "<script src=\"./diligent.js\"></script>\n" +
+                "<script>init();</script>\n" +
                 "</body>\n" +
                 "</html>";
     }
 
-    private String getFrameTemplate() {
+    private static String getFrameTemplate() {
         return "<!DOCTYPE html>\n" +
                 "<html lang=\"en\" style=\"height: 100%;\">\n" +
                 "<head>\n" +
@@ -388,92 +421,10 @@ public class ProjectFeedbackHolder {
                 "    <meta name=\"theme-color\" content=\"#34558b\">\n" +
                 "    <link rel=\"stylesheet\" href=\"https://fonts.googleapis.com/css?family=Roboto:300,400,500\">\n" +
                 "    <link rel=\"stylesheet\" href=\"https://fonts.googleapis.com/icon?family=Material+Icons\">\n" +
+                "    <link rel=\"stylesheet\" href=\"./diligent.css\">\n" +
                 "    <title>Diligent for Python</title>\n" +
-                "    <style>\n" +
-                "        .material-icons {\n" +
-                "            font-family: 'Material Icons';\n" +
-                "            font-weight: normal;\n" +
-                "            font-style: normal;\n" +
-                "            font-size: 24px;\n" +
-                "            display: inline-block;\n" +
-                "            line-height: 1;\n" +
-                "            text-transform: none;\n" +
-                "            letter-spacing: normal;\n" +
-                "            word-wrap: normal;\n" +
-                "            white-space: nowrap;\n" +
-                "            direction: ltr;\n" +
-                "            /* Support for all WebKit browsers. */\n" +
-                "            -webkit-font-smoothing: antialiased;\n" +
-                "            /* Support for Safari and Chrome. */\n" +
-                "            text-rendering: optimizeLegibility;\n" +
-                "            /* Support for Firefox. */\n" +
-                "            -moz-osx-font-smoothing: grayscale;\n" +
-                "            /* Support for IE. */\n" +
-                "            font-feature-settings: 'liga';\n" +
-                "        }\n" +
-                "        #topbar {\n" +
-                "            min-height: 64px;\n" +
-                "            background-color: #34558b;\n" +
-                "            display: flex;\n" +
-                "            position: relative;\n" +
-                "            align-items: center;\n" +
-                "        }\n" +
-                "        #topbartitle {\n" +
-                "            font-family: Roboto, Helvetica, Arial, sans-serif;\n" +
-                "            font-weight: 500;\n" +
-                "            line-height: 1.6;\n" +
-                "            letter-spacing: 0.0075em;\n" +
-                "            color:white;\n" +
-                "            margin: 0px;\n" +
-                "            padding-left: 24px;\n" +
-                "            flex-grow: 1;\n" +
-                "        }\n" +
-                "        #page {\n" +
-                "            display: flex;\n" +
-                "            flex-direction: row;\n" +
-                "            height: 100%;\n" +
-                "        }\n" +
-                "        #filesidebar {\n" +
-                "            width: 20%;\n" +
-                "            background-color: #34558b;\n" +
-                "            color: white;\n" +
-                "            height: 100%;\n" +
-                "            display: flex;\n" +
-                "            flex-direction: column;\n" +
-                "            align-items: center;\n" +
-                "        }\n" +
-                "        #file {\n" +
-                "            cursor: pointer;\n" +
-                "            border: white solid 2px;\n" +
-                "            width: 80%;\n" +
-                "            margin-top: 5%;\n" +
-                "            border-radius: 5px;\n" +
-                "            padding: 10px;\n" +
-                "            font-family: Roboto, Helvetica, Arial, sans-serif;\n" +
-                "        }\n" +
-                "        #mainpage {\n" +
-                "            width:100%;\n" +
-                "            height: 100%;\n" +
-                "            display: flex;\n" +
-                "            flex-direction: column;\n" +
-                "        }\n" +
-                "        #filetitle {\n" +
-                "            display: flex;\n" +
-                "            flex-grow: 1;\n" +
-                "        }\n" +
-                "        #filecontainer {\n" +
-                "            display: flex;\n" +
-                "            flex-direction: row;\n" +
-                "            align-items: center;\n" +
-                "        }\n" +
-                "        #homeicon {\n" +
-                "            color: white;\n" +
-                "            padding-right: 24px;\n" +
-                "            cursor: pointer;\n" +
-                "        }\n" +
-                "    </style>\n" +
                 "</head>\n" +
-                "<body style=\"margin: 0px;height: 100%;\">\n" +
+                "<body style=\"margin: 0px;height: 100%;\" data-project=\"$project\">\n" +
                 "<div id=\"root\" style=\"height: 100%;\">\n" +
                 "    <div id=\"topbar\">\n" +
                 "        <h1 id=\"topbartitle\">\n" +
@@ -482,9 +433,7 @@ public class ProjectFeedbackHolder {
                 "        <i class=\"material-icons\" id=\"homeicon\" onClick=\"location.href = './diligent.html'\">home</i>\n" +
                 "    </div>\n" +
                 "    <div id=\"page\">\n" +
-                "        <div id=\"filesidebar\">\n" +
-                "            $files " +
-                "        </div>\n" +
+                "        <div id=\"filesidebar\"></div>\n" +
                 "        <div id=\"mainpage\">\n" +
                 "            <div style=\"width: 40%; margin-top: 2.5%; margin-left: 2.5%;padding: 1%;font-family: Roboto, Helvetica, Arial, sans-serif;\">\n" +
                 "                <p style=\"font-weight: 500;\"> Please select a file from the sidebar. </p>\n" +
@@ -492,6 +441,9 @@ public class ProjectFeedbackHolder {
                 "        </div>\n" +
                 "    </div>\n" +
                 "</div>\n" +
+                "<script src=\"./files.js\"></script>\n" +
+                "<script src=\"./diligent.js\"></script>\n" +
+                "<script>init();</script>\n" +
                 "</body>\n" +
                 "</html>";
     }
@@ -0,0 +1,56 @@
+package feedback;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class ReportScheduler {
+
+    private static final long QUIET_PERIOD_MS = Long.getLong("diligent.report.quietPeriod", 500);
+
+    private final ScheduledExecutorService executor;
+    private final Map<ProjectFeedbackHolder, Long> lastRequests;
+
+    public ReportScheduler() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Diligent Report Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lastRequests = new ConcurrentHashMap<>();
+    }
+
+    public void requestUpdate(ProjectFeedbackHolder projectFeedbackHolder) {
+        // Only the first request in a burst schedules a render, the rest just push the deadline back
+        if (lastRequests.put(projectFeedbackHolder, System.currentTimeMillis()) == null) {
+            executor.schedule(() -> update(projectFeedbackHolder), QUIET_PERIOD_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void update(ProjectFeedbackHolder projectFeedbackHolder) {
+        Long lastRequest = lastRequests.get(projectFeedbackHolder);
+        if (lastRequest == null) {
+            return;
+        }
+
+        long remaining = lastRequest + QUIET_PERIOD_MS - System.currentTimeMillis();
+        if (remaining > 0) {
+            executor.schedule(() -> update(projectFeedbackHolder), remaining, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        lastRequests.remove(projectFeedbackHolder);
+
+        // One render and write for the whole burst of writeToFile calls
+        long start = System.nanoTime();
+        try {
+            projectFeedbackHolder.updateReport();
+        } catch (RuntimeException e) {
+            System.err.println(e);
+        } finally {
+            projectFeedbackHolder.getMetrics().recordLatency("FeedbackHolder.writeToFile", System.nanoTime() - start);
+        }
+    }
+}
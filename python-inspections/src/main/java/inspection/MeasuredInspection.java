@@ -0,0 +1,68 @@
+package inspection;
+
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.LocalInspectionToolSession;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementVisitor;
+import org.jetbrains.annotations.NotNull;
+import util.LatencyHistogram;
+import util.MetricsHolder;
+import util.ProjectMetrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Times building each inspection's visitor and every visit it makes. Visits are counted in the visitor itself and
+// only added to the project's metrics once the file is finished, so the inspections never contend on them.
+public abstract class MeasuredInspection extends AbstractBaseJavaLocalInspectionTool {
+
+    // One session is shared by every inspection run over a file
+    private static final Key<Map<String, MeasuredVisitor>> VISITORS_KEY = Key.create("diligent.measuredVisitors");
+
+    @NotNull
+    @Override
+    public PsiElementVisitor buildVisitor(@NotNull ProblemsHolder holder, boolean isOnTheFly, @NotNull LocalInspectionToolSession session) {
+        long start = System.nanoTime();
+        PsiElementVisitor visitor = buildVisitor(holder, isOnTheFly);
+        MetricsHolder.getInstance(holder.getProject()).getProjectMetrics().recordLatency(getShortName() + ".buildVisitor", System.nanoTime() - start);
+
+        MeasuredVisitor measuredVisitor = new MeasuredVisitor(visitor);
+        session.putUserDataIfAbsent(VISITORS_KEY, new ConcurrentHashMap<>()).put(getShortName(), measuredVisitor);
+        return measuredVisitor;
+    }
+
+    @Override
+    public void inspectionFinished(@NotNull LocalInspectionToolSession session, @NotNull ProblemsHolder problemsHolder) {
+        super.inspectionFinished(session, problemsHolder);
+
+        Map<String, MeasuredVisitor> visitors = session.getUserData(VISITORS_KEY);
+        MeasuredVisitor measuredVisitor = visitors == null ? null : visitors.remove(getShortName());
+        if (measuredVisitor == null) {
+            return;
+        }
+
+        ProjectMetrics metrics = MetricsHolder.getInstance(problemsHolder.getProject()).getProjectMetrics();
+        metrics.getLatency(getShortName() + ".visit").addAll(measuredVisitor.visits);
+        metrics.recordLatency(getShortName() + ".file", measuredVisitor.visits.getTotalNanos());
+    }
+
+    private static class MeasuredVisitor extends PsiElementVisitor {
+
+        private final PsiElementVisitor visitor;
+        private final LatencyHistogram visits = new LatencyHistogram();
+
+        MeasuredVisitor(PsiElementVisitor visitor) {
+            this.visitor = visitor;
+        }
+
+        // Every element is passed here, and the wrapped visitor then sees it through its own visit method
+        @Override
+        public void visitElement(PsiElement element) {
+            long start = System.nanoTime();
+            element.accept(visitor);
+            visits.record(System.nanoTime() - start);
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package inspection;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.JavaElementVisitor;
 import com.intellij.psi.PsiElementVisitor;
@@ -17,7 +16,7 @@ import util.InspectionPriority;
 import util.PsiStmtType;
 import util.Utils;
 
-public final class MethodLengthInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class MethodLengthInspection extends MeasuredInspection {
 
     private static final int MAX_METHOD_LENGTH = 20;
 
@@ -68,7 +67,7 @@ public final class MethodLengthInspection extends AbstractBaseJavaLocalInspectio
                     return;
                 }
 
-                feedbackHolder.writeToFile();
+                feedbackHolder.writeToFile(holder.getProject());
             }
 
             @Override
@@ -84,7 +83,7 @@ public final class MethodLengthInspection extends AbstractBaseJavaLocalInspectio
 
                 String filename = node.getContainingFile().getName();
                 int line = Utils.getLineNumber(node);
-                FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(node), "method-length", PsiStmtType.METHOD, line);
+                FeedbackIdentifier feedbackId = new FeedbackIdentifier(node, "method-length", PsiStmtType.METHOD, line);
 
                 if (stats.length >= MAX_METHOD_LENGTH) {
                     Feedback feedback = new Feedback(line,
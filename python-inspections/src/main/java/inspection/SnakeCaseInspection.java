@@ -1,7 +1,6 @@
 package inspection;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.JavaElementVisitor;
 import com.intellij.psi.PsiElementVisitor;
@@ -17,7 +16,7 @@ import util.InspectionPriority;
 import util.PsiStmtType;
 import util.Utils;
 
-public final class SnakeCaseInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class SnakeCaseInspection extends MeasuredInspection {
 
     @Override
     public boolean isEnabledByDefault() {
@@ -66,7 +65,7 @@ public final class SnakeCaseInspection extends AbstractBaseJavaLocalInspectionTo
                     return;
                 }
 
-                feedbackHolder.writeToFile();
+                feedbackHolder.writeToFile(holder.getProject());
             }
 
             @Override
@@ -87,7 +86,7 @@ public final class SnakeCaseInspection extends AbstractBaseJavaLocalInspectionTo
 
                     String filename = node.getContainingFile().getName();
                     int line = Utils.getLineNumber(node);
-                    FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(targetExpr), "snake-case", PsiStmtType.LOCAL_VAR, line);
+                    FeedbackIdentifier feedbackId = new FeedbackIdentifier(targetExpr, "snake-case", PsiStmtType.LOCAL_VAR, line);
 
                     if (!Utils.isSnakeCase(targetExpr.getName())) {
                         Feedback feedback = new Feedback(line, filename, line + "-" + targetExpr.getName() + "-snake-case", priority, filename, Utils.getFunctionName(node), FeedbackType.SNAKECASE);
@@ -109,7 +108,7 @@ public final class SnakeCaseInspection extends AbstractBaseJavaLocalInspectionTo
 
                             String filename = node.getContainingFile().getName();
                             int line = Utils.getLineNumber(node);
-                            FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(targetExpr), "snake-case", PsiStmtType.LOCAL_VAR, line);
+                            FeedbackIdentifier feedbackId = new FeedbackIdentifier(targetExpr, "snake-case", PsiStmtType.LOCAL_VAR, line);
 
                             if (!Utils.isSnakeCase(targetExpr.getName())) {
                                 Feedback feedback = new Feedback(line, filename, line + "-" + targetExpr.getName() + "-snake-case", priority, filename, Utils.getFunctionName(node), FeedbackType.SNAKECASE);
@@ -134,7 +133,7 @@ public final class SnakeCaseInspection extends AbstractBaseJavaLocalInspectionTo
 
                 String filename = node.getContainingFile().getName();
                 int line = Utils.getLineNumber(node);
-                FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(node), "snake-case", PsiStmtType.METHOD, line);
+                FeedbackIdentifier feedbackId = new FeedbackIdentifier(node, "snake-case", PsiStmtType.METHOD, line);
 
 
                 if (!Utils.isIgnored(node.getName())) {
@@ -151,7 +150,7 @@ public final class SnakeCaseInspection extends AbstractBaseJavaLocalInspectionTo
 
                 for (PyParameter p : params) {
                     line = Utils.getLineNumber(p);
-                    feedbackId = new FeedbackIdentifier(Utils.getPointer(p), "snake-case", PsiStmtType.PARAMETER, line);
+                    feedbackId = new FeedbackIdentifier(p, "snake-case", PsiStmtType.PARAMETER, line);
                     if (p.getName() != null && !Utils.isSnakeCase(p.getName())) {
                         Feedback feedback = new Feedback(line, filename, line + "-" + p.getName() + "-snake-case", priority, filename, FeedbackType.SNAKECASE);
                         feedbackHolder.addFeedback(holder.getProject(), filename, feedbackId, feedback);
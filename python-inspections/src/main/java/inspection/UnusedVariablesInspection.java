@@ -1,7 +1,6 @@
 package inspection;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.JavaElementVisitor;
 import com.intellij.psi.PsiElementVisitor;
@@ -17,7 +16,7 @@ import util.InspectionPriority;
 import util.PsiStmtType;
 import util.Utils;
 
-public final class UnusedVariablesInspection extends AbstractBaseJavaLocalInspectionTool {
+public final class UnusedVariablesInspection extends MeasuredInspection {
 
     @Override
     public boolean isEnabledByDefault() {
@@ -66,7 +65,7 @@ public final class UnusedVariablesInspection extends AbstractBaseJavaLocalInspec
                     return;
                 }
 
-                feedbackHolder.writeToFile();
+                feedbackHolder.writeToFile(holder.getProject());
             }
 
             @Override
@@ -87,7 +86,7 @@ public final class UnusedVariablesInspection extends AbstractBaseJavaLocalInspec
                     PyExpression[] elems = tupleExpr.getElements();
 
                     for (PyExpression e : elems) {
-                        FeedbackIdentifier feedbackId = new FeedbackIdentifier(Utils.getPointer(e), "unused-var", PsiStmtType.EXPR, line);
+                        FeedbackIdentifier feedbackId = new FeedbackIdentifier(e, "unused-var", PsiStmtType.EXPR, line);
 
                         if (isNotUsed(e, Utils.getFunction(e), node)) {
                             Feedback feedback = new Feedback(line,
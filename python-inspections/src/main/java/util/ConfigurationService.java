@@ -0,0 +1,163 @@
+package util;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import org.jetbrains.annotations.NotNull;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+
+public class ConfigurationService {
+
+    private static final String CONFIG_FILENAME = "diligent_py.json";
+    private static final Notifier NOTIFIER = new Notifier();
+
+    private static final List<String> highDefaultConfig = Arrays.asList("snake-case");
+    private static final List<String> mediumDefaultConfig = Arrays.asList("unused-var");
+    private static final List<String> lowDefaultConfig = Arrays.asList("method-length");
+    private static final Map<String, InspectionPriority> DEFAULT_PRIORITIES = toPriorityMap(highDefaultConfig, mediumDefaultConfig, lowDefaultConfig);
+
+    private enum ConfigState {
+        NOT_LOADED,
+        LOADED,
+        NOT_FOUND,
+        USING_DEFAULT
+    }
+
+    private final Project project;
+    private final String configPath;
+
+    private volatile ConfigState state;
+    private volatile Map<String, InspectionPriority> priorities;
+
+    public ConfigurationService(Project project) {
+        this.project = project;
+
+        configPath = project.getBasePath() + "/" + CONFIG_FILENAME;
+        state = ConfigState.NOT_LOADED;
+        priorities = Collections.emptyMap();
+
+        project.getMessageBus().connect(project).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                for (VFileEvent event : events) {
+                    if (configPath.equals(event.getPath())) {
+                        reload();
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    public static ConfigurationService getInstance(Project project) {
+        return ServiceManager.getService(project, ConfigurationService.class);
+    }
+
+    public InspectionPriority getInspectionPriority(String inspectionName) {
+        if (state == ConfigState.NOT_LOADED) {
+            load();
+        }
+
+        InspectionPriority priority = priorities.get(inspectionName);
+        if (priority == null) {
+            return InspectionPriority.NONE;
+        }
+
+        return priority;
+    }
+
+    private synchronized void load() {
+        if (state != ConfigState.NOT_LOADED) {
+            return;
+        }
+
+        try (Reader reader = new FileReader(configPath)) {
+            JSONObject jo = (JSONObject) new JSONParser().parse(reader);
+            priorities = toPriorityMap(getInspections(jo, "high"), getInspections(jo, "medium"), getInspections(jo, "low"));
+            state = ConfigState.LOADED;
+        } catch (IOException | ParseException | ClassCastException e) {
+            priorities = Collections.emptyMap();
+            state = ConfigState.NOT_FOUND;
+
+            AnAction defaultAction = new AnAction("Use Default Configuration") {
+                @Override
+                public void actionPerformed(@NotNull AnActionEvent anActionEvent) {
+                    useDefault();
+                }
+            };
+            AnAction updateAction = new AnAction("Look Again For Configuration File") {
+                @Override
+                public void actionPerformed(@NotNull AnActionEvent anActionEvent) {
+                    reload();
+                }
+            };
+            NOTIFIER.notifyErrorWithAction(project,
+                    "Diligent for Python",
+                    "No configuration file found at '" + configPath + "'.",
+                    Arrays.asList(defaultAction, updateAction));
+        }
+    }
+
+    private synchronized void useDefault() {
+        priorities = DEFAULT_PRIORITIES;
+        state = ConfigState.USING_DEFAULT;
+        restartInspections();
+    }
+
+    private synchronized void reload() {
+        state = ConfigState.NOT_LOADED;
+        restartInspections();
+    }
+
+    private void restartInspections() {
+        if (!project.isDisposed()) {
+            DaemonCodeAnalyzer.getInstance(project).restart();
+        }
+    }
+
+    private static List<String> getInspections(JSONObject jo, String priority) {
+        JSONArray inspections = (JSONArray) jo.get(priority);
+        if (inspections == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> names = new ArrayList<>();
+        for (Object inspection : inspections) {
+            names.add((String) inspection);
+        }
+
+        return names;
+    }
+
+    private static Map<String, InspectionPriority> toPriorityMap(List<String> high, List<String> medium, List<String> low) {
+        Map<String, InspectionPriority> priorityMap = new HashMap<>();
+
+        // Higher priorities win if an inspection is listed more than once
+        for (String inspection : high) {
+            priorityMap.putIfAbsent(inspection, InspectionPriority.HIGH);
+        }
+
+        for (String inspection : medium) {
+            priorityMap.putIfAbsent(inspection, InspectionPriority.MEDIUM);
+        }
+
+        for (String inspection : low) {
+            priorityMap.putIfAbsent(inspection, InspectionPriority.LOW);
+        }
+
+        return Collections.unmodifiableMap(priorityMap);
+    }
+}
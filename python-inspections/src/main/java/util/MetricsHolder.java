@@ -0,0 +1,22 @@
+package util;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+
+// Held as a project service, so that the metrics go when the project is closed
+public class MetricsHolder {
+
+    private final ProjectMetrics projectMetrics;
+
+    public MetricsHolder(Project project) {
+        projectMetrics = new ProjectMetrics(project.getName());
+    }
+
+    public static MetricsHolder getInstance(Project project) {
+        return ServiceManager.getService(project, MetricsHolder.class);
+    }
+
+    public ProjectMetrics getProjectMetrics() {
+        return projectMetrics;
+    }
+}
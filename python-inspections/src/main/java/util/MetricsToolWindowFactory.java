@@ -0,0 +1,121 @@
+package util;
+
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import com.intellij.ui.table.JBTable;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Objects;
+
+public class MetricsToolWindowFactory implements ToolWindowFactory, DumbAware {
+
+    private static final String FILEPATH = "build/diligent/metrics.json";
+    private static final int REFRESH_MS = 1000;
+    private static final Notifier NOTIFIER = new Notifier();
+
+    private static final String[] COLUMNS = {"Metric", "Count", "Total (ms)", "p50 (ms)", "p99 (ms)", "Max (ms)"};
+    private static final Class<?>[] COLUMN_CLASSES = {String.class, Long.class, Double.class, Double.class, Double.class, Double.class};
+
+    @Override
+    public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+        ProjectMetrics metrics = MetricsHolder.getInstance(project).getProjectMetrics();
+
+        DefaultTableModel model = new DefaultTableModel(COLUMNS, 0) {
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return COLUMN_CLASSES[column];
+            }
+
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JBTable table = new JBTable(model);
+        table.setAutoCreateRowSorter(true);
+
+        JButton saveButton = new JButton("Save as JSON");
+        saveButton.addActionListener(e -> save(project, metrics));
+        JButton clearButton = new JButton("Clear");
+        clearButton.addActionListener(e -> {
+            metrics.clear();
+            refresh(model, metrics);
+        });
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttons.add(saveButton);
+        buttons.add(clearButton);
+
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(buttons, BorderLayout.NORTH);
+        panel.add(new JBScrollPane(table), BorderLayout.CENTER);
+
+        Content content = ContentFactory.SERVICE.getInstance().createContent(panel, "", false);
+        toolWindow.getContentManager().addContent(content);
+
+        Timer timer = new Timer(REFRESH_MS, e -> refresh(model, metrics));
+        timer.start();
+        Disposer.register(content, timer::stop);
+        refresh(model, metrics);
+    }
+
+    // Rows are updated in place so that the selection and sort order survive each refresh
+    private static void refresh(DefaultTableModel model, ProjectMetrics metrics) {
+        int row = 0;
+
+        for (Map.Entry<String, LatencyHistogram> latency : metrics.getLatencies().entrySet()) {
+            LatencyHistogram histogram = latency.getValue();
+            setRow(model, row++, latency.getKey(), histogram.getCount(),
+                    ProjectMetrics.toMillis(histogram.getTotalNanos()),
+                    ProjectMetrics.toMillis(histogram.getPercentile(0.5)),
+                    ProjectMetrics.toMillis(histogram.getPercentile(0.99)),
+                    ProjectMetrics.toMillis(histogram.getMaxNanos()));
+        }
+
+        for (Map.Entry<String, Long> counter : metrics.getCounters().entrySet()) {
+            setRow(model, row++, counter.getKey(), counter.getValue(), null, null, null, null);
+        }
+
+        model.setRowCount(row);
+    }
+
+    private static void setRow(DefaultTableModel model, int row, Object... values) {
+        if (row >= model.getRowCount()) {
+            model.addRow(values);
+            return;
+        }
+
+        for (int column = 0; column < values.length; column++) {
+            if (!Objects.equals(model.getValueAt(row, column), values[column])) {
+                model.setValueAt(values[column], row, column);
+            }
+        }
+    }
+
+    private static void save(Project project, ProjectMetrics metrics) {
+        Path path = Paths.get(project.getBasePath(), FILEPATH);
+
+        try {
+            Files.createDirectories(path.getParent());
+            Files.write(path, metrics.toJSONObject().toJSONString().getBytes(StandardCharsets.UTF_8));
+            NOTIFIER.notify(project, "Diligent", "Saved metrics to '" + path + "'.");
+        } catch (IOException e) {
+            NOTIFIER.notifyError(project, "Diligent", "Could not save metrics to '" + path + "'.");
+        }
+    }
+}
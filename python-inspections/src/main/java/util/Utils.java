@@ -1,36 +1,22 @@
 package util;
 
 import com.intellij.codeInspection.ProblemsHolder;
-import com.intellij.openapi.actionSystem.AnAction;
-import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.psi.*;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.jetbrains.python.psi.PyFile;
 import com.jetbrains.python.psi.PyFunction;
-import org.jetbrains.annotations.NotNull;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
-
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 
 public final class Utils {
 
     private static final String SNAKE_CASE = "([a-z]+_?)+";
-    private static final Notifier NOTIFIER = new Notifier();
-
-    private static final List<Project> configsNotFound = new ArrayList<>();
-    private static final List<Project> usingDefault = new ArrayList<>();
-
-    private static final List<String> highDefaultConfig = Arrays.asList("snake-case");
-    private static final List<String> mediumDefaultConfig = Arrays.asList("unused-var");
-    private static final List<String> lowDefaultConfig = Arrays.asList("method-length");
+    private static final Key<CachedValue<Boolean>> HAS_ERRORS_KEY = Key.create("diligent-for-python.hasErrors");
+    private static final Key<CachedValue<Long>> STRUCTURAL_HASH_KEY = Key.create("diligent-for-python.structuralHash");
 
     public static boolean isSnakeCase(String name) {
         return name.matches(SNAKE_CASE) || name.equals("_");
@@ -74,81 +60,7 @@ public final class Utils {
     }
 
     public static InspectionPriority getInspectionPriority(ProblemsHolder holder, String inspectionName) {
-        Project project = holder.getProject();
-        if (configsNotFound.contains(project)) {
-            if (usingDefault.contains(project)) {
-                return getInspectionPriorityInDefault(inspectionName);
-            }
-            return InspectionPriority.NONE;
-        }
-
-        String projectPath = project.getBasePath();
-        try {
-            Object obj = new JSONParser().parse(new FileReader(projectPath + "/diligent_py.json"));
-            JSONObject jo = (JSONObject) obj;
-            JSONArray highInspections = (JSONArray) jo.get("high");
-            JSONArray mediumInspections = (JSONArray) jo.get("medium");
-            JSONArray lowInspections = (JSONArray) jo.get("low");
-
-            for (Object inspection : highInspections) {
-                String highInspection = (String) inspection;
-                if (highInspection.equals(inspectionName)) {
-                    return InspectionPriority.HIGH;
-                }
-            }
-
-            for (Object inspection : mediumInspections) {
-                String mediumInspection = (String) inspection;
-                if (mediumInspection.equals(inspectionName)) {
-                    return InspectionPriority.MEDIUM;
-                }
-            }
-
-            for (Object inspection : lowInspections) {
-                String lowInspection = (String) inspection;
-                if (lowInspection.equals(inspectionName)) {
-                    return InspectionPriority.LOW;
-                }
-            }
-
-        } catch (IOException | ParseException e) {
-            AnAction defaultAction = new AnAction("Use Default Configuration") {
-                @Override
-                public void actionPerformed(@NotNull AnActionEvent anActionEvent) {
-                    usingDefault.add(project);
-                }
-            };
-            AnAction updateAction = new AnAction("Look Again For Configuration File") {
-                @Override
-                public void actionPerformed(@NotNull AnActionEvent anActionEvent) {
-                    configsNotFound.remove(project);
-                    usingDefault.remove(project);
-                }
-            };
-            NOTIFIER.notifyErrorWithAction(holder.getProject(),
-                    "Diligent for Python",
-                    "No configuration file found at '" + projectPath + "/diligent_py.json'.",
-                    Arrays.asList(defaultAction, updateAction));
-            configsNotFound.add(project);
-        }
-
-        return InspectionPriority.NONE;
-    }
-
-    private static InspectionPriority getInspectionPriorityInDefault(String inspectionToFind) {
-        if (highDefaultConfig.contains(inspectionToFind)) {
-            return InspectionPriority.HIGH;
-        }
-
-        if (mediumDefaultConfig.contains(inspectionToFind)) {
-            return InspectionPriority.MEDIUM;
-        }
-
-        if (lowDefaultConfig.contains(inspectionToFind)) {
-            return InspectionPriority.LOW;
-        }
-
-        return InspectionPriority.NONE;
+        return ConfigurationService.getInstance(holder.getProject()).getInspectionPriority(inspectionName);
     }
 
     public static boolean hasErrorsInFile(PsiElement element) {
@@ -160,7 +72,9 @@ public final class Utils {
             file = element.getContainingFile();
         }
 
-        return hasErrors(file);
+        // The whole-file walk is shared by every inspection and only redone when the file changes
+        return CachedValuesManager.getCachedValue(file, HAS_ERRORS_KEY,
+                () -> CachedValueProvider.Result.create(hasErrors(file), file));
     }
 
     private static boolean hasErrors(PsiElement element) {
@@ -181,6 +95,30 @@ public final class Utils {
         return SmartPointerManager.createPointer(element);
     }
 
+    // A hash of the element's tokens, ignoring whitespace and comments so that reformatting keeps the same feedback
+    public static long getStructuralHash(PsiElement element) {
+        return CachedValuesManager.getCachedValue(element, STRUCTURAL_HASH_KEY,
+                () -> CachedValueProvider.Result.create(addStructuralHash(element, 0), PsiModificationTracker.MODIFICATION_COUNT));
+    }
+
+    private static long addStructuralHash(PsiElement element, long hash) {
+        if (element instanceof PsiWhiteSpace || element instanceof PsiComment) {
+            return hash;
+        }
+
+        PsiElement child = element.getFirstChild();
+        if (child == null) {
+            return Hashing.combine(hash, Hashing.hash(element.getText()));
+        }
+
+        while (child != null) {
+            hash = addStructuralHash(child, hash);
+            child = child.getNextSibling();
+        }
+
+        return hash;
+    }
+
     public static boolean isIgnored(String funcName) {
         return funcName.startsWith("__") && funcName.endsWith("__");
     }
@@ -0,0 +1,85 @@
+package inspection;
+
+// Python source of roughly the given number of lines, made of classes whose methods have camelCase names, unpack
+// tuples into variables that are never used and run on past the method length limit
+final class GeneratedPythonFile {
+
+    private static final int METHODS_PER_CLASS = 12;
+
+    private final StringBuilder text = new StringBuilder();
+    private int lines;
+
+    private GeneratedPythonFile() {
+    }
+
+    static String getText(int lines) {
+        GeneratedPythonFile file = new GeneratedPythonFile();
+
+        for (int index = 0; file.lines < lines; index++) {
+            file.addClass(index);
+        }
+
+        return file.text.toString();
+    }
+
+    private void addClass(int index) {
+        add("class Generated" + index + ":");
+        add("");
+        add("    def __init__(self, name):");
+        add("        self.name = name");
+        add("        self.words = []");
+
+        for (int method = 0; method < METHODS_PER_CLASS; method++) {
+            add("");
+            switch (method % 3) {
+                case 0:
+                    addUnusedVariables(method);
+                    break;
+                case 1:
+                    addCamelCase(method);
+                    break;
+                default:
+                    addLongMethod(method);
+                    break;
+            }
+        }
+
+        add("");
+        add("");
+    }
+
+    private void addUnusedVariables(int method) {
+        add("    def split_words" + method + "(self, text):");
+        add("        head, tail = text[:1], text[1:]");
+        add("        first, unused = self.name, self.words");
+        add("        for word in self.words:");
+        add("            head += word");
+        add("        if first:");
+        add("            return head");
+        add("        return first");
+    }
+
+    private void addCamelCase(int method) {
+        add("    def joinWords" + method + "(self, limit):");
+        add("        wordCount = 0");
+        add("        result = \"\"");
+        add("        while wordCount < limit:");
+        add("            result += self.words[wordCount]");
+        add("            wordCount += 1");
+        add("        return result");
+    }
+
+    private void addLongMethod(int method) {
+        add("    def count_words" + method + "(self, value):");
+        add("        total = value");
+        for (int stat = 0; stat < 20; stat++) {
+            add("        total += " + stat);
+        }
+        add("        return total");
+    }
+
+    private void add(String line) {
+        text.append(line).append('\n');
+        lines++;
+    }
+}
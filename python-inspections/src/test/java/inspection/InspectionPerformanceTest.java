@@ -0,0 +1,14 @@
+package inspection;
+
+import java.io.IOException;
+
+public class InspectionPerformanceTest extends InspectionPerformanceTestCase {
+
+    public void test1kLines() throws IOException {
+        checkAllInspections(1000, 5);
+    }
+
+    public void test10kLines() throws IOException {
+        checkAllInspections(10000, 3);
+    }
+}
@@ -0,0 +1,11 @@
+package inspection;
+
+import java.io.IOException;
+
+// Takes several minutes, so it is left out of the test task unless run with -PlargeFiles
+public class LargeFileInspectionPerformanceTest extends InspectionPerformanceTestCase {
+
+    public void test50kLines() throws IOException {
+        checkAllInspections(50000, 1);
+    }
+}